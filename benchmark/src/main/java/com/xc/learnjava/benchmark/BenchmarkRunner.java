@@ -0,0 +1,26 @@
+package com.xc.learnjava.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口
+ * 1.参数与 JMH 自带的 Main 相同，例如：java -jar target/benchmarks.jar StreamBenchmark -p size=1000
+ * 2.默认挂上 gc profiler，输出每次操作的分配速率（gc.alloc.rate.norm）
+ *
+ * @author joey
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.xc.learnjava.benchmark;
+
+import com.xc.learnjava.text.CaseInsensitiveSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CaseInsensitiveSort 与 String::compareToIgnoreCase 比较器排序的对比
+ *
+ * @author joey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CaseInsensitiveSortBenchmark {
+
+    private static final String[] WORDS = {"Apple", "pear", "ORANGE", "BaNaNa", "Blackberry", "Coconut", "avocado", "Cherry", "Apricots", "Lemon"};
+
+    @Param({"1000000", "4000000"})
+    public int size;
+
+    private String[] input;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        input = new String[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = WORDS[random.nextInt(WORDS.length)] + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public String[] comparator() {
+        String[] array = input.clone();
+        Arrays.sort(array, String::compareToIgnoreCase);
+        return array;
+    }
+
+    @Benchmark
+    public String[] comparatorParallel() {
+        String[] array = input.clone();
+        Arrays.parallelSort(array, String::compareToIgnoreCase);
+        return array;
+    }
+
+    @Benchmark
+    public String[] foldedSequential() {
+        String[] array = input.clone();
+        CaseInsensitiveSort.sort(array, CaseInsensitiveSort.Mode.SEQUENTIAL);
+        return array;
+    }
+
+    @Benchmark
+    public String[] foldedParallel() {
+        String[] array = input.clone();
+        CaseInsensitiveSort.sort(array, CaseInsensitiveSort.Mode.PARALLEL);
+        return array;
+    }
+
+    @Benchmark
+    public String[] foldedRadix() {
+        String[] array = input.clone();
+        CaseInsensitiveSort.sort(array, CaseInsensitiveSort.Mode.RADIX);
+        return array;
+    }
+}
@@ -0,0 +1,77 @@
+package com.xc.learnjava.benchmark;
+
+import com.xc.learnjava.stream.Fibonacci;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.LongStream;
+
+/**
+ * Fibonacci 与 StreamTest.FibSupplier 的对比，前 n 项对一个素数取模后求和
+ *
+ * @author joey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FibonacciBenchmark {
+
+    private static final long MOD = 1_000_000_007L;
+
+    @Param({"1000", "100000", "10000000", "100000000"})
+    public long n;
+
+    @Benchmark
+    public long supplier() {
+        return LongStream.generate(new FibModSupplier())
+                .limit(n)
+                .reduce(0, (x, y) -> (x + y) % MOD);
+    }
+
+    @Benchmark
+    public long fastDoubling() {
+        return Fibonacci.longs(0, n, MOD)
+                .reduce(0, (x, y) -> (x + y) % MOD);
+    }
+
+    @Benchmark
+    public long fastDoublingParallel() {
+        return Fibonacci.longs(0, n, MOD)
+                .parallel()
+                .reduce(0, (x, y) -> (x + y) % MOD);
+    }
+
+    @Benchmark
+    public long lastTerm() {
+        return Fibonacci.get(n - 1, MOD);
+    }
+
+    /**
+     * StreamTest.FibSupplier 加上取模，从 F(0) 开始
+     */
+    static class FibModSupplier implements LongSupplier {
+        long first = 1;
+        long second = 0;
+
+        @Override
+        public long getAsLong() {
+            long tmp = second;
+            second = (second + first) % MOD;
+            first = tmp;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.xc.learnjava.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LambdaTest.test_01 中忽略大小写排序的基准测试
+ * 顺序模式对应 Arrays.sort，并行模式对应 Arrays.parallelSort，比较器都是 String::compareToIgnoreCase
+ *
+ * @author joey
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LambdaBenchmark {
+
+    @Benchmark
+    public String[] test_01_sortIgnoreCase(StreamState state) {
+        //排序是原地进行的，先复制一份，保证每次调用的输入相同
+        String[] array = state.words.clone();
+        if (state.parallel) {
+            Arrays.parallelSort(array, String::compareToIgnoreCase);
+        } else {
+            Arrays.sort(array, String::compareToIgnoreCase);
+        }
+        return array;
+    }
+}
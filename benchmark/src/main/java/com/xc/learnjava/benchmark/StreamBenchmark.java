@@ -0,0 +1,271 @@
+package com.xc.learnjava.benchmark;
+
+import com.xc.learnjava.stream.DuplicateKeyPolicy;
+import com.xc.learnjava.stream.IndexedGrouping;
+import com.xc.learnjava.stream.Records;
+import com.xc.learnjava.time.DateParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * StreamTest 中每条流水线的基准测试
+ * 1.方法名以 StreamTest 中的测试方法为前缀，例如 mapStream_dates 对应 mapStream() 中的日期解析
+ * 2.同时输出吞吐量（Throughput）和延迟分位数（SampleTime 的 p50/p90/p99...）
+ * 3.打印换成 Blackhole，避免把 System.out 的开销算进去
+ *
+ * @author joey
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StreamBenchmark {
+
+    //一、createStream
+
+    @Benchmark
+    public void createStream_natural(StreamState state, Blackhole bh) {
+        state.stream(Stream.generate(new NatualSupplier()))
+                .limit(state.size)
+                .forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void createStream_splitAsStream(StreamState state, Blackhole bh) {
+        final Pattern pattern = Pattern.compile("\\s+");
+        state.stream(pattern.splitAsStream(state.text))
+                .forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void createStream_fibonacci(StreamState state, Blackhole bh) {
+        state.stream(LongStream.generate(new FibSupplier()))
+                .limit(state.size)
+                .forEach(bh::consume);
+    }
+
+    //二、mapStream
+
+    @Benchmark
+    public List<Integer> mapStream_square(StreamState state) {
+        return state.stream(state.boxed)
+                .map(x -> x * x)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> mapStream_trimLowerSort(StreamState state) {
+        return state.stream(state.words)
+                .map(String::trim)
+                .map(String::toLowerCase)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<LocalDate> mapStream_dates(StreamState state) {
+        return state.stream(state.dates)
+                .map(x -> x.replace(" ", ""))
+                .map(x -> LocalDate.parse(x, DateTimeFormatter.ofPattern("yyyy-MM-dd")))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public int[] mapStream_datesEpochDay(StreamState state) {
+        return DateParser.parseEpochDays(state.dates);
+    }
+
+    //三、filterStream
+
+    @Benchmark
+    public long filterStream_odd(StreamState state) {
+        return state.stream(IntStream.of(state.ints))
+                .filter(x -> x % 2 != 0)
+                .count();
+    }
+
+    @Benchmark
+    public void filterStream_weekend(StreamState state, Blackhole bh) {
+        state.stream(Stream.generate(new LocalDateSupplier()))
+                .limit(state.size)
+                .filter(ldt -> ldt.getDayOfWeek() == DayOfWeek.SATURDAY || ldt.getDayOfWeek() == DayOfWeek.SUNDAY)
+                .forEach(bh::consume);
+    }
+
+    //四、reduceStream
+
+    @Benchmark
+    public Integer reduceStream_sum(StreamState state) {
+        return state.stream(state.boxed)
+                .reduce(0, (acc, n) -> acc + n);
+    }
+
+    @Benchmark
+    public Integer reduceStream_product(StreamState state) {
+        return state.stream(state.boxed)
+                .reduce(1, (acc, n) -> acc * n);
+    }
+
+    /**
+     * 并行时共享的 HashMap identity 会被多个线程同时写入，结果错误甚至死循环，
+     * 所以 parallel=true 时改用 collect 的等价写法作为对照
+     */
+    @Benchmark
+    public Map<String, String> reduceStream_config(StreamState state) {
+        Stream<Map<String, String>> mapStream = state.stream(state.configs)
+                .map(kv -> {
+                    String[] split = kv.split("\\=", 2);
+                    return Collections.singletonMap(split[0], split[1]);
+                });
+        if (state.parallel) {
+            return mapStream.collect(HashMap::new, Map::putAll, Map::putAll);
+        }
+        return mapStream.reduce(new HashMap<String, String>(), (m, kv) -> {
+            m.putAll(kv);
+            return m;
+        });
+    }
+
+    //五、outputStream
+
+    @Benchmark
+    public List<String> outputStream_toList(StreamState state) {
+        return state.stream(state.words)
+                .filter(s -> s != null && !s.trim().isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public String[] outputStream_toArray(StreamState state) {
+        return state.stream(state.words)
+                .toArray(String[]::new);
+    }
+
+    @Benchmark
+    public Map<String, String> outputStream_toMap(StreamState state) {
+        return state.stream(state.tickers)
+                .collect(Collectors.toMap(
+                        s -> s.substring(0, s.indexOf(':')),
+                        s -> s.substring(s.indexOf(':') + 1)
+                ));
+    }
+
+    @Benchmark
+    public Map<String, String> outputStream_toMapRecords(StreamState state) {
+        return state.stream(state.tickers)
+                .collect(Records.toMap(':', DuplicateKeyPolicy.FAIL));
+    }
+
+    @Benchmark
+    public Map<String, List<String>> outputStream_groupingBy(StreamState state) {
+        return state.stream(state.words)
+                .collect(Collectors.groupingBy(s -> s.substring(0, 1), Collectors.toList()));
+    }
+
+    @Benchmark
+    public Map<String, List<String>> outputStream_groupingByFirstChar(StreamState state) {
+        return state.stream(state.words)
+                .collect(IndexedGrouping.groupingByFirstChar());
+    }
+
+    //六、OtherOppStream
+
+    @Benchmark
+    public List<String> otherOppStream_sortedIgnoreCase(StreamState state) {
+        return state.stream(state.words)
+                .sorted(String::compareToIgnoreCase)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> otherOppStream_distinct(StreamState state) {
+        return state.stream(state.boxed)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> otherOppStream_skipLimit(StreamState state) {
+        return state.stream(state.words)
+                .skip(state.size / 2)
+                .limit(state.size / 4)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> otherOppStream_concat(StreamState state) {
+        return state.stream(Stream.concat(state.stream(state.words), state.stream(state.tickers)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> otherOppStream_flatMap(StreamState state) {
+        return state.stream(state.nested.stream())
+                .flatMap(list -> list.stream())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 与 StreamTest.NatualSupplier 相同
+     */
+    static class NatualSupplier implements Supplier<Integer> {
+        int n = 0;
+        @Override
+        public Integer get() {
+            n++;
+            return n;
+        }
+    }
+
+    /**
+     * 与 StreamTest.FibSupplier 相同
+     */
+    static class FibSupplier implements LongSupplier {
+        long first = 0;
+        long second = 1;
+
+        @Override
+        public long getAsLong() {
+            long tmp = second;
+            second += first;
+            first = tmp;
+            return first;
+        }
+    }
+
+    /**
+     * 与 StreamTest.LocalDateSupplier 相同
+     */
+    static class LocalDateSupplier implements Supplier<LocalDate> {
+        LocalDate start = LocalDate.of(2021, 1, 1);
+        int n = -1;
+        @Override
+        public LocalDate get() {
+            n++;
+            return start.plusDays(n);
+        }
+    }
+}
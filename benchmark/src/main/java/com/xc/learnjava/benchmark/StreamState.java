@@ -0,0 +1,95 @@
+package com.xc.learnjava.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试共用的输入数据
+ * 1.size：元素个数，从 10 到 10M
+ * 2.parallel：是否调用 parallel()
+ * 数据在每轮 Trial 开始前生成一次，内容与 StreamTest 中的示例数据同构，固定随机种子保证可重复
+ *
+ * @author joey
+ */
+@State(Scope.Benchmark)
+public class StreamState {
+
+    private static final String[] FRUITS = {"Apple", "pear ", "ORANGE", "BaNaNa ", "Blackberry", "Coconut", "Avocado", "Cherry", "Apricots", "Lemon"};
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    public Integer[] boxed;
+    public int[] ints;
+    public String[] words;
+    public String[] dates;
+    public String[] configs;
+    public String[] tickers;
+    public String text;
+    public List<List<Integer>> nested;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        boxed = new Integer[size];
+        ints = new int[size];
+        words = new String[size];
+        dates = new String[size];
+        configs = new String[size];
+        tickers = new String[size];
+        StringBuilder sb = new StringBuilder(size * 8);
+        for (int i = 0; i < size; i++) {
+            int n = random.nextInt(1000);
+            boxed[i] = n;
+            ints[i] = n;
+            String fruit = FRUITS[random.nextInt(FRUITS.length)];
+            words[i] = fruit + i;
+            //与 mapStream 中一样夹杂空格的日期
+            dates[i] = String.format(" %d - %02d-%02d ", 2000 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            configs[i] = "key" + i + "=value" + n;
+            tickers[i] = "T" + Integer.toString(i, 36).toUpperCase() + ":" + fruit.trim();
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(fruit.trim());
+        }
+        text = sb.toString();
+        nested = new ArrayList<>(size / 3 + 1);
+        for (int i = 0; i < size; i += 3) {
+            List<Integer> batch = new ArrayList<>(3);
+            for (int j = i; j < Math.min(i + 3, size); j++) {
+                batch.add(boxed[j]);
+            }
+            nested.add(batch);
+        }
+    }
+
+    public <T> Stream<T> stream(T[] array) {
+        return parallel ? Arrays.stream(array).parallel() : Arrays.stream(array);
+    }
+
+    public <T> Stream<T> stream(Stream<T> s) {
+        return parallel ? s.parallel() : s;
+    }
+
+    public IntStream stream(IntStream s) {
+        return parallel ? s.parallel() : s;
+    }
+
+    public LongStream stream(LongStream s) {
+        return parallel ? s.parallel() : s;
+    }
+}
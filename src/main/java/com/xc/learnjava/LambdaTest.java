@@ -1,5 +1,6 @@
 package com.xc.learnjava;
 
+import com.xc.learnjava.text.CaseInsensitiveSort;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -31,5 +32,10 @@ public class LambdaTest {
         //方法引用
         Arrays.sort(array,String::compareToIgnoreCase);
         System.out.println(String.join(",",array));
+
+        //3.数组较大时：先为每个字符串计算一次折叠键，再排序，结果与上面相同
+        String[] array2 = {"apple","Orange","banana","Lemon"};
+        CaseInsensitiveSort.sortIgnoreCase(array2);
+        System.out.println(String.join(",",array2));
     }
 }
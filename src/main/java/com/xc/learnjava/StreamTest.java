@@ -1,5 +1,26 @@
 package com.xc.learnjava;
 
+import com.xc.learnjava.config.ConfigLoader;
+import com.xc.learnjava.math.Reductions;
+import com.xc.learnjava.stream.BatchSources;
+import com.xc.learnjava.stream.BatchSupplier;
+import com.xc.learnjava.stream.Distinct;
+import com.xc.learnjava.stream.DuplicateKeyPolicy;
+import com.xc.learnjava.stream.Flatten;
+import com.xc.learnjava.stream.IndexedGrouping;
+import com.xc.learnjava.stream.LongBatchSupplier;
+import com.xc.learnjava.stream.Memoizer;
+import com.xc.learnjava.stream.Pages;
+import com.xc.learnjava.stream.ParallelCollectors;
+import com.xc.learnjava.stream.PipelineExecutor;
+import com.xc.learnjava.stream.PipelineProfile;
+import com.xc.learnjava.stream.Records;
+import com.xc.learnjava.stream.Sequences;
+import com.xc.learnjava.stream.TopK;
+import com.xc.learnjava.stream.Windows;
+import com.xc.learnjava.text.Tokenizer;
+import com.xc.learnjava.time.BusinessCalendar;
+import com.xc.learnjava.time.DateParser;
 import org.junit.Test;
 
 import java.awt.*;
@@ -58,6 +79,10 @@ public class StreamTest {
         Stream<Integer> natual = Stream.generate(new NatualSupplier());
         //Tips:无限序列必须先变成有限序列，才能打印
         natual.limit(20).forEach(System.out::println);
+        //NatualSupplier 会装箱且有共享状态，不能 parallel()；基本类型、可切分的写法：
+        System.out.println(Sequences.naturalInts().parallel().limit(20).sum());
+        //Supplier 每次调用开销较大（例如包装了 I/O）时，按批拉取；limit() 之后不会继续拉取
+        BatchSources.stream(BatchSupplier.of(new NatualSupplier()), 256).limit(20).forEach(System.out::println);
         System.out.println("***********************");
 
         //4.其它方法：通过一些API提供的接口，可以获得stream
@@ -65,6 +90,8 @@ public class StreamTest {
         final Pattern pattern = Pattern.compile("\\s+");
         Stream<String> stringStream = pattern.splitAsStream("The quick brown fox jumps over the lazy dog");
         stringStream.forEach(System.out::println);
+        //不走正则的分词；大文件可以用 Tokenizer.whitespace().tokens(path) 内存映射后并行分词
+        Tokenizer.whitespace().tokens("The quick brown fox jumps over the lazy dog").forEach(System.out::println);
         System.out.println("***********************");
 
         //5.基本类型在Stream中的处理
@@ -84,6 +111,12 @@ public class StreamTest {
         //LongStream：打印斐波拉契数列（Fibonacci）
         LongStream fib = LongStream.generate(new FibSupplier());
         fib.limit(10).forEach(System.out::println);
+        //无限流上的滑动窗口：最近 3 项的和、最小值、最大值，每来一项增量更新
+        Windows.sliding(LongStream.generate(new FibSupplier()), 3, 1).limit(5).forEach(System.out::println);
+        //后台线程提前拉取下一批，用完后关闭流以停止后台线程
+        try (LongStream prefetched = BatchSources.prefetchLongs(LongBatchSupplier.of(new FibSupplier()), 64, 2)) {
+            prefetched.limit(10).forEach(System.out::println);
+        }
 
     }
 
@@ -142,6 +175,14 @@ public class StreamTest {
                 .sorted()
                 //打印
                 .forEach(System.out::println);
+        //按步骤统计元素个数和耗时，找出最慢的一步
+        PipelineProfile profile = PipelineProfile.create("mapStream");
+        list.stream()
+                .map(profile.map("trim", String::trim))
+                .map(profile.map("toLowerCase", String::toLowerCase))
+                .sorted(profile.comparator("sorted", Comparator.naturalOrder()))
+                .forEach(profile.<String>peek("forEach"));
+        System.out.println(profile.report());
         System.out.println("***********************");
 
         //练习：使用map()把一组String转换为LocalDate并打印
@@ -153,6 +194,15 @@ public class StreamTest {
                 .map(x -> LocalDate.parse(x, DateTimeFormatter.ofPattern("yyyy-MM-dd")));
 
         localDateStream.forEach(System.out::println);
+        //批量解析：直接跳过空白，不生成中间字符串，也不用每次新建 DateTimeFormatter
+        System.out.println(Arrays.toString(DateParser.parseAll(array)));
+        //输入大量重复时，把 map 中的函数包装成有界缓存，相同的输入只解析一次
+        Memoizer<String, LocalDate> parse = Memoizer.of(DateParser::parse, 1024);
+        Stream.of("2020-01-09", "2020-05-01", "2020-01-09", "2020-01-09")
+                .parallel()
+                .map(parse)
+                .forEachOrdered(System.out::println);
+        System.out.println(parse.stats());
 
     }
 
@@ -175,6 +225,16 @@ public class StreamTest {
                 .limit(31)
                 .filter(ldt -> ldt.getDayOfWeek() == DayOfWeek.SATURDAY || ldt.getDayOfWeek() ==DayOfWeek.SUNDAY)
                 .forEach(System.out::println);
+        //不必逐天生成 LocalDate：按星期几直接算出休息日，结果是 epoch-day
+        BusinessCalendar.standard()
+                .weekendDays(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 2, 1))
+                .mapToObj(LocalDate::ofEpochDay)
+                .forEach(System.out::println);
+        //按自然周（从星期一开始）滚动统计，每周输出一次
+        Windows.slidingByDate(Stream.generate(new LocalDateSupplier()), 7, 7, LocalDate.of(2020, 12, 28),
+                        ldt -> ldt, LocalDate::getDayOfMonth)
+                .limit(3)
+                .forEach(System.out::println);
 
     }
 
@@ -220,6 +280,10 @@ public class StreamTest {
         Integer quadrature = Stream.of(1, 2, 3, 4, 5)
                 .reduce(1, (acc, n) -> acc * n);
         System.out.println("quadrature=" + quadrature);
+        //基本类型数组不需要装箱，溢出时抛出 ArithmeticException
+        System.out.println("quadrature=" + Reductions.product(new int[]{1, 2, 3, 4, 5}));
+        //parallel() 下用带 combiner 的收集器，溢出时抛出 ArithmeticException
+        System.out.println("quadrature=" + Stream.of(1, 2, 3, 4, 5).parallel().collect(ParallelCollectors.multiplyingExact(n -> n)));
         System.out.println("***********************");
 
         //除了可以对数值进行累积计算外，灵活运用reduce()也可以对Java对象进行操作。
@@ -244,6 +308,19 @@ public class StreamTest {
             System.out.println(k + " = " + v);
         });
 
+        //reduce 的 identity 是共享的 HashMap，parallel() 下结果错误；用 collect 让每个线程各自收集再合并
+        Map<String, String> configMap = Stream.of("profile=native", "debug=true", "logging=warn", "interval=500")
+                .parallel()
+                .collect(ConfigLoader.toMap(DuplicateKeyPolicy.LAST_WINS));
+        System.out.println(configMap);
+
+        //任意的 Map 流合并成一个 Map，每个线程各自合并，最后把较小的 Map 并入较大的 Map
+        Map<String, String> mergedMap = Stream.of("profile=native", "debug=true", "logging=warn", "interval=500")
+                .parallel()
+                .map(kv -> Collections.singletonMap(kv.substring(0, kv.indexOf('=')), kv.substring(kv.indexOf('=') + 1)))
+                .collect(ParallelCollectors.mergingMaps(DuplicateKeyPolicy.LAST_WINS));
+        System.out.println(mergedMap);
+
     }
 
     @Test
@@ -281,6 +358,8 @@ public class StreamTest {
         ));
 
         System.out.println(map);
+        //每条记录只找一次分隔符
+        System.out.println(Stream.of("APPL:Apple", "MSFT:Microsoft").collect(Records.toMap(':', DuplicateKeyPolicy.FAIL)));
         System.out.println("***********************");
 
         //4.分组输出
@@ -289,6 +368,10 @@ public class StreamTest {
                         Collectors.groupingBy(s -> s.substring(0, 1), Collectors.toList())
                 );
         System.out.println(groupList);
+        //key 取值少时，可以直接用首字符做数组下标分组，不必为每个元素截取子串
+        Map<String, List<String>> groupByFirstChar = Stream.of("Apple", "Banana", "Blackberry", "Coconut", "Avocado", "Cherry", "Apricots")
+                .collect(IndexedGrouping.groupingByFirstChar());
+        System.out.println(groupByFirstChar);
     }
 
     @Test
@@ -308,12 +391,17 @@ public class StreamTest {
                 .sorted(String::compareToIgnoreCase)
                 .collect(Collectors.toList());
         System.out.println(sortedList);
+        //只需要前 k 个时不必整体排序，用容量为 k 的堆收集
+        System.out.println(Stream.of("Orange", "apple", "Banana").collect(TopK.smallest(2, String::compareToIgnoreCase)));
+        System.out.println(Arrays.toString(TopK.largest(IntStream.of(5, 1, 9, 3, 7), 3)));
 
         //2.排序，对一个Stream的元素进行去重，没必要先转换为Set，可以直接用distinct()：
         List<String> distinctList = Stream.of("A", "B", "A", "C", "B", "D")
                 .distinct()
                 .collect(Collectors.toList());
         System.out.println(distinctList);
+        //distinct() 把见过的元素都留在堆上；元素很多时可以按 long key 去重，key 保存在堆外
+        System.out.println(Distinct.exact(16).apply(LongStream.of(3, 1, 3, 2, 1)).boxed().collect(Collectors.toList()));
 
         //3.截取
         //截取操作常用于把一个无限的Stream转换成有限的Stream，skip()用于跳过当前Stream的前N个元素，limit()用于截取当前Stream最多前N个元素：
@@ -324,6 +412,8 @@ public class StreamTest {
                 .limit(3)
                 .collect(Collectors.toList());
         System.out.println(limitList);
+        //能按下标访问的数据源可以直接截取子区间，不必逐个跳过前面的元素
+        System.out.println(Pages.slice(new String[]{"A", "B", "C", "D", "E", "F"}, 2, 3).collect(Collectors.toList()));
 
         //4.合并
         //将两个Stream合并为一个Stream可以使用Stream的静态方法concat()
@@ -340,6 +430,8 @@ public class StreamTest {
                 Arrays.asList(7, 8, 9));
         Stream<Integer> flatMapStream = s.flatMap(list -> list.stream());
         System.out.println(flatMapStream.collect(Collectors.toList()));
+        //基本类型的二维数组可以直接展开成 IntStream，不装箱，也不为每个内层数组新建 Stream
+        System.out.println(Flatten.ints(new int[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}}).parallel().sum());
 
         //6.并行
         //把一个普通Stream转换为可以并行处理的Stream非常简单，只需要用parallel()进行转换
@@ -347,6 +439,14 @@ public class StreamTest {
 //        String[] result = s.parallel() // 变成一个可以并行处理的Stream
 //                .sorted() // 可以进行并行排序
 //                .toArray(String[]::new);
+        //parallel() 默认在 ForkJoinPool.commonPool() 中执行，可以放到独立的、有名字的池中，避免和其它并行任务互相争抢
+        try (PipelineExecutor executor = PipelineExecutor.create("stream-demo", 2)) {
+            String[] result = executor.submit(c -> c.guard(Stream.of("Orange", "apple", "Banana"))
+                    .parallel()
+                    .sorted()
+                    .toArray(String[]::new)).join();
+            System.out.println(Arrays.toString(result) + " " + executor.metrics());
+        }
 
     }
 
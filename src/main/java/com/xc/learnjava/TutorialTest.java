@@ -1,5 +1,7 @@
 package com.xc.learnjava;
 
+import com.xc.learnjava.math.Reductions;
+import com.xc.learnjava.text.CodePoints;
 import org.junit.Test;
 
 import java.util.Scanner;
@@ -27,6 +29,8 @@ public class TutorialTest {
         System.out.println(str);
         String str1 = String.valueOf((char)a);
         System.out.println(str1);
+        //(char) 会截断大于 0xFFFF 的码点，批量转换可以用 com.xc.learnjava.text.CodePoints，补充字符转换为一对代理字符
+        System.out.println(CodePoints.toString(a, b, c, 0x1F600));
         System.out.println("***********************");
 
         //2.数组是引用类型，并且数组大小不可变. 可以通过索引访问数组元素，但索引超出范围将报错；
@@ -53,10 +57,12 @@ public class TutorialTest {
         //example: 把一个整数格式化成十六进制，并用0补足8位：
         int n = 12345000;
         System.out.printf("n=%d, hex=%08x\n", n, n);
+        //Tips:大量输出时每次printf都要加锁、创建Formatter，可以改用 com.xc.learnjava.io.OutputSink 批量输出
         System.out.println("***********************");
 
         //4.输入
         //创建Scanner对象并传入System.in。System.out代表标准输出流，而System.in代表标准输入流。
+        //Tips:Scanner基于正则，大批量读取数字时很慢，可以改用 com.xc.learnjava.io.FastReader
         Scanner input = new Scanner(System.in);
         System.out.println("Please input your name: ");
         String name = input.nextLine();
@@ -154,6 +160,8 @@ public class TutorialTest {
             x1 ++;
         } while (x1<=y1) ;
         System.out.println("sum=" + sum);
+        //Tips:等差数列可以直接用公式求和，不需要循环，也不会在 int 范围内悄悄溢出
+        System.out.println("sumRange=" + Reductions.sumRange(20, 100));
         System.out.println("***********************");
 
         /**
@@ -171,6 +179,8 @@ public class TutorialTest {
             sum += arr[f];
         }
         System.out.println("sum = " + sum );
+        //Tips:大数组求和可以用 com.xc.learnjava.math.Reductions，结果为 long，超过阈值时并行计算
+        System.out.println("sum = " + Reductions.sum(arr));
         System.out.println("***********************");
 
         //9.2 for each
@@ -0,0 +1,234 @@
+package com.xc.learnjava.config;
+
+import com.xc.learnjava.io.FileScan;
+import com.xc.learnjava.stream.DuplicateKeyPolicy;
+import com.xc.learnjava.stream.ParallelCollectors;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 读取 key=value 格式的配置（properties 风格）
+ * StreamTest.reduceStream 中的写法有三个问题：
+ * 1.每行 split("\\=", 2) 走正则并分配一个数组，再包一个 Collections.singletonMap；
+ * 2.reduce 的 identity 是一个共享的 HashMap，parallel() 下多个线程同时写它，结果错误；
+ * 3.没有处理重复的 key。
+ * 这里直接在字符/字节上找分隔符，只为 key 和 value 各创建一个 String；大文件用内存映射并按行边界切分给多个线程解析，
+ * 每个线程写自己的 HashMap，最后按文件中的先后顺序合并，重复 key 的处理见 DuplicateKeyPolicy。
+ *
+ * 格式：
+ * 1.以 '#' 或 '!' 开头的行是注释，空行忽略；
+ * 2.key 与 value 之间用第一个 '=' 或 ':' 分隔，两边的空白会被去掉，没有分隔符时 value 为空串；
+ * 3.不支持 java.util.Properties 的续行和转义。
+ *
+ * @author joey
+ */
+public final class ConfigLoader {
+
+    /**
+     * 小于这个大小的文件直接读入堆内存，不做映射
+     */
+    static final long MAP_THRESHOLD = 1 << 20;
+
+    /**
+     * 单个分片的上限，保证每个分片都能用一个 MappedByteBuffer 表示
+     */
+    static final long MAX_CHUNK = 1 << 30;
+
+    /**
+     * 每个分片至少这么大，避免小文件被切得太碎
+     */
+    static final long MIN_CHUNK = 1 << 16;
+
+    private ConfigLoader() {
+    }
+
+    /**
+     * 读取配置文件，文件按 UTF-8 解码
+     */
+    public static Map<String, String> load(Path file, DuplicateKeyPolicy policy) throws IOException {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                }
+                ((Buffer) buffer).flip();
+                chunks.add(buffer);
+            } else {
+                long target = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / ForkJoinPool.getCommonPoolParallelism()));
+                long start = 0;
+                while (start < size) {
+                    long end = start + target >= size ? size : nextLineStart(channel, start + target, size);
+                    if (end - start > Integer.MAX_VALUE) {
+                        throw new IOException("line too long near offset " + start + " in " + file);
+                    }
+                    chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                    start = end;
+                }
+            }
+        }
+        skipBom(chunks.get(0));
+        if (chunks.size() == 1) {
+            return parse(chunks.get(0), policy);
+        }
+        List<Map<String, String>> parts = IntStream.range(0, chunks.size())
+                .parallel()
+                .mapToObj(i -> parse(chunks.get(i), policy))
+                .collect(Collectors.toList());
+        Map<String, String> result = parts.get(0);
+        for (int i = 1; i < parts.size(); i++) {
+            policy.merge(result, parts.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 解析内存中的配置文本
+     */
+    public static Map<String, String> parse(CharSequence text, DuplicateKeyPolicy policy) {
+        Map<String, String> map = new HashMap<>();
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && text.charAt(end) != '\n') {
+                end++;
+            }
+            parseLine(text, start, end, map, policy);
+            start = end + 1;
+        }
+        return map;
+    }
+
+    /**
+     * 把 Stream<String> 中的每一行收集到一个 Map，可以用于 parallel() 流：
+     * 每个分片写自己的 HashMap，合并时保持流中的先后顺序
+     */
+    public static Collector<CharSequence, ?, Map<String, String>> toMap(DuplicateKeyPolicy policy) {
+        return ParallelCollectors.intoMap((m, line) -> parseLine(line, 0, line.length(), m, policy), policy);
+    }
+
+    /**
+     * 并发版本：所有线程直接写同一个 ConcurrentHashMap，省掉合并的开销，但不再保证出现顺序
+     */
+    public static Collector<CharSequence, ?, ConcurrentMap<String, String>> toConcurrentMap(DuplicateKeyPolicy policy) {
+        return ParallelCollectors.intoConcurrentMap((m, line) -> parseLine(line, 0, line.length(), m, policy), policy);
+    }
+
+    /**
+     * 解析 text 中 [start, end) 这一行
+     */
+    static void parseLine(CharSequence text, int start, int end, Map<String, String> into, DuplicateKeyPolicy policy) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end || text.charAt(start) == '#' || text.charAt(start) == '!') {
+            return;
+        }
+        int sep = start;
+        while (sep < end && text.charAt(sep) != '=' && text.charAt(sep) != ':') {
+            sep++;
+        }
+        int keyEnd = sep;
+        while (keyEnd > start && text.charAt(keyEnd - 1) <= ' ') {
+            keyEnd--;
+        }
+        int valueStart = Math.min(sep + 1, end);
+        while (valueStart < end && text.charAt(valueStart) <= ' ') {
+            valueStart++;
+        }
+        String key = text.subSequence(start, keyEnd).toString();
+        String value = text.subSequence(valueStart, end).toString();
+        policy.put(into, key, value);
+    }
+
+    /**
+     * 解析一个分片，buffer 的 [position, limit) 由若干完整的行组成
+     */
+    static Map<String, String> parse(ByteBuffer buffer, DuplicateKeyPolicy policy) {
+        Map<String, String> map = new HashMap<>();
+        ByteBuffer dup = buffer.duplicate();
+        byte[] scratch = new byte[256];
+        int limit = buffer.limit();
+        int start = buffer.position();
+        while (start < limit) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            //去掉首尾空白（包括 \r）
+            while (start < end && (buffer.get(start) & 0xff) <= ' ') {
+                start++;
+            }
+            while (end > start && (buffer.get(end - 1) & 0xff) <= ' ') {
+                end--;
+            }
+            byte first = start < end ? buffer.get(start) : (byte) '#';
+            if (first != '#' && first != '!') {
+                int sep = start;
+                while (sep < end && buffer.get(sep) != '=' && buffer.get(sep) != ':') {
+                    sep++;
+                }
+                int keyEnd = sep;
+                while (keyEnd > start && (buffer.get(keyEnd - 1) & 0xff) <= ' ') {
+                    keyEnd--;
+                }
+                int valueStart = Math.min(sep + 1, end);
+                while (valueStart < end && (buffer.get(valueStart) & 0xff) <= ' ') {
+                    valueStart++;
+                }
+                int max = Math.max(keyEnd - start, end - valueStart);
+                if (scratch.length < max) {
+                    scratch = new byte[Math.max(max, scratch.length * 2)];
+                }
+                String key = decode(dup, start, keyEnd, scratch);
+                String value = decode(dup, valueStart, end, scratch);
+                policy.put(map, key, value);
+            }
+            start = next;
+        }
+        return map;
+    }
+
+    private static String decode(ByteBuffer dup, int from, int to, byte[] scratch) {
+        //转成 Buffer 再调用，避免在 JDK 9+ 上编译出 Java 8 没有的 ByteBuffer.limit(int) 签名
+        ((Buffer) dup).limit(to).position(from);
+        dup.get(scratch, 0, to - from);
+        return new String(scratch, 0, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static void skipBom(ByteBuffer buffer) {
+        int p = buffer.position();
+        if (buffer.limit() - p >= 3 && (buffer.get(p) & 0xff) == 0xEF && (buffer.get(p + 1) & 0xff) == 0xBB && (buffer.get(p + 2) & 0xff) == 0xBF) {
+            ((Buffer) buffer).position(p + 3);
+        }
+    }
+
+    /**
+     * 从 offset 开始向后找到第一个 '\n'，返回它的下一个位置；找不到时返回 size
+     */
+    private static long nextLineStart(FileChannel channel, long offset, long size) throws IOException {
+        long newline = FileScan.indexOf(channel, offset, size, b -> b == '\n');
+        return newline < size ? newline + 1 : size;
+    }
+}
@@ -0,0 +1,361 @@
+package com.xc.learnjava.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * 大批量读取输入，用来替代 TutorialTest.main 中的 Scanner
+ * Scanner 每读一个数都要走正则匹配并创建字符串，读几千万个数时成为瓶颈。
+ * 1.直接从 InputStream 读到一个 64KB 的字节缓冲区里，在字节上解析整数、浮点数，不创建中间对象；
+ * 2.readInts/readLongs/readDoubles 直接填充基本类型数组；
+ * 3.分隔符为空白（<= ' '），行按 UTF-8 解码，'\n' 与 "\r\n" 都视为行结束；
+ * 4.与 Scanner 一样，数值格式错误抛出 InputMismatchException，没有更多输入时抛出 NoSuchElementException；
+ *   格式错误时这个词不会被消费，可以再用 next() 读出来；浮点数不接受 Java 字面量的类型后缀（如 "1.5f"、"2d"）；
+ *   读完一个数之后调用 nextLine() 返回的是该行余下的部分。
+ * IOException 包装为 UncheckedIOException 抛出。非线程安全。
+ *
+ * @author joey
+ */
+public class FastReader implements Closeable {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * 10^0 ~ 10^22，都能用 double 精确表示
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private byte[] token = new byte[64];
+    /**
+     * 已经读到 token 中但还没有被消费的词的长度，-1 表示没有；数值解析失败时保留，下一次读取直接使用
+     */
+    private int pending = -1;
+
+    public FastReader(InputStream in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    public FastReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public static FastReader of(Path file) throws IOException {
+        return new FastReader(Files.newInputStream(file));
+    }
+
+    /**
+     * 是否还有下一个词（跳过空白）
+     */
+    public boolean hasNext() {
+        return pending >= 0 || skipWhitespace() >= 0;
+    }
+
+    public int nextInt() {
+        long value = parseLong(readToken());
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new InputMismatchException("int out of range: " + value);
+        }
+        pending = -1;
+        return (int) value;
+    }
+
+    public long nextLong() {
+        long value = parseLong(readToken());
+        pending = -1;
+        return value;
+    }
+
+    /**
+     * 解析 token 中的整数，不消费
+     */
+    private long parseLong(int length) {
+        byte[] t = token;
+        int i = 0;
+        boolean negative = t[0] == '-';
+        if (t[0] == '-' || t[0] == '+') {
+            i++;
+        }
+        if (i == length) {
+            throw new InputMismatchException("not a number: " + tokenString(length));
+        }
+        //按负数累加，这样 Long.MIN_VALUE 也不会溢出
+        long value = 0;
+        for (; i < length; i++) {
+            int digit = t[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new InputMismatchException("not a number: " + tokenString(length));
+            }
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw new InputMismatchException("long out of range: " + tokenString(length));
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new InputMismatchException("long out of range: " + tokenString(length));
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * 解析十进制浮点数；有效数字不超过 15 位且指数在 ±22 以内时直接计算（结果是精确舍入的），
+     * 其它情况（以及 NaN、Infinity、十六进制）交给 Double.parseDouble
+     */
+    public double nextDouble() {
+        int length = readToken();
+        byte[] t = token;
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (t[i] == '-' || t[i] == '+')) {
+            negative = t[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        for (; i < length && t[i] >= '0' && t[i] <= '9'; i++) {
+            any = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (t[i] - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                digits++;
+            }
+        }
+        if (i < length && t[i] == '.') {
+            for (i++; i < length && t[i] >= '0' && t[i] <= '9'; i++) {
+                any = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (t[i] - '0');
+                    exponent--;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    digits++;
+                }
+            }
+        }
+        if (any && i < length && (t[i] == 'e' || t[i] == 'E')) {
+            int j = i + 1;
+            boolean negativeExp = false;
+            if (j < length && (t[j] == '-' || t[j] == '+')) {
+                negativeExp = t[j] == '-';
+                j++;
+            }
+            int e = 0;
+            int start = j;
+            for (; j < length && t[j] >= '0' && t[j] <= '9' && e < 100000; j++) {
+                e = e * 10 + (t[j] - '0');
+            }
+            if (j > start) {
+                exponent += negativeExp ? -e : e;
+                i = j;
+            }
+        }
+        if (any && i == length && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            pending = -1;
+            return negative ? -value : value;
+        }
+        String s = tokenString(length);
+        //Double.parseDouble 接受 Java 字面量的 f/F/d/D 后缀，Scanner 不接受；合法的十六进制浮点数以 p 指数结尾，不会以这些字母结尾
+        byte last = t[length - 1];
+        if (last == 'f' || last == 'F' || last == 'd' || last == 'D') {
+            throw new InputMismatchException("not a double: " + s);
+        }
+        double value;
+        try {
+            value = Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new InputMismatchException("not a double: " + s);
+        }
+        pending = -1;
+        return value;
+    }
+
+    /**
+     * 下一个词
+     */
+    public String next() {
+        String s = tokenString(readToken());
+        pending = -1;
+        return s;
+    }
+
+    /**
+     * 当前行余下的部分（不含行结束符）；已经到达末尾时抛出 NoSuchElementException
+     */
+    public String nextLine() {
+        //解析失败而留下的词是这一行余下部分的开头
+        int length = Math.max(pending, 0);
+        pending = -1;
+        if (length == 0 && peek() < 0) {
+            throw new NoSuchElementException("No line found");
+        }
+        int b;
+        while ((b = peek()) >= 0 && b != '\n') {
+            length = append(length, (byte) b);
+            position++;
+        }
+        if (b == '\n') {
+            position++;
+        }
+        if (length > 0 && token[length - 1] == '\r') {
+            length--;
+        }
+        return new String(token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取 n 个 int 填入 dst[offset, offset + n)
+     */
+    public int[] readInts(int[] dst, int offset, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[offset + i] = nextInt();
+        }
+        return dst;
+    }
+
+    public int[] readInts(int n) {
+        return readInts(new int[n], 0, n);
+    }
+
+    public long[] readLongs(long[] dst, int offset, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[offset + i] = nextLong();
+        }
+        return dst;
+    }
+
+    public long[] readLongs(int n) {
+        return readLongs(new long[n], 0, n);
+    }
+
+    public double[] readDoubles(double[] dst, int offset, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[offset + i] = nextDouble();
+        }
+        return dst;
+    }
+
+    public double[] readDoubles(int n) {
+        return readDoubles(new double[n], 0, n);
+    }
+
+    /**
+     * 读取余下所有的 int，个数未知时使用
+     */
+    public int[] readAllInts() {
+        int[] values = new int[1024];
+        int n = 0;
+        while (hasNext()) {
+            if (n == values.length) {
+                values = Arrays.copyOf(values, n * 2);
+            }
+            values[n++] = nextInt();
+        }
+        return Arrays.copyOf(values, n);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * 把下一个词读到 token 中，返回长度；词在调用方把 pending 置为 -1 之前不算被消费
+     */
+    private int readToken() {
+        if (pending >= 0) {
+            return pending;
+        }
+        int b = skipWhitespace();
+        if (b < 0) {
+            throw new NoSuchElementException();
+        }
+        int length = 0;
+        while ((b = peek()) > ' ') {
+            length = append(length, (byte) b);
+            position++;
+        }
+        pending = length;
+        return length;
+    }
+
+    private String tokenString(int length) {
+        return new String(token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int append(int length, byte b) {
+        if (length == token.length) {
+            token = Arrays.copyOf(token, length * 2);
+        }
+        token[length] = b;
+        return length + 1;
+    }
+
+    /**
+     * 跳过空白，返回下一个字节（不消费），没有更多输入时返回 -1
+     */
+    private int skipWhitespace() {
+        int b;
+        while ((b = peek()) >= 0 && b <= ' ') {
+            position++;
+        }
+        return b;
+    }
+
+    /**
+     * 下一个字节（不消费），没有更多输入时返回 -1
+     */
+    private int peek() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private boolean fill() {
+        try {
+            int n;
+            do {
+                n = in.read(buffer, 0, buffer.length);
+            } while (n == 0);
+            if (n < 0) {
+                return false;
+            }
+            position = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
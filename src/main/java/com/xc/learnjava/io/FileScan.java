@@ -0,0 +1,43 @@
+package com.xc.learnjava.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.IntPredicate;
+
+/**
+ * 在文件中顺序查找字节，用于在分隔符或行边界上切分大文件
+ * 每次按块读取，不需要映射或把文件读进堆。
+ *
+ * @author joey
+ */
+public final class FileScan {
+
+    private static final int PROBE_SIZE = 8192;
+
+    private FileScan() {
+    }
+
+    /**
+     * 从 offset 开始向后找第一个满足 match 的字节（按无符号值 0~255 传入）的位置，找不到时返回 size
+     */
+    public static long indexOf(FileChannel channel, long offset, long size, IntPredicate match) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long pos = offset;
+        while (pos < size) {
+            ((Buffer) probe).clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (match.test(probe.get(i) & 0xff)) {
+                    return pos + i;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,245 @@
+package com.xc.learnjava.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * 批量输出，用来替代流水线中的 forEach(System.out::println) 和 System.out.printf
+ * System.out 是一个加锁并自动刷新的 PrintStream，每打印一个元素都要加锁、编码、（遇到换行时）刷新一次。
+ * 1.输出先按 UTF-8 编码到一个可复用的字节缓冲区，攒够 batchSize 个字节再一次性写出；
+ * 2.数字直接编码成字节，format 支持 %d、%x、%X、%08x 这类整数格式，int 与 long 参数的 %x 分别按 32/64 位输出（与 printf 相同），不创建 Formatter 和中间字符串；
+ * 3.可以写到任意 OutputStream，也可以直接写 FileChannel；
+ * 4.lines()/intLines()/longLines() 返回可以交给 parallel() 流 forEach 的消费者：每个线程先写自己的缓冲区，
+ *   写满后加锁整体写出，所以每一行都是完整的（行之间的顺序与 forEach 一样不保证）；
+ *   线程各自的缓冲区在 flush()/close() 时写出，因此要等流水线结束之后再调用。
+ * print/format 等方法本身是加锁的，可以多线程调用。IOException 包装为 UncheckedIOException 抛出。
+ *
+ * @author joey
+ */
+public class OutputSink implements Flushable, Closeable {
+
+    static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final FileChannel channel;
+    private final boolean closeTarget;
+    private final int batchSize;
+    private final Utf8Buffer buffer;
+    private final long[] args = new long[2];
+    private final ThreadLocal<Utf8Buffer> local;
+    private final List<Utf8Buffer> locals = new CopyOnWriteArrayList<>();
+
+    public OutputSink(OutputStream out) {
+        this(out, null, true, DEFAULT_BATCH_SIZE);
+    }
+
+    public OutputSink(FileChannel channel) {
+        this(null, channel, true, DEFAULT_BATCH_SIZE);
+    }
+
+    private OutputSink(OutputStream out, FileChannel channel, boolean closeTarget, int batchSize) {
+        this.out = out;
+        this.channel = channel;
+        this.closeTarget = closeTarget;
+        this.batchSize = batchSize;
+        this.buffer = new Utf8Buffer(batchSize + 256);
+        this.local = ThreadLocal.withInitial(() -> {
+            Utf8Buffer b = new Utf8Buffer(Math.min(batchSize, 1 << 13) + 256);
+            locals.add(b);
+            return b;
+        });
+    }
+
+    /**
+     * 写到标准输出，close() 时只刷新，不关闭 System.out
+     */
+    public static OutputSink stdout() {
+        System.out.flush();
+        return new OutputSink(System.out, null, false, DEFAULT_BATCH_SIZE);
+    }
+
+    public synchronized OutputSink print(long v) {
+        buffer.append(v);
+        return afterWrite();
+    }
+
+    public synchronized OutputSink println(long v) {
+        buffer.append(v).newLine();
+        return afterWrite();
+    }
+
+    public synchronized OutputSink print(CharSequence s) {
+        buffer.append(s);
+        return afterWrite();
+    }
+
+    public synchronized OutputSink println(CharSequence s) {
+        buffer.append(s).newLine();
+        return afterWrite();
+    }
+
+    public synchronized OutputSink println(Object o) {
+        buffer.append(String.valueOf(o)).newLine();
+        return afterWrite();
+    }
+
+    /**
+     * 与 printf("%x", v) 相同，int 按 32 位无符号输出
+     */
+    public synchronized OutputSink printHex(int v, int width, boolean zeroPad) {
+        buffer.appendHex(v, 32, width, zeroPad, false);
+        return afterWrite();
+    }
+
+    /**
+     * int 参数与 printf 一样按 32 位处理，例如 format("%08x", -1) 输出 ffffffff
+     */
+    public synchronized OutputSink format(CharSequence format, int a) {
+        args[0] = a;
+        buffer.appendFormat(format, args, 1, 32);
+        return afterWrite();
+    }
+
+    public synchronized OutputSink format(CharSequence format, int a, int b) {
+        args[0] = a;
+        args[1] = b;
+        buffer.appendFormat(format, args, 2, 32);
+        return afterWrite();
+    }
+
+    public synchronized OutputSink format(CharSequence format, int... values) {
+        long[] wide = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            wide[i] = values[i];
+        }
+        buffer.appendFormat(format, wide, wide.length, 32);
+        return afterWrite();
+    }
+
+    /**
+     * long 参数按 64 位处理，format("%x", -1L) 输出 ffffffffffffffff
+     */
+    public synchronized OutputSink format(CharSequence format, long a) {
+        args[0] = a;
+        buffer.appendFormat(format, args, 1, 64);
+        return afterWrite();
+    }
+
+    public synchronized OutputSink format(CharSequence format, long a, long b) {
+        args[0] = a;
+        args[1] = b;
+        buffer.appendFormat(format, args, 2, 64);
+        return afterWrite();
+    }
+
+    public synchronized OutputSink format(CharSequence format, long... values) {
+        buffer.appendFormat(format, values, values.length, 64);
+        return afterWrite();
+    }
+
+    /**
+     * 每个元素输出为一行，可用于 parallel() 流的 forEach
+     */
+    public Consumer<Object> lines() {
+        return o -> {
+            Utf8Buffer b = local.get();
+            b.append(String.valueOf(o)).newLine();
+            afterLocalWrite(b);
+        };
+    }
+
+    public IntConsumer intLines() {
+        return v -> {
+            Utf8Buffer b = local.get();
+            b.append(v).newLine();
+            afterLocalWrite(b);
+        };
+    }
+
+    public LongConsumer longLines() {
+        return v -> {
+            Utf8Buffer b = local.get();
+            b.append(v).newLine();
+            afterLocalWrite(b);
+        };
+    }
+
+    /**
+     * 写出所有缓冲的内容，包括各个线程的缓冲区
+     */
+    @Override
+    public synchronized void flush() {
+        for (Utf8Buffer b : locals) {
+            if (b.count > 0) {
+                buffer.append(b.bytes, 0, b.count);
+                b.reset();
+            }
+        }
+        writeBuffer();
+        try {
+            if (out != null) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        if (closeTarget) {
+            if (out != null) {
+                out.close();
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    private OutputSink afterWrite() {
+        if (buffer.count >= batchSize) {
+            writeBuffer();
+        }
+        return this;
+    }
+
+    private void afterLocalWrite(Utf8Buffer b) {
+        if (b.count >= Math.min(batchSize, 1 << 13)) {
+            synchronized (this) {
+                buffer.append(b.bytes, 0, b.count);
+                b.reset();
+                afterWrite();
+            }
+        }
+    }
+
+    private void writeBuffer() {
+        if (buffer.count == 0) {
+            return;
+        }
+        try {
+            if (out != null) {
+                out.write(buffer.bytes, 0, buffer.count);
+            } else {
+                ByteBuffer bb = ByteBuffer.wrap(buffer.bytes, 0, buffer.count);
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.reset();
+    }
+}
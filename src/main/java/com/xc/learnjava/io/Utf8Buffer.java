@@ -0,0 +1,222 @@
+package com.xc.learnjava.io;
+
+import java.util.Arrays;
+
+/**
+ * 可复用的字节缓冲区，直接把数字和字符串按 UTF-8 编码写入，不经过 String/Formatter
+ * 非线程安全。
+ *
+ * @author joey
+ */
+final class Utf8Buffer {
+
+    private static final byte[] HEX_LOWER = "0123456789abcdef".getBytes();
+    private static final byte[] HEX_UPPER = "0123456789ABCDEF".getBytes();
+
+    byte[] bytes;
+    int count;
+
+    Utf8Buffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    void reset() {
+        count = 0;
+    }
+
+    private void ensure(int more) {
+        if (count + more > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(count + more, bytes.length * 2));
+        }
+    }
+
+    Utf8Buffer append(byte b) {
+        ensure(1);
+        bytes[count++] = b;
+        return this;
+    }
+
+    Utf8Buffer append(byte[] b, int off, int len) {
+        ensure(len);
+        System.arraycopy(b, off, bytes, count, len);
+        count += len;
+        return this;
+    }
+
+    Utf8Buffer newLine() {
+        return append((byte) '\n');
+    }
+
+    /**
+     * 十进制
+     */
+    Utf8Buffer append(long v) {
+        return appendDecimal(v, 0, false);
+    }
+
+    /**
+     * 十进制，至少 width 位，zeroPad 为 true 时在符号之后补 0，否则在左边补空格
+     */
+    Utf8Buffer appendDecimal(long v, int width, boolean zeroPad) {
+        boolean negative = v < 0;
+        int digits = 1;
+        //用负数计算，避免 Long.MIN_VALUE 取反溢出
+        long n = negative ? v : -v;
+        for (long t = n; t <= -10; t /= 10) {
+            digits++;
+        }
+        int length = digits + (negative ? 1 : 0);
+        int pad = Math.max(0, width - length);
+        ensure(length + pad);
+        if (!zeroPad) {
+            for (int i = 0; i < pad; i++) {
+                bytes[count++] = ' ';
+            }
+        }
+        if (negative) {
+            bytes[count++] = '-';
+        }
+        if (zeroPad) {
+            for (int i = 0; i < pad; i++) {
+                bytes[count++] = '0';
+            }
+        }
+        int end = count + digits;
+        for (int i = end - 1; i >= count; i--) {
+            bytes[i] = (byte) ('0' - n % 10);
+            n /= 10;
+        }
+        count = end;
+        return this;
+    }
+
+    /**
+     * 十六进制，与 printf 的 %x 一样按无符号数输出；bits 为 32 时只取低 32 位
+     */
+    Utf8Buffer appendHex(long v, int bits, int width, boolean zeroPad, boolean upperCase) {
+        if (bits == 32) {
+            v &= 0xffffffffL;
+        }
+        int digits = Math.max(1, (64 - Long.numberOfLeadingZeros(v) + 3) >> 2);
+        int pad = Math.max(0, width - digits);
+        ensure(digits + pad);
+        byte padding = zeroPad ? (byte) '0' : (byte) ' ';
+        for (int i = 0; i < pad; i++) {
+            bytes[count++] = padding;
+        }
+        byte[] table = upperCase ? HEX_UPPER : HEX_LOWER;
+        for (int i = digits - 1; i >= 0; i--) {
+            bytes[count++] = table[(int) (v >>> (i << 2)) & 0xf];
+        }
+        return this;
+    }
+
+    /**
+     * 按 UTF-8 编码写入，不成对的代理字符写成 '?'
+     */
+    Utf8Buffer append(CharSequence s) {
+        return append(s, 0, s.length());
+    }
+
+    /**
+     * 写入 s 的 [start, end) 部分
+     */
+    Utf8Buffer append(CharSequence s, int start, int end) {
+        ensure(end - start);
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (count == bytes.length) {
+                    ensure(end - i);
+                }
+                bytes[count++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                appendCodePoint(Character.toCodePoint(c, s.charAt(++i)));
+            } else if (Character.isSurrogate(c)) {
+                append((byte) '?');
+            } else {
+                appendCodePoint(c);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 按 UTF-8 编码写入一个码点
+     */
+    Utf8Buffer appendCodePoint(int cp) {
+        ensure(4);
+        if (cp < 0x80) {
+            bytes[count++] = (byte) cp;
+        } else if (cp < 0x800) {
+            bytes[count++] = (byte) (0xc0 | (cp >> 6));
+            bytes[count++] = (byte) (0x80 | (cp & 0x3f));
+        } else if (cp < 0x10000) {
+            bytes[count++] = (byte) (0xe0 | (cp >> 12));
+            bytes[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            bytes[count++] = (byte) (0x80 | (cp & 0x3f));
+        } else {
+            bytes[count++] = (byte) (0xf0 | (cp >> 18));
+            bytes[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            bytes[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            bytes[count++] = (byte) (0x80 | (cp & 0x3f));
+        }
+        return this;
+    }
+
+    /**
+     * 按 printf 风格的格式写入，只支持整数：%d、%x、%X，可带宽度和 0 填充（如 %08x），以及 %n、%%；
+     * bits 是参数的原始位数：32 表示参数是 int，负数的 %x 与 printf 一样只输出 32 位，64 表示 long
+     */
+    Utf8Buffer appendFormat(CharSequence format, long[] args, int argCount, int bits) {
+        int arg = 0;
+        int n = format.length();
+        int literal = 0;
+        for (int i = 0; i < n; i++) {
+            if (format.charAt(i) != '%') {
+                continue;
+            }
+            append(format, literal, i);
+            int j = i + 1;
+            boolean zeroPad = j < n && format.charAt(j) == '0';
+            if (zeroPad) {
+                j++;
+            }
+            int width = 0;
+            while (j < n && format.charAt(j) >= '0' && format.charAt(j) <= '9') {
+                width = width * 10 + (format.charAt(j++) - '0');
+            }
+            if (j >= n) {
+                throw new IllegalArgumentException("incomplete format specifier at index " + i + ": " + format);
+            }
+            char conversion = format.charAt(j);
+            if (conversion == '%') {
+                append((byte) '%');
+            } else if (conversion == 'n') {
+                newLine();
+            } else {
+                if (arg >= argCount) {
+                    throw new IllegalArgumentException("missing argument for format specifier at index " + i + ": " + format);
+                }
+                long v = args[arg++];
+                switch (conversion) {
+                    case 'd':
+                        appendDecimal(v, width, zeroPad);
+                        break;
+                    case 'x':
+                        appendHex(v, bits, width, zeroPad, false);
+                        break;
+                    case 'X':
+                        appendHex(v, bits, width, zeroPad, true);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unsupported conversion '%" + conversion + "' in: " + format);
+                }
+            }
+            literal = j + 1;
+            i = j;
+        }
+        append(format, literal, n);
+        return this;
+    }
+}
@@ -0,0 +1,401 @@
+package com.xc.learnjava.math;
+
+import java.math.BigInteger;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.stream.IntStream;
+
+/**
+ * 基本类型数组与数值区间的归约：求和、求积、最值、平均数
+ * TutorialTest.main 中用 int 累加器手写循环，StreamTest.reduceStream 中用 reduce(0, (acc, n) -> acc + n) 对 Integer 求和，
+ * 既会装箱，溢出时也不会有任何提示。
+ * 1.int[] 求和的结果是 long，不会溢出；long[] 求和/求积的结果超出 long 时抛出 ArithmeticException，或者用 xxxAsBigInteger 得到精确值；
+ * 2.循环用 4 个独立的累加器展开，去掉相邻迭代之间的依赖，便于 JIT 向量化；
+ * 3.数组长度超过 PARALLEL_THRESHOLD 时按块在 ForkJoin 公共池中并行计算，再合并各块的结果；
+ * 4.数值区间（等差数列）直接用公式计算，与区间长度无关。
+ * 最值与平均数的返回值与 IntStream.min()/average() 一致，空数组返回 empty。
+ *
+ * @author joey
+ */
+public final class Reductions {
+
+    /**
+     * 超过这个长度的数组并行计算，同时也是每块的大小
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private Reductions() {
+    }
+
+    //------------------------------------------------------------ 求和
+
+    /**
+     * int[] 的和，用 long 累加，不会溢出
+     */
+    public static long sum(int[] a) {
+        if (a.length < PARALLEL_THRESHOLD) {
+            return sum(a, 0, a.length);
+        }
+        return chunks(a.length).mapToLong(c -> sum(a, c * PARALLEL_THRESHOLD, end(a.length, c))).sum();
+    }
+
+    static long sum(int[] a, int from, int to) {
+        long s0 = 0;
+        long s1 = 0;
+        long s2 = 0;
+        long s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += a[i];
+            s1 += a[i + 1];
+            s2 += a[i + 2];
+            s3 += a[i + 3];
+        }
+        for (; i < to; i++) {
+            s0 += a[i];
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    /**
+     * long[] 的和，只有最终结果超出 long 范围时才抛出 ArithmeticException；
+     * 每块用 128 位累加，中间结果不会溢出，所以串行与并行分块的结果一致（例如 [MAX_VALUE, 1, -1] 的和为 MAX_VALUE）
+     */
+    public static long sum(long[] a) {
+        long[] total = sumWide(a);
+        if (total[0] != total[1] >> 63) {
+            throw new ArithmeticException("long overflow");
+        }
+        return total[1];
+    }
+
+    /**
+     * long[] 的精确和
+     */
+    public static BigInteger sumAsBigInteger(long[] a) {
+        long[] total = sumWide(a);
+        return BigInteger.valueOf(total[0]).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(total[1])));
+    }
+
+    /**
+     * 128 位的和 {high, low}，大数组按块并行
+     */
+    private static long[] sumWide(long[] a) {
+        if (a.length < PARALLEL_THRESHOLD) {
+            return sumWide(a, 0, a.length);
+        }
+        return chunks(a.length).mapToObj(c -> sumWide(a, c * PARALLEL_THRESHOLD, end(a.length, c))).reduce(new long[2], Reductions::addWide);
+    }
+
+    /**
+     * 用 128 位（high:low）累加，返回 {high, low}
+     */
+    static long[] sumWide(long[] a, int from, int to) {
+        long low = 0;
+        long high = 0;
+        for (int i = from; i < to; i++) {
+            long x = a[i];
+            long r = low + x;
+            //无符号加法的进位，x 为负数时高位要加上符号扩展的 -1
+            high += (x >> 63) + (Long.compareUnsigned(r, low) < 0 ? 1 : 0);
+            low = r;
+        }
+        return new long[]{high, low};
+    }
+
+    private static long[] addWide(long[] x, long[] y) {
+        long low = x[1] + y[1];
+        long high = x[0] + y[0] + (Long.compareUnsigned(low, x[1]) < 0 ? 1 : 0);
+        return new long[]{high, low};
+    }
+
+    /**
+     * double[] 的和，使用 Kahan 补偿求和，减少舍入误差的累积
+     */
+    public static double sum(double[] a) {
+        if (a.length < PARALLEL_THRESHOLD) {
+            return kahan(a, 0, a.length)[0];
+        }
+        double[] total = chunks(a.length)
+                .mapToObj(c -> kahan(a, c * PARALLEL_THRESHOLD, end(a.length, c)))
+                .reduce(new double[2], (x, y) -> {
+                    double[] r = new double[2];
+                    double v = y[0] - x[1] - y[1];
+                    double t = x[0] + v;
+                    r[1] = (t - x[0]) - v;
+                    r[0] = t;
+                    return r;
+                });
+        return total[0];
+    }
+
+    /**
+     * 返回 {和, 补偿}
+     */
+    static double[] kahan(double[] a, int from, int to) {
+        double sum = 0;
+        double c = 0;
+        for (int i = from; i < to; i++) {
+            double y = a[i] - c;
+            double t = sum + y;
+            c = (t - sum) - y;
+            sum = t;
+        }
+        return new double[]{sum, c};
+    }
+
+    //------------------------------------------------------------ 求积
+
+    /**
+     * int[] 的积，溢出 long 时抛出 ArithmeticException；含有 0 时为 0，即使 0 之前的部分积已经溢出
+     */
+    public static long product(int[] a) {
+        for (int x : a) {
+            if (x == 0) {
+                return 0;
+            }
+        }
+        long p = 1;
+        for (int x : a) {
+            //转成 long，避免绑定到 JDK 9+ 才有的 multiplyExact(long, int)
+            p = Math.multiplyExact(p, (long) x);
+        }
+        return p;
+    }
+
+    /**
+     * long[] 的积，溢出时抛出 ArithmeticException；含有 0 时为 0，即使 0 之前的部分积已经溢出
+     */
+    public static long product(long[] a) {
+        for (long x : a) {
+            if (x == 0) {
+                return 0;
+            }
+        }
+        long p = 1;
+        for (long x : a) {
+            p = Math.multiplyExact(p, x);
+        }
+        return p;
+    }
+
+    /**
+     * 精确的积，二分相乘（让两个乘数的位数相近，BigInteger 乘法更快），大数组并行
+     */
+    public static BigInteger productAsBigInteger(long[] a) {
+        for (long x : a) {
+            if (x == 0) {
+                return BigInteger.ZERO;
+            }
+        }
+        return productTree(a, 0, a.length);
+    }
+
+    public static BigInteger productAsBigInteger(int[] a) {
+        long[] longs = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            longs[i] = a[i];
+        }
+        return productAsBigInteger(longs);
+    }
+
+    static BigInteger productTree(long[] a, int from, int to) {
+        if (to - from <= 16) {
+            BigInteger p = BigInteger.ONE;
+            long acc = 1;
+            for (int i = from; i < to; i++) {
+                long x = a[i];
+                long lo = acc * x;
+                //与 Math.multiplyExact 相同的溢出判断
+                boolean overflow = ((Math.abs(acc) | Math.abs(x)) >>> 31 != 0)
+                        && ((lo / x != acc) || (acc == Long.MIN_VALUE && x == -1));
+                if (!overflow) {
+                    acc = lo;
+                } else {
+                    p = p.multiply(BigInteger.valueOf(acc));
+                    acc = x;
+                }
+            }
+            return p.multiply(BigInteger.valueOf(acc));
+        }
+        int mid = (from + to) >>> 1;
+        if (to - from >= PARALLEL_THRESHOLD) {
+            BigInteger[] halves = IntStream.range(0, 2).parallel()
+                    .mapToObj(h -> h == 0 ? productTree(a, from, mid) : productTree(a, mid, to))
+                    .toArray(BigInteger[]::new);
+            return halves[0].multiply(halves[1]);
+        }
+        return productTree(a, from, mid).multiply(productTree(a, mid, to));
+    }
+
+    //------------------------------------------------------------ 最值、平均数
+
+    public static OptionalInt min(int[] a) {
+        if (a.length == 0) {
+            return OptionalInt.empty();
+        }
+        if (a.length < PARALLEL_THRESHOLD) {
+            return OptionalInt.of(min(a, 0, a.length));
+        }
+        return chunks(a.length).map(c -> min(a, c * PARALLEL_THRESHOLD, end(a.length, c))).min();
+    }
+
+    static int min(int[] a, int from, int to) {
+        int m0 = Integer.MAX_VALUE;
+        int m1 = Integer.MAX_VALUE;
+        int i = from;
+        for (; i + 1 < to; i += 2) {
+            m0 = Math.min(m0, a[i]);
+            m1 = Math.min(m1, a[i + 1]);
+        }
+        if (i < to) {
+            m0 = Math.min(m0, a[i]);
+        }
+        return Math.min(m0, m1);
+    }
+
+    public static OptionalInt max(int[] a) {
+        if (a.length == 0) {
+            return OptionalInt.empty();
+        }
+        if (a.length < PARALLEL_THRESHOLD) {
+            return OptionalInt.of(max(a, 0, a.length));
+        }
+        return chunks(a.length).map(c -> max(a, c * PARALLEL_THRESHOLD, end(a.length, c))).max();
+    }
+
+    static int max(int[] a, int from, int to) {
+        int m0 = Integer.MIN_VALUE;
+        int m1 = Integer.MIN_VALUE;
+        int i = from;
+        for (; i + 1 < to; i += 2) {
+            m0 = Math.max(m0, a[i]);
+            m1 = Math.max(m1, a[i + 1]);
+        }
+        if (i < to) {
+            m0 = Math.max(m0, a[i]);
+        }
+        return Math.max(m0, m1);
+    }
+
+    public static OptionalLong min(long[] a) {
+        if (a.length == 0) {
+            return OptionalLong.empty();
+        }
+        return chunks(a.length).mapToLong(c -> {
+            long m = Long.MAX_VALUE;
+            for (int i = c * PARALLEL_THRESHOLD, to = end(a.length, c); i < to; i++) {
+                m = Math.min(m, a[i]);
+            }
+            return m;
+        }).min();
+    }
+
+    public static OptionalLong max(long[] a) {
+        if (a.length == 0) {
+            return OptionalLong.empty();
+        }
+        return chunks(a.length).mapToLong(c -> {
+            long m = Long.MIN_VALUE;
+            for (int i = c * PARALLEL_THRESHOLD, to = end(a.length, c); i < to; i++) {
+                m = Math.max(m, a[i]);
+            }
+            return m;
+        }).max();
+    }
+
+    public static OptionalDouble mean(int[] a) {
+        return a.length == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) sum(a) / a.length);
+    }
+
+    /**
+     * 和溢出 long 时改用 BigInteger 计算
+     */
+    public static OptionalDouble mean(long[] a) {
+        if (a.length == 0) {
+            return OptionalDouble.empty();
+        }
+        try {
+            return OptionalDouble.of((double) sum(a) / a.length);
+        } catch (ArithmeticException e) {
+            return OptionalDouble.of(sumAsBigInteger(a).doubleValue() / a.length);
+        }
+    }
+
+    public static OptionalDouble mean(double[] a) {
+        return a.length == 0 ? OptionalDouble.empty() : OptionalDouble.of(sum(a) / a.length);
+    }
+
+    //------------------------------------------------------------ 数值区间
+
+    /**
+     * from + (from + 1) + ... + to，溢出时抛出 ArithmeticException；to < from 时为 0
+     */
+    public static long sumRange(long from, long to) {
+        return sumRange(from, to, 1);
+    }
+
+    /**
+     * 等差数列 from, from + step, ... 中不超过 to（step 为负时不小于 to）的各项之和，溢出时抛出 ArithmeticException
+     */
+    public static long sumRange(long from, long to, long step) {
+        return sumRangeAsBigInteger(from, to, step).longValueExact();
+    }
+
+    /**
+     * 等差数列的精确和：项数 n = (to - from) / step + 1，和 = n * (首项 + 末项) / 2
+     */
+    public static BigInteger sumRangeAsBigInteger(long from, long to, long step) {
+        if (step == 0) {
+            throw new IllegalArgumentException("step must not be 0");
+        }
+        BigInteger first = BigInteger.valueOf(from);
+        BigInteger span = BigInteger.valueOf(to).subtract(first);
+        BigInteger s = BigInteger.valueOf(step);
+        if (span.signum() != 0 && span.signum() != s.signum()) {
+            return BigInteger.ZERO;
+        }
+        BigInteger n = span.divide(s).add(BigInteger.ONE);
+        BigInteger last = first.add(n.subtract(BigInteger.ONE).multiply(s));
+        return n.multiply(first.add(last)).shiftRight(1);
+    }
+
+    /**
+     * from * (from + 1) * ... * to 的精确值，to < from 时为 1
+     */
+    public static BigInteger productRange(long from, long to) {
+        if (to < from) {
+            return BigInteger.ONE;
+        }
+        if (from <= 0 && to >= 0) {
+            return BigInteger.ZERO;
+        }
+        return productRangeTree(from, to);
+    }
+
+    static BigInteger productRangeTree(long from, long to) {
+        if (to - from < 16) {
+            BigInteger p = BigInteger.ONE;
+            for (long i = from; i <= to; i++) {
+                p = p.multiply(BigInteger.valueOf(i));
+            }
+            return p;
+        }
+        long mid = from + ((to - from) >>> 1);
+        return productRangeTree(from, mid).multiply(productRangeTree(mid + 1, to));
+    }
+
+    //------------------------------------------------------------ 分块
+
+    /**
+     * 块的编号，按 PARALLEL_THRESHOLD 分块，并行
+     */
+    private static IntStream chunks(int length) {
+        return IntStream.range(0, (length + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD).parallel();
+    }
+
+    private static int end(int length, int chunk) {
+        return (int) Math.min(length, (long) (chunk + 1) * PARALLEL_THRESHOLD);
+    }
+}
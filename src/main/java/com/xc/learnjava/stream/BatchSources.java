@@ -0,0 +1,382 @@
+package com.xc.learnjava.stream;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按批从 BatchSupplier/LongBatchSupplier 拉取元素的流，替代 Stream.generate
+ * StreamTest.createStream、filterStream 中的 Stream.generate 每个元素调用一次 get()，数据源的每次调用开销无法分摊。
+ * 1.按需拉取：缓冲区取完才拉下一批，下游的 limit() 不再需要元素时就不会再拉；
+ * 2.批大小从 16 开始，每批翻倍，直到 batchSize，所以 limit(n) 最多多取约 n 个元素，不会因为批很大而多做很多无用的 I/O；
+ * 3.fill 返回 0 或负数时流结束，所以也可以表示有限的数据源；
+ * 4.parallel() 时 trySplit 把一整批交给其它线程，数据源本身只被一个线程调用；
+ * 5.prefetch 系列方法在后台守护线程中提前拉取，最多缓存 depth 批，队列满时后台线程等待（背压）；
+ *   后台线程的批大小同样从 16 开始翻倍；数据源结束或出错时后台线程自动退出，提前结束的流（如 limit()）应关闭
+ *   （try-with-resources）以立即停止后台线程，没有关闭的流被回收后后台线程也会退出。
+ *
+ * @author joey
+ */
+public final class BatchSources {
+
+    /**
+     * 第一批的大小
+     */
+    static final int INITIAL_BATCH = 16;
+
+    private static final AtomicInteger PREFETCH_THREADS = new AtomicInteger();
+
+    private BatchSources() {
+    }
+
+    public static <T> Stream<T> stream(BatchSupplier<? extends T> supplier, int batchSize) {
+        checkBatchSize(batchSize);
+        return StreamSupport.stream(new BatchSpliterator<T>(max -> fillList(supplier, max), batchSize), false);
+    }
+
+    public static LongStream longs(LongBatchSupplier supplier, int batchSize) {
+        checkBatchSize(batchSize);
+        return StreamSupport.longStream(new LongBatchSpliterator(max -> fillLongs(supplier, max), batchSize), false);
+    }
+
+    /**
+     * 后台线程提前拉取，最多缓存 depth 批；关闭流时停止后台线程
+     */
+    public static <T> Stream<T> prefetch(BatchSupplier<? extends T> supplier, int batchSize, int depth) {
+        checkBatchSize(batchSize);
+        Prefetcher<List<T>> prefetcher = new Prefetcher<>(max -> fillList(supplier, max), batchSize, depth);
+        return StreamSupport.stream(new BatchSpliterator<T>(prefetcher, batchSize), false).onClose(prefetcher::close);
+    }
+
+    public static LongStream prefetchLongs(LongBatchSupplier supplier, int batchSize, int depth) {
+        checkBatchSize(batchSize);
+        Prefetcher<LongBatch> prefetcher = new Prefetcher<>(max -> fillLongs(supplier, max), batchSize, depth);
+        return StreamSupport.longStream(new LongBatchSpliterator(prefetcher, batchSize), false).onClose(prefetcher::close);
+    }
+
+    private static void checkBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+    }
+
+    /**
+     * 拉取一批，数据源结束时返回 null
+     */
+    private static <T> List<T> fillList(BatchSupplier<? extends T> supplier, int max) {
+        List<T> batch = new ArrayList<>(max);
+        int n = supplier.fill(batch, max);
+        return n <= 0 || batch.isEmpty() ? null : batch;
+    }
+
+    private static LongBatch fillLongs(LongBatchSupplier supplier, int max) {
+        long[] values = new long[max];
+        int n = supplier.fill(values, max);
+        return n <= 0 ? null : new LongBatch(values, Math.min(n, max));
+    }
+
+    static final class LongBatch {
+
+        final long[] values;
+        final int size;
+
+        LongBatch(long[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 批的来源：next(max) 返回最多 max 个元素的一批，结束时返回 null
+     */
+    interface Batches<B> {
+
+        B next(int max);
+    }
+
+    static final class BatchSpliterator<T> implements Spliterator<T> {
+
+        private final Batches<List<T>> batches;
+        private final int batchSize;
+        private int nextSize;
+        private List<T> buffer;
+        private int position;
+        private boolean exhausted;
+
+        BatchSpliterator(Batches<List<T>> batches, int batchSize) {
+            this.batches = batches;
+            this.batchSize = batchSize;
+            this.nextSize = Math.min(INITIAL_BATCH, batchSize);
+        }
+
+        /**
+         * 缓冲区为空时拉取下一批，返回是否还有元素
+         */
+        private boolean refill() {
+            if (buffer != null && position < buffer.size()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            buffer = batches.next(nextSize);
+            position = 0;
+            nextSize = (int) Math.min(batchSize, nextSize * 2L);
+            if (buffer == null) {
+                exhausted = true;
+                return false;
+            }
+            return position < buffer.size();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!refill()) {
+                return false;
+            }
+            action.accept(buffer.get(position++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (!refill()) {
+                return null;
+            }
+            Object[] batch = buffer.subList(position, buffer.size()).toArray();
+            position = buffer.size();
+            return Spliterators.spliterator(batch, ORDERED);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+    }
+
+    static final class LongBatchSpliterator implements Spliterator.OfLong {
+
+        private final Batches<LongBatch> batches;
+        private final int batchSize;
+        private int nextSize;
+        private LongBatch buffer;
+        private int position;
+        private boolean exhausted;
+
+        LongBatchSpliterator(Batches<LongBatch> batches, int batchSize) {
+            this.batches = batches;
+            this.batchSize = batchSize;
+            this.nextSize = Math.min(INITIAL_BATCH, batchSize);
+        }
+
+        private boolean refill() {
+            if (buffer != null && position < buffer.size) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            buffer = batches.next(nextSize);
+            position = 0;
+            nextSize = (int) Math.min(batchSize, nextSize * 2L);
+            if (buffer == null) {
+                exhausted = true;
+                return false;
+            }
+            return position < buffer.size;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (!refill()) {
+                return false;
+            }
+            action.accept(buffer.values[position++]);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            if (!refill()) {
+                return null;
+            }
+            Spliterator.OfLong batch = Spliterators.spliterator(buffer.values, position, buffer.size, ORDERED);
+            position = buffer.size;
+            return batch;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+    }
+
+    /**
+     * 在后台线程中提前拉取，第一次取元素时才启动线程；取到结束标记或异常时自动关闭
+     */
+    static final class Prefetcher<B> implements Batches<B> {
+
+        /**
+         * 数据源结束的标记
+         */
+        static final Object END = new Object();
+
+        private final Producer<B> producer;
+        private volatile Thread thread;
+        private boolean finished;
+
+        Prefetcher(IntFunction<B> source, int batchSize, int depth) {
+            if (depth <= 0) {
+                throw new IllegalArgumentException("depth must be positive: " + depth);
+            }
+            this.producer = new Producer<>(source, batchSize, new ArrayBlockingQueue<>(depth), this);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized B next(int max) {
+            if (finished) {
+                return null;
+            }
+            if (producer.closed) {
+                throw new CancellationException("stream closed");
+            }
+            if (thread == null) {
+                Thread t = new Thread(producer, "batch-prefetch-" + PREFETCH_THREADS.incrementAndGet());
+                t.setDaemon(true);
+                thread = t;
+                t.start();
+            }
+            Object item;
+            try {
+                item = producer.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("interrupted while waiting for the next batch");
+            }
+            if (producer.closed) {
+                throw new CancellationException("stream closed");
+            }
+            if (item == END || item instanceof Throwable) {
+                finished = true;
+                close();
+                if (item instanceof RuntimeException) {
+                    throw (RuntimeException) item;
+                }
+                if (item instanceof Error) {
+                    throw (Error) item;
+                }
+                return null;
+            }
+            return (B) item;
+        }
+
+        /**
+         * 不加锁，等待下一批的线程阻塞在 take() 时也能关闭：
+         * 清空队列后放入 END 唤醒它，被唤醒的线程看到 closed 后抛出 CancellationException
+         */
+        void close() {
+            producer.closed = true;
+            Thread t = thread;
+            if (t != null) {
+                t.interrupt();
+            }
+            //生产线程可能在清空之后又放入一批，放不进去就再清一次
+            do {
+                producer.queue.clear();
+            } while (!producer.queue.offer(END));
+        }
+    }
+
+    /**
+     * 后台线程的任务。只弱引用 Prefetcher：没有关闭就被丢弃的流（例如 limit() 之后没有 close）被回收后，
+     * 后台线程在下一次等待队列超时时发现并退出，不会永远阻塞
+     */
+    static final class Producer<B> implements Runnable {
+
+        /**
+         * 队列满时每隔这么久检查一次流是否已关闭或已被回收
+         */
+        static final long OFFER_TIMEOUT_MILLIS = 100;
+
+        private final IntFunction<B> source;
+        private final int batchSize;
+        final BlockingQueue<Object> queue;
+        private final WeakReference<Prefetcher<B>> owner;
+        volatile boolean closed;
+
+        Producer(IntFunction<B> source, int batchSize, BlockingQueue<Object> queue, Prefetcher<B> owner) {
+            this.source = source;
+            this.batchSize = batchSize;
+            this.queue = queue;
+            this.owner = new WeakReference<>(owner);
+        }
+
+        @Override
+        public void run() {
+            //与不预取时一样，批大小从 INITIAL_BATCH 开始翻倍，流刚开始就被 limit() 截断时少做无用的拉取
+            int size = Math.min(INITIAL_BATCH, batchSize);
+            try {
+                while (alive()) {
+                    B batch = source.apply(size);
+                    size = (int) Math.min(batchSize, size * 2L);
+                    if (batch == null) {
+                        offer(Prefetcher.END);
+                        return;
+                    }
+                    if (!offer(batch)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                //关闭时被中断
+            } catch (RuntimeException | Error e) {
+                //排在已经拉取的批之后
+                try {
+                    offer(e);
+                } catch (InterruptedException ignored) {
+                    //关闭时被中断
+                }
+            }
+        }
+
+        private boolean alive() {
+            return !closed && owner.get() != null;
+        }
+
+        /**
+         * 放入队列，流已关闭或已被回收时放弃并返回 false；数据源吞掉了中断时也能靠超时退出
+         */
+        private boolean offer(Object item) throws InterruptedException {
+            while (alive()) {
+                if (queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.xc.learnjava.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 一次可以提供一批元素的 Supplier
+ * Stream.generate 对每个元素调用一次 get()，数据源每次调用都有固定开销（I/O、加锁等）时，可以实现 fill 一次取一批。
+ * fill 返回 0 或负数表示数据源已经结束。
+ *
+ * @author joey
+ */
+@FunctionalInterface
+public interface BatchSupplier<T> extends Supplier<T> {
+
+    /**
+     * 向 out 中追加最多 max 个元素，返回追加的个数；返回 0 或负数表示没有更多元素
+     */
+    int fill(List<? super T> out, int max);
+
+    /**
+     * 取一个元素，没有更多元素时抛出 NoSuchElementException
+     */
+    @Override
+    default T get() {
+        List<T> one = new ArrayList<>(1);
+        if (fill(one, 1) <= 0 || one.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return one.get(0);
+    }
+
+    /**
+     * 把普通的 Supplier 包装为 BatchSupplier，每批连续调用 max 次 get()
+     */
+    static <T> BatchSupplier<T> of(Supplier<? extends T> supplier) {
+        Objects.requireNonNull(supplier, "supplier");
+        return (out, max) -> {
+            for (int i = 0; i < max; i++) {
+                out.add(supplier.get());
+            }
+            return max;
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.xc.learnjava.stream;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * long 元素的布隆过滤器（Bloom filter），可以多线程同时使用
+ * 位数 m = -n·ln(p) / (ln2)^2，哈希函数个数 k = m/n·ln2，其中 n 为预计元素个数，p 为误判率；
+ * 元素超过 n 之后误判率会逐渐升高。add 返回 false 表示"可能已经存在"，返回 true 表示一定是第一次出现。
+ *
+ * @author joey
+ */
+public final class BloomFilter {
+
+    /**
+     * 锁的个数，同一个 key 总是落在同一把锁上
+     */
+    static final int LOCK_STRIPES = 1 << 8;
+
+    private final AtomicLongArray bits;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final long bitCount;
+    private final int hashes;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+        }
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (m + 63) >>> 6);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bloom filter too large: " + m + " bits");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 加入 key，有任意一位从 0 变为 1 时返回 true
+     * 同一个 key 的 add 按 key 的哈希分段加锁串行执行，多个线程同时加入同一个新 key 时只有一个返回 true；
+     * 不同 key 可能共用同一个 long，所以置位仍然用 CAS
+     */
+    public boolean add(long key) {
+        long h1 = OffHeapLongSet.mix(key);
+        long h2 = OffHeapLongSet.mix(h1) | 1;
+        synchronized (locks[(int) (h1 >>> 32) & (LOCK_STRIPES - 1)]) {
+            return set(h1, h2);
+        }
+    }
+
+    private boolean set(long h1, long h2) {
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long m = 1L << bit;
+            long old = bits.get(word);
+            while ((old & m) == 0) {
+                if (bits.compareAndSet(word, old, old | m)) {
+                    changed = true;
+                    break;
+                }
+                old = bits.get(word);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * key 是否可能存在
+     */
+    public boolean mightContain(long key) {
+        long h1 = OffHeapLongSet.mix(key);
+        long h2 = OffHeapLongSet.mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 位数组占用的字节数
+     */
+    public long bytes() {
+        return bitCount >>> 3;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+}
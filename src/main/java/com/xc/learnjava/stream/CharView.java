@@ -0,0 +1,101 @@
+package com.xc.learnjava.stream;
+
+/**
+ * 原始字符序列上 [start, end) 的只读视图，不复制字符
+ * 1.equals/hashCode 按内容计算，hashCode 与 String.hashCode 的算法相同，可以直接作为 HashMap 的 key；
+ * 2.只与 CharView 相等，不与 String 相等（否则无法满足 equals 的对称性）；
+ * 3.toString() 才会真正创建字符串。
+ * 视图持有原始序列的引用，原始序列如果是可变的（如 StringBuilder），修改后视图的内容也会变化。
+ *
+ * @author joey
+ */
+public final class CharView implements CharSequence, Comparable<CharView> {
+
+    private final CharSequence source;
+    private final int start;
+    private final int end;
+    private int hash;
+
+    public CharView(CharSequence source, int start, int end) {
+        if (start < 0 || end > source.length() || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of length " + source.length());
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index " + index + " of length " + (end - start));
+        }
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharView subSequence(int from, int to) {
+        if (from < 0 || to > end - start || from > to) {
+            throw new IndexOutOfBoundsException("[" + from + ", " + to + ") of length " + (end - start));
+        }
+        return new CharView(source, start + from, start + to);
+    }
+
+    /**
+     * 与 s 的内容是否相同
+     */
+    public boolean contentEquals(CharSequence s) {
+        int n = end - start;
+        if (s.length() != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (source.charAt(start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || o instanceof CharView && contentEquals((CharView) o);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (int i = start; i < end; i++) {
+                h = 31 * h + source.charAt(i);
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public int compareTo(CharView o) {
+        int n = Math.min(length(), o.length());
+        for (int i = 0; i < n; i++) {
+            int c = charAt(i) - o.charAt(i);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length() - o.length();
+    }
+
+    @Override
+    public String toString() {
+        if (source instanceof String) {
+            return ((String) source).substring(start, end);
+        }
+        return new StringBuilder(end - start).append(source, start, end).toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.xc.learnjava.stream;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongPredicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 内存可控的去重操作，用来替代 Stream.distinct()
+ * StreamTest.OtherOppStream 中的 distinct() 把见过的每个元素都放进堆上的 LinkedHashSet，元素多了就会 OOM。
+ * 去重依据是一个 long key（比如事件 id），两种模式：
+ * 1.exact：精确去重，key 保存在堆外的开放寻址哈希表（OffHeapLongSet）里，可以设置内存上限，超过时抛出 IllegalStateException；
+ * 2.approximate：布隆过滤器，内存固定，按给定的误判率可能把少量第一次出现的元素当作重复丢掉，不会放过重复的元素。
+ * 默认保持出现顺序（保留每个 key 第一次出现的元素）：去重在一个顺序的流水线中完成，返回的是包装了它的新流，
+ * 之后即使调用 parallel() 也不会把去重切分给多个线程，仍然保留第一次出现的元素；
+ * 调用 unordered() 后不再保证保留哪一次出现，可以完全并行，精确模式按哈希分段加锁。
+ *
+ * 对象流按 ToLongFunction 的结果去重，若 key 是对象的 64 位哈希，则不同对象的哈希碰撞也会被当作重复。
+ *
+ * @author joey
+ */
+public final class Distinct {
+
+    /**
+     * 精确模式的默认内存上限
+     */
+    static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+    private final boolean approximate;
+    private final long expected;
+    private final double falsePositiveRate;
+    private final long maxBytes;
+    private final boolean ordered;
+
+    private Distinct(boolean approximate, long expected, double falsePositiveRate, long maxBytes, boolean ordered) {
+        if (expected <= 0) {
+            throw new IllegalArgumentException("expected must be positive: " + expected);
+        }
+        this.approximate = approximate;
+        this.expected = expected;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBytes = maxBytes;
+        this.ordered = ordered;
+    }
+
+    /**
+     * 精确去重，expected 为预计的不同元素个数，只影响初始容量
+     */
+    public static Distinct exact(long expected) {
+        return new Distinct(false, expected, 0, DEFAULT_MAX_BYTES, true);
+    }
+
+    /**
+     * 近似去重，expected 为预计的不同元素个数，falsePositiveRate 为误判率
+     */
+    public static Distinct approximate(long expected, double falsePositiveRate) {
+        return new Distinct(true, expected, falsePositiveRate, DEFAULT_MAX_BYTES, true);
+    }
+
+    /**
+     * 精确模式的堆外内存上限
+     */
+    public Distinct maxBytes(long maxBytes) {
+        return new Distinct(approximate, expected, falsePositiveRate, maxBytes, ordered);
+    }
+
+    /**
+     * 不保证保留哪一次出现的元素，允许并行
+     */
+    public Distinct unordered() {
+        return new Distinct(approximate, expected, falsePositiveRate, maxBytes, false);
+    }
+
+    public LongStream apply(LongStream stream) {
+        LongPredicate firstSeen = newFilter();
+        if (!ordered) {
+            return stream.unordered().filter(firstSeen);
+        }
+        //顺序流水线的 spliterator 不会再切分，包装成新流后调用方的 parallel() 影响不到去重
+        return StreamSupport.longStream(stream.sequential().filter(firstSeen).spliterator(), false).onClose(stream::close);
+    }
+
+    public <T> Stream<T> apply(Stream<T> stream, ToLongFunction<? super T> key) {
+        LongPredicate firstSeen = newFilter();
+        if (!ordered) {
+            return stream.unordered().filter(t -> firstSeen.test(key.applyAsLong(t)));
+        }
+        return StreamSupport.stream(stream.sequential().filter(t -> firstSeen.test(key.applyAsLong(t))).spliterator(), false)
+                .onClose(stream::close);
+    }
+
+    /**
+     * 新建一个"第一次出现"的判断，线程安全，每次调用都从空集合开始
+     */
+    public LongPredicate newFilter() {
+        if (approximate) {
+            return new BloomFilter(expected, falsePositiveRate)::add;
+        }
+        if (ordered) {
+            OffHeapLongSet set = new OffHeapLongSet(expected, maxBytes);
+            return key -> {
+                synchronized (set) {
+                    return set.add(key);
+                }
+            };
+        }
+        return new StripedSet(expected, maxBytes)::add;
+    }
+
+    /**
+     * 按哈希的高位分段，每段一把锁
+     */
+    static final class StripedSet {
+
+        private final OffHeapLongSet[] segments;
+
+        StripedSet(long expected, long maxBytes) {
+            int n = Integer.highestOneBit(Math.max(1, ForkJoinPool.getCommonPoolParallelism() * 4 - 1)) << 1;
+            segments = new OffHeapLongSet[n];
+            for (int i = 0; i < n; i++) {
+                segments[i] = new OffHeapLongSet(Math.max(1, expected / n), Math.max(maxBytes / n, 16 * Long.BYTES * 2));
+            }
+        }
+
+        boolean add(long key) {
+            OffHeapLongSet segment = segments[(int) (OffHeapLongSet.mix(key) >>> 32) & (segments.length - 1)];
+            synchronized (segment) {
+                return segment.add(key);
+            }
+        }
+    }
+}
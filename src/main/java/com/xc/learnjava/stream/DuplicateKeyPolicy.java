@@ -0,0 +1,61 @@
+package com.xc.learnjava.stream;
+
+import java.util.Map;
+
+/**
+ * 收集成 Map 时遇到重复 key 的处理方式
+ * 1.FAIL：与 Collectors.toMap 相同，抛出 IllegalStateException
+ * 2.FIRST_WINS：保留先出现的值
+ * 3.LAST_WINS：保留后出现的值，与 HashMap.putAll 的效果相同
+ * 顺序收集器中"先后"指流中的出现顺序；并发收集器（CONCURRENT|UNORDERED）中指到达的先后
+ *
+ * @author joey
+ */
+public enum DuplicateKeyPolicy {
+
+    FAIL,
+    FIRST_WINS,
+    LAST_WINS;
+
+    /**
+     * 同一个 key 的旧值 old 与新值 now 冲突时，应保留的值
+     */
+    public <K, V> V resolve(K key, V old, V now) {
+        switch (this) {
+            case FIRST_WINS:
+                return old;
+            case LAST_WINS:
+                return now;
+            default:
+                throw new IllegalStateException(String.format("Duplicate key %s (attempted merging values %s and %s)", key, old, now));
+        }
+    }
+
+    /**
+     * 按当前策略把 key=value 放入 map
+     */
+    public <K, V> void put(Map<K, V> map, K key, V value) {
+        if (this == LAST_WINS) {
+            map.put(key, value);
+            return;
+        }
+        V old = map.putIfAbsent(key, value);
+        if (old != null) {
+            resolve(key, old, value);
+        }
+    }
+
+    /**
+     * 把 from 合并进 into，from 中的元素视为出现在 into 之后
+     */
+    public <K, V> Map<K, V> merge(Map<K, V> into, Map<K, V> from) {
+        if (this == LAST_WINS) {
+            into.putAll(from);
+        } else {
+            for (Map.Entry<K, V> e : from.entrySet()) {
+                put(into, e.getKey(), e.getValue());
+            }
+        }
+        return into;
+    }
+}
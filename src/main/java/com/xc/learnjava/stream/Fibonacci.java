@@ -0,0 +1,312 @@
+package com.xc.learnjava.stream;
+
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 可并行的斐波拉契数列（Fibonacci），F(0) = 0, F(1) = 1, F(2) = 1, ...
+ * StreamTest.FibSupplier 只能一项一项往后推，到第 N 项要 O(N)，也无法 parallel()；
+ * 这里用快速倍增（fast doubling）在 O(log N) 内直接算出任意一项：
+ *   F(2k)   = F(k) * (2F(k+1) - F(k))
+ *   F(2k+1) = F(k)^2 + F(k+1)^2
+ * 序列按下标区间切分，每个分片先跳到自己的起点，之后再逐项相加，每项 O(1)。
+ *
+ * 1.long 精确模式：F(92) 是 long 能表示的最大一项，下标超过 92 抛出 ArithmeticException
+ * 2.取模模式：结果对 mod 取模，mod 不超过 Integer.MAX_VALUE，保证中间乘积不溢出
+ * 3.BigInteger 模式：没有上限
+ *
+ * @author joey
+ */
+public final class Fibonacci {
+
+    /**
+     * long 能精确表示的最大下标
+     */
+    public static final int MAX_LONG_INDEX = 92;
+
+    private Fibonacci() {
+    }
+
+    /**
+     * 精确的 F(n)，n 不能超过 MAX_LONG_INDEX
+     */
+    public static long get(long n) {
+        checkLongIndex(n);
+        return pair(n, 0)[0];
+    }
+
+    /**
+     * F(n) mod m
+     */
+    public static long get(long n, long mod) {
+        checkIndex(n);
+        checkMod(mod);
+        return pair(n, mod)[0];
+    }
+
+    /**
+     * 精确的 F(n)，适用于任意下标
+     */
+    public static BigInteger getExact(long n) {
+        checkIndex(n);
+        return bigPair(n)[0];
+    }
+
+    /**
+     * 下标在 [fromIndex, toIndex) 内的各项，toIndex 不能超过 MAX_LONG_INDEX + 1
+     */
+    public static LongStream longs(long fromIndex, long toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (toIndex > MAX_LONG_INDEX + 1) {
+            throw new ArithmeticException("F(" + (toIndex - 1) + ") overflows long, use bigIntegers() or a modulus");
+        }
+        return StreamSupport.longStream(new LongFibSpliterator(fromIndex, toIndex, 0), false);
+    }
+
+    /**
+     * 下标在 [fromIndex, toIndex) 内的各项对 mod 取模
+     */
+    public static LongStream longs(long fromIndex, long toIndex, long mod) {
+        checkRange(fromIndex, toIndex);
+        checkMod(mod);
+        return StreamSupport.longStream(new LongFibSpliterator(fromIndex, toIndex, mod), false);
+    }
+
+    /**
+     * 下标在 [fromIndex, toIndex) 内的各项，用 BigInteger 表示
+     */
+    public static Stream<BigInteger> bigIntegers(long fromIndex, long toIndex) {
+        checkRange(fromIndex, toIndex);
+        return StreamSupport.stream(new BigFibSpliterator(fromIndex, toIndex), false);
+    }
+
+    /**
+     * 快速倍增求 {F(n), F(n+1)}
+     * mod 为 0 时按 long 自然溢出（即模 2^64）计算，n <= 92 时 F(n) 就是精确值
+     */
+    static long[] pair(long n, long mod) {
+        long a = 0;
+        long b = 1;
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            long c;
+            long d;
+            if (mod == 0) {
+                c = a * (2 * b - a);
+                d = a * a + b * b;
+            } else {
+                c = a * ((2 * b - a + mod) % mod) % mod;
+                d = (a * a % mod + b * b % mod) % mod;
+            }
+            if (((n >>> bit) & 1) != 0) {
+                a = d;
+                b = mod == 0 ? c + d : (c + d) % mod;
+            } else {
+                a = c;
+                b = d;
+            }
+        }
+        return new long[]{a, b};
+    }
+
+    static BigInteger[] bigPair(long n) {
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE;
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+            BigInteger c = a.multiply(b.shiftLeft(1).subtract(a));
+            BigInteger d = a.multiply(a).add(b.multiply(b));
+            if (((n >>> bit) & 1) != 0) {
+                a = d;
+                b = c.add(d);
+            } else {
+                a = c;
+                b = d;
+            }
+        }
+        return new BigInteger[]{a, b};
+    }
+
+    private static void checkIndex(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("index must not be negative: " + n);
+        }
+    }
+
+    private static void checkLongIndex(long n) {
+        checkIndex(n);
+        if (n > MAX_LONG_INDEX) {
+            throw new ArithmeticException("F(" + n + ") overflows long, use getExact() or a modulus");
+        }
+    }
+
+    private static void checkRange(long fromIndex, long toIndex) {
+        checkIndex(fromIndex);
+        if (toIndex < fromIndex) {
+            throw new IllegalArgumentException("toIndex < fromIndex: " + toIndex + " < " + fromIndex);
+        }
+    }
+
+    private static void checkMod(long mod) {
+        if (mod <= 0 || mod > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("mod must be in [1, " + Integer.MAX_VALUE + "]: " + mod);
+        }
+    }
+
+    /**
+     * 按下标切分的 long 序列，a、b 是当前下标 from 处的 {F(from), F(from+1)}，第一次遍历时才计算
+     */
+    static final class LongFibSpliterator implements Spliterator.OfLong {
+
+        private long from;
+        private final long to;
+        private final long mod;
+        private boolean positioned;
+        private long a;
+        private long b;
+
+        LongFibSpliterator(long from, long to, long mod) {
+            this.from = from;
+            this.to = to;
+            this.mod = mod;
+        }
+
+        private void position() {
+            if (!positioned) {
+                long[] p = pair(from, mod);
+                a = p[0];
+                b = p[1];
+                positioned = true;
+            }
+        }
+
+        private void step() {
+            long next = mod == 0 ? a + b : (a + b) % mod;
+            a = b;
+            b = next;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (from >= to) {
+                return false;
+            }
+            position();
+            action.accept(a);
+            step();
+            from++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            if (from >= to) {
+                return;
+            }
+            position();
+            long x = a;
+            long y = b;
+            long hi = to;
+            for (long i = from; i < hi; i++) {
+                action.accept(x);
+                long next = mod == 0 ? x + y : (x + y) % mod;
+                x = y;
+                y = next;
+            }
+            a = x;
+            b = y;
+            from = hi;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long mid = from + ((to - from) >>> 1);
+            if (mid <= from) {
+                return null;
+            }
+            LongFibSpliterator prefix = new LongFibSpliterator(from, mid, mod);
+            prefix.positioned = positioned;
+            prefix.a = a;
+            prefix.b = b;
+            from = mid;
+            positioned = false;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    /**
+     * 与 LongFibSpliterator 相同，元素为 BigInteger
+     */
+    static final class BigFibSpliterator implements Spliterator<BigInteger> {
+
+        private long from;
+        private final long to;
+        private BigInteger a;
+        private BigInteger b;
+
+        BigFibSpliterator(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void position() {
+            if (a == null) {
+                BigInteger[] p = bigPair(from);
+                a = p[0];
+                b = p[1];
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BigInteger> action) {
+            if (from >= to) {
+                return false;
+            }
+            position();
+            action.accept(a);
+            BigInteger next = a.add(b);
+            a = b;
+            b = next;
+            from++;
+            return true;
+        }
+
+        @Override
+        public Spliterator<BigInteger> trySplit() {
+            long mid = from + ((to - from) >>> 1);
+            if (mid <= from) {
+                return null;
+            }
+            BigFibSpliterator prefix = new BigFibSpliterator(from, mid);
+            prefix.a = a;
+            prefix.b = b;
+            from = mid;
+            a = null;
+            b = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
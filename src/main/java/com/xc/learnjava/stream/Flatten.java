@@ -0,0 +1,262 @@
+package com.xc.learnjava.stream;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 把二维基本类型数组（或分块的缓冲区）直接展开成 IntStream/LongStream
+ * StreamTest.OtherOppStream 中 s.flatMap(list -> list.stream()) 每个整数都要装箱，每个内层 List 还要新建一个 Stream。
+ * 这里整个展开过程只有一个 Spliterator：
+ * 1.事先求出每块的起始下标（前缀和），流的大小是确定的（SIZED|SUBSIZED）；
+ * 2.切分时优先在块的边界上切，只剩一块时才从块的中间切开；
+ * 3.lengths 用于只填充了一部分的块，第 i 块只取前 lengths[i] 个元素。
+ *
+ * @author joey
+ */
+public final class Flatten {
+
+    private Flatten() {
+    }
+
+    public static IntStream ints(int[][] chunks) {
+        return ints(chunks, null);
+    }
+
+    public static IntStream ints(List<int[]> chunks) {
+        return ints(chunks.toArray(new int[0][]), null);
+    }
+
+    /**
+     * 第 i 块只取前 lengths[i] 个元素
+     */
+    public static IntStream ints(int[][] chunks, int[] lengths) {
+        long[] starts = starts(chunks.length, i -> chunks[i].length, lengths);
+        return StreamSupport.intStream(new IntChunkSpliterator(chunks, starts, 0, starts[chunks.length]), false);
+    }
+
+    public static LongStream longs(long[][] chunks) {
+        return longs(chunks, null);
+    }
+
+    public static LongStream longs(List<long[]> chunks) {
+        return longs(chunks.toArray(new long[0][]), null);
+    }
+
+    /**
+     * 第 i 块只取前 lengths[i] 个元素
+     */
+    public static LongStream longs(long[][] chunks, int[] lengths) {
+        long[] starts = starts(chunks.length, i -> chunks[i].length, lengths);
+        return StreamSupport.longStream(new LongChunkSpliterator(chunks, starts, 0, starts[chunks.length]), false);
+    }
+
+    /**
+     * 每块的起始下标，最后一项为元素总数
+     */
+    static long[] starts(int count, IntUnaryOperator capacity, int[] lengths) {
+        if (lengths != null && lengths.length != count) {
+            throw new IllegalArgumentException("lengths.length " + lengths.length + " != chunk count " + count);
+        }
+        long[] starts = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            int length = lengths == null ? capacity.applyAsInt(i) : lengths[i];
+            if (length < 0 || length > capacity.applyAsInt(i)) {
+                throw new IllegalArgumentException("length " + length + " out of chunk " + i + " of size " + capacity.applyAsInt(i));
+            }
+            starts[i + 1] = starts[i] + length;
+        }
+        return starts;
+    }
+
+    /**
+     * 全局下标 index 所在的块
+     */
+    static int chunkOf(long[] starts, long index) {
+        int i = Arrays.binarySearch(starts, index);
+        if (i < 0) {
+            return -i - 2;
+        }
+        //跳过空块，落到 index 真正所在的块
+        while (i + 1 < starts.length && starts[i + 1] == index) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 在 (from, to) 之间选一个切分点：离中点最近的块边界，没有时取中点
+     */
+    static long splitPoint(long[] starts, long from, long to) {
+        long mid = from + ((to - from) >>> 1);
+        if (mid <= from) {
+            return -1;
+        }
+        int c = chunkOf(starts, mid);
+        long left = starts[c];
+        long right = starts[c + 1];
+        boolean leftOk = left > from;
+        boolean rightOk = right < to;
+        if (leftOk && (!rightOk || mid - left <= right - mid)) {
+            return left;
+        }
+        if (rightOk) {
+            return right;
+        }
+        return mid;
+    }
+
+    static final class IntChunkSpliterator implements Spliterator.OfInt {
+
+        private final int[][] chunks;
+        private final long[] starts;
+        private long from;
+        private final long to;
+        /**
+         * from 所在的块，-1 表示还没有定位；前进时顺序移到下一块，不必每次二分查找
+         */
+        private int chunk = -1;
+
+        IntChunkSpliterator(int[][] chunks, long[] starts, long from, long to) {
+            this.chunks = chunks;
+            this.starts = starts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (from >= to) {
+                return false;
+            }
+            int c = chunk < 0 ? chunkOf(starts, from) : chunk;
+            //当前块已经取完，跳过空块
+            while (from >= starts[c + 1]) {
+                c++;
+            }
+            chunk = c;
+            action.accept(chunks[c][(int) (from - starts[c])]);
+            from++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (from >= to) {
+                return;
+            }
+            long hi = to;
+            for (int c = chunkOf(starts, from); c < chunks.length && starts[c] < hi; c++) {
+                int[] chunk = chunks[c];
+                int lo = (int) (Math.max(from, starts[c]) - starts[c]);
+                int end = (int) (Math.min(hi, starts[c + 1]) - starts[c]);
+                for (int i = lo; i < end; i++) {
+                    action.accept(chunk[i]);
+                }
+            }
+            from = hi;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            long at = splitPoint(starts, from, to);
+            if (at < 0) {
+                return null;
+            }
+            IntChunkSpliterator prefix = new IntChunkSpliterator(chunks, starts, from, at);
+            from = at;
+            chunk = -1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
+    static final class LongChunkSpliterator implements Spliterator.OfLong {
+
+        private final long[][] chunks;
+        private final long[] starts;
+        private long from;
+        private final long to;
+        /**
+         * from 所在的块，-1 表示还没有定位；前进时顺序移到下一块，不必每次二分查找
+         */
+        private int chunk = -1;
+
+        LongChunkSpliterator(long[][] chunks, long[] starts, long from, long to) {
+            this.chunks = chunks;
+            this.starts = starts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (from >= to) {
+                return false;
+            }
+            int c = chunk < 0 ? chunkOf(starts, from) : chunk;
+            //当前块已经取完，跳过空块
+            while (from >= starts[c + 1]) {
+                c++;
+            }
+            chunk = c;
+            action.accept(chunks[c][(int) (from - starts[c])]);
+            from++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            if (from >= to) {
+                return;
+            }
+            long hi = to;
+            for (int c = chunkOf(starts, from); c < chunks.length && starts[c] < hi; c++) {
+                long[] chunk = chunks[c];
+                int lo = (int) (Math.max(from, starts[c]) - starts[c]);
+                int end = (int) (Math.min(hi, starts[c + 1]) - starts[c]);
+                for (int i = lo; i < end; i++) {
+                    action.accept(chunk[i]);
+                }
+            }
+            from = hi;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long at = splitPoint(starts, from, to);
+            if (at < 0) {
+                return null;
+            }
+            LongChunkSpliterator prefix = new LongChunkSpliterator(chunks, starts, from, at);
+            from = at;
+            chunk = -1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+}
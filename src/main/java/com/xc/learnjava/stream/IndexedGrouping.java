@@ -0,0 +1,194 @@
+package com.xc.learnjava.stream;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * 适用于 key 取值少且稠密的分组收集器（首字母、枚举序号、字节桶等）
+ * StreamTest.outputStream 中 Collectors.groupingBy(s -> s.substring(0, 1), ...) 每个元素都要截取一个子串，再计算 hash 放进 HashMap。
+ * 这里把 key 直接映射为数组下标：
+ * 1.分组保存在按下标索引的数组里，不做 hash，也不为 key 创建对象；
+ * 2.parallel() 时每个线程有自己的数组，合并时逐个下标调用下游收集器的 combiner，保持出现顺序；
+ * 3.支持任意下游收集器，默认为 Collectors.toList()。
+ *
+ * @author joey
+ */
+public final class IndexedGrouping {
+
+    /**
+     * groupingByFirstChar 用数组保存的首字符范围（ASCII），其它首字符放到溢出的 HashMap 里
+     */
+    static final int ASCII = 128;
+
+    private IndexedGrouping() {
+    }
+
+    /**
+     * 按 index 分组，index 的取值范围为 [0, size)
+     */
+    public static <T> Collector<T, ?, IndexedGroups<List<T>>> groupingByIndex(int size, ToIntFunction<? super T> index) {
+        return groupingByIndex(size, index, Collectors.toList());
+    }
+
+    /**
+     * 按 index 分组，每组再交给下游收集器
+     */
+    public static <T, A, D> Collector<T, ?, IndexedGroups<D>> groupingByIndex(int size, ToIntFunction<? super T> index,
+                                                                              Collector<? super T, A, D> downstream) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        BinaryOperator<A> combiner = downstream.combiner();
+        Function<A, D> finisher = downstream.finisher();
+        return Collector.of(
+                () -> new Slots<A>(size),
+                (slots, t) -> {
+                    int i = index.applyAsInt(t);
+                    if (i < 0 || i >= size) {
+                        throw new IllegalArgumentException("key index " + i + " out of range [0, " + size + ") for " + t);
+                    }
+                    accumulator.accept(slots.slot(i, supplier), t);
+                },
+                (left, right) -> left.merge(right, combiner),
+                slots -> new IndexedGroups<D>(slots.finish(finisher)));
+    }
+
+    /**
+     * 按字节分组，bucket 取低 8 位
+     */
+    public static <T> Collector<T, ?, IndexedGroups<List<T>>> groupingByByte(ToIntFunction<? super T> bucket) {
+        return groupingByIndex(256, t -> bucket.applyAsInt(t) & 0xff);
+    }
+
+    /**
+     * 按枚举分组，以 ordinal 为下标
+     */
+    public static <T, E extends Enum<E>> Collector<T, ?, Map<E, List<T>>> groupingByEnum(Class<E> type, Function<? super T, E> classifier) {
+        E[] constants = type.getEnumConstants();
+        return Collectors.collectingAndThen(
+                groupingByIndex(constants.length, t -> classifier.apply(t).ordinal()),
+                groups -> {
+                    Map<E, List<T>> map = new EnumMap<>(type);
+                    groups.forEach((group, i) -> map.put(constants[i], group));
+                    return map;
+                });
+    }
+
+    /**
+     * 按首字符分组，结果与 Collectors.groupingBy(s -> s.substring(0, 1)) 相同；
+     * 空串的 key 为 ""（groupingBy 的写法会抛出异常），key 字符串每组只创建一次
+     */
+    public static <S extends CharSequence> Collector<S, ?, Map<String, List<S>>> groupingByFirstChar() {
+        return groupingByFirstChar(Collectors.toList());
+    }
+
+    public static <S extends CharSequence, A, D> Collector<S, ?, Map<String, D>> groupingByFirstChar(Collector<? super S, A, D> downstream) {
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super S> accumulator = downstream.accumulator();
+        BinaryOperator<A> combiner = downstream.combiner();
+        Function<A, D> finisher = downstream.finisher();
+        return Collector.of(
+                () -> new Slots<A>(ASCII),
+                (slots, s) -> {
+                    char c = s.length() == 0 ? Character.MAX_VALUE : s.charAt(0);
+                    A container = c < ASCII ? slots.slot(c, supplier) : slots.overflow(s.length() == 0 ? "" : s.subSequence(0, 1).toString(), supplier);
+                    accumulator.accept(container, s);
+                },
+                (left, right) -> left.merge(right, combiner),
+                slots -> {
+                    Map<String, D> map = new LinkedHashMap<>();
+                    Object[] groups = slots.finish(finisher);
+                    for (int i = 0; i < groups.length; i++) {
+                        if (groups[i] != null) {
+                            @SuppressWarnings("unchecked")
+                            D group = (D) groups[i];
+                            map.put(String.valueOf((char) i), group);
+                        }
+                    }
+                    if (slots.overflow != null) {
+                        for (Map.Entry<String, A> e : slots.overflow.entrySet()) {
+                            map.put(e.getKey(), finisher.apply(e.getValue()));
+                        }
+                    }
+                    return map;
+                });
+    }
+
+    /**
+     * 每个线程的分组数组，下游容器按需创建；overflow 保存数组放不下的 key
+     */
+    static final class Slots<A> {
+
+        final Object[] slots;
+        Map<String, A> overflow;
+
+        Slots(int size) {
+            this.slots = new Object[size];
+        }
+
+        @SuppressWarnings("unchecked")
+        A slot(int i, Supplier<A> supplier) {
+            Object a = slots[i];
+            if (a == null) {
+                a = supplier.get();
+                slots[i] = a;
+            }
+            return (A) a;
+        }
+
+        A overflow(String key, Supplier<A> supplier) {
+            if (overflow == null) {
+                overflow = new HashMap<>();
+            }
+            return overflow.computeIfAbsent(key, k -> supplier.get());
+        }
+
+        /**
+         * 把 right 合并进来，right 中的元素视为出现在后面
+         */
+        @SuppressWarnings("unchecked")
+        Slots<A> merge(Slots<A> right, BinaryOperator<A> combiner) {
+            for (int i = 0; i < slots.length; i++) {
+                Object r = right.slots[i];
+                if (r != null) {
+                    slots[i] = slots[i] == null ? r : combiner.apply((A) slots[i], (A) r);
+                }
+            }
+            if (right.overflow != null) {
+                if (overflow == null) {
+                    overflow = right.overflow;
+                } else {
+                    Set<Map.Entry<String, A>> entries = right.overflow.entrySet();
+                    for (Map.Entry<String, A> e : entries) {
+                        overflow.merge(e.getKey(), e.getValue(), combiner);
+                    }
+                }
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        <D> Object[] finish(Function<A, D> finisher) {
+            Object[] result = new Object[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null) {
+                    result[i] = finisher.apply((A) slots[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
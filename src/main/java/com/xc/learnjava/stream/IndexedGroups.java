@@ -0,0 +1,60 @@
+package com.xc.learnjava.stream;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * IndexedGrouping 的分组结果：下标即 key，没有元素的分组为 null
+ *
+ * @author joey
+ */
+public final class IndexedGroups<D> {
+
+    private final Object[] groups;
+
+    IndexedGroups(Object[] groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * key 的取值个数
+     */
+    public int size() {
+        return groups.length;
+    }
+
+    /**
+     * 下标为 index 的分组，没有元素时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public D get(int index) {
+        return (D) groups[index];
+    }
+
+    /**
+     * 按下标从小到大遍历非空的分组
+     */
+    public void forEach(ObjIntConsumer<? super D> action) {
+        for (int i = 0; i < groups.length; i++) {
+            if (groups[i] != null) {
+                action.accept(get(i), i);
+            }
+        }
+    }
+
+    /**
+     * 转换成 Map，keyOf 把下标还原成 key，只对非空的分组调用一次
+     */
+    public <K> Map<K, D> toMap(IntFunction<? extends K> keyOf) {
+        Map<K, D> map = new LinkedHashMap<>();
+        forEach((group, i) -> map.put(keyOf.apply(i), group));
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap(Integer::valueOf).toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.xc.learnjava.stream;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * 一次可以提供一批 long 的 LongSupplier，写入调用方提供的数组，不装箱
+ * fill 返回 0 或负数表示数据源已经结束。
+ *
+ * @author joey
+ */
+@FunctionalInterface
+public interface LongBatchSupplier extends LongSupplier {
+
+    /**
+     * 写入 out[0, max)，返回写入的个数；返回 0 或负数表示没有更多元素
+     */
+    int fill(long[] out, int max);
+
+    /**
+     * 取一个元素，没有更多元素时抛出 NoSuchElementException
+     */
+    @Override
+    default long getAsLong() {
+        long[] one = new long[1];
+        if (fill(one, 1) <= 0) {
+            throw new NoSuchElementException();
+        }
+        return one[0];
+    }
+
+    /**
+     * 把普通的 LongSupplier 包装为 LongBatchSupplier，每批连续调用 max 次 getAsLong()
+     */
+    static LongBatchSupplier of(LongSupplier supplier) {
+        Objects.requireNonNull(supplier, "supplier");
+        return (out, max) -> {
+            for (int i = 0; i < max; i++) {
+                out[i] = supplier.getAsLong();
+            }
+            return max;
+        };
+    }
+}
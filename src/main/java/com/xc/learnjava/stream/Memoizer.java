@@ -0,0 +1,318 @@
+package com.xc.learnjava.stream;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 为 map() 中开销较大的函数加上有界的缓存
+ * StreamTest.mapStream 中的 LocalDate.parse、outputStream 中的截取 key，输入大量重复时都在重复计算同一个结果。
+ * 1.缓存按 key 的 hash 分为若干段（stripe），每段是一个按访问顺序排列的 LinkedHashMap，有自己的锁，parallel() 下不同段之间互不影响；
+ * 2.每段的容量为 maximumSize / 段数（向上取整），段满时淘汰本段最久没有访问的元素（LRU），所以整体上是近似的 LRU；
+ * 3.ttl 大于 0 时，写入超过 ttl 的元素在读取时视为过期，重新计算；
+ * 4.计算在锁外进行，同一个 key 同时未命中时可能计算多次，后写入的结果覆盖先写入的，函数应当没有副作用；
+ * 5.stats() 返回命中、未命中、淘汰、过期的次数；
+ * 6.ofInt/ofLong 包装 ToIntFunction/ToLongFunction，缓存中直接保存基本类型的值，不装箱。
+ * 函数返回 null 时同样会被缓存。
+ *
+ * @author joey
+ */
+public final class Memoizer<K, V> implements Function<K, V> {
+
+    private final Function<? super K, ? extends V> function;
+    private final Cache cache;
+
+    private Memoizer(Function<? super K, ? extends V> function, Cache cache) {
+        this.function = function;
+        this.cache = cache;
+    }
+
+    /**
+     * 最多缓存 maximumSize 个结果，不过期
+     */
+    public static <K, V> Memoizer<K, V> of(Function<? super K, ? extends V> function, int maximumSize) {
+        return new Memoizer<>(function, new Cache(maximumSize, 0));
+    }
+
+    /**
+     * 最多缓存 maximumSize 个结果，写入 ttl 后过期
+     */
+    public static <K, V> Memoizer<K, V> of(Function<? super K, ? extends V> function, int maximumSize, long ttl, TimeUnit unit) {
+        return new Memoizer<>(function, new Cache(maximumSize, unit.toNanos(ttl)));
+    }
+
+    public static <K> ToInt<K> ofInt(ToIntFunction<? super K> function, int maximumSize) {
+        return new ToInt<>(function, new Cache(maximumSize, 0));
+    }
+
+    public static <K> ToInt<K> ofInt(ToIntFunction<? super K> function, int maximumSize, long ttl, TimeUnit unit) {
+        return new ToInt<>(function, new Cache(maximumSize, unit.toNanos(ttl)));
+    }
+
+    public static <K> ToLong<K> ofLong(ToLongFunction<? super K> function, int maximumSize) {
+        return new ToLong<>(function, new Cache(maximumSize, 0));
+    }
+
+    public static <K> ToLong<K> ofLong(ToLongFunction<? super K> function, int maximumSize, long ttl, TimeUnit unit) {
+        return new ToLong<>(function, new Cache(maximumSize, unit.toNanos(ttl)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V apply(K key) {
+        CacheEntry e = cache.lookup(key);
+        if (e != null) {
+            return (V) e.value;
+        }
+        V value = function.apply(key);
+        cache.store(key, new CacheEntry(value, 0, cache.now()));
+        return value;
+    }
+
+    public Stats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * 缓存 ToIntFunction 的结果
+     */
+    public static final class ToInt<K> implements ToIntFunction<K> {
+
+        private final ToIntFunction<? super K> function;
+        private final Cache cache;
+
+        ToInt(ToIntFunction<? super K> function, Cache cache) {
+            this.function = function;
+            this.cache = cache;
+        }
+
+        @Override
+        public int applyAsInt(K key) {
+            CacheEntry e = cache.lookup(key);
+            if (e != null) {
+                return (int) e.primitive;
+            }
+            int value = function.applyAsInt(key);
+            cache.store(key, new CacheEntry(null, value, cache.now()));
+            return value;
+        }
+
+        public Stats stats() {
+            return cache.stats();
+        }
+
+        public void invalidateAll() {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 缓存 ToLongFunction 的结果
+     */
+    public static final class ToLong<K> implements ToLongFunction<K> {
+
+        private final ToLongFunction<? super K> function;
+        private final Cache cache;
+
+        ToLong(ToLongFunction<? super K> function, Cache cache) {
+            this.function = function;
+            this.cache = cache;
+        }
+
+        @Override
+        public long applyAsLong(K key) {
+            CacheEntry e = cache.lookup(key);
+            if (e != null) {
+                return e.primitive;
+            }
+            long value = function.applyAsLong(key);
+            cache.store(key, new CacheEntry(null, value, cache.now()));
+            return value;
+        }
+
+        public Stats stats() {
+            return cache.stats();
+        }
+
+        public void invalidateAll() {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 缓存的统计数据
+     */
+    public static final class Stats {
+
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long expirations;
+        public final long size;
+
+        Stats(long hits, long misses, long evictions, long expirations, long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.size = size;
+        }
+
+        /**
+         * 命中率，没有访问时为 0
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Stats{hits=%d, misses=%d, hitRate=%.3f, evictions=%d, expirations=%d, size=%d}",
+                    hits, misses, hitRate(), evictions, expirations, size);
+        }
+    }
+
+    /**
+     * 缓存的值和写入时间，value 与 primitive 只用其中一个
+     */
+    static final class CacheEntry {
+
+        final Object value;
+        final long primitive;
+        final long writtenAt;
+
+        CacheEntry(Object value, long primitive, long writtenAt) {
+            this.value = value;
+            this.primitive = primitive;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    /**
+     * 分段的 LRU 缓存
+     */
+    static final class Cache {
+
+        private final Segment[] segments;
+        private final int mask;
+        private final long ttlNanos;
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+
+        Cache(int maximumSize, long ttlNanos) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+            }
+            if (ttlNanos < 0) {
+                throw new IllegalArgumentException("ttl must not be negative: " + ttlNanos);
+            }
+            //段数为 2 的幂，约为 CPU 个数的 4 倍，但每段至少能放 16 个元素
+            int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);
+            stripes = Math.max(1, Math.min(stripes, Integer.highestOneBit(Math.max(1, maximumSize / 16))));
+            int capacity = (maximumSize + stripes - 1) / stripes;
+            this.segments = new Segment[stripes];
+            for (int i = 0; i < stripes; i++) {
+                segments[i] = new Segment(capacity, evictions);
+            }
+            this.mask = stripes - 1;
+            this.ttlNanos = ttlNanos;
+        }
+
+        long now() {
+            return ttlNanos > 0 ? System.nanoTime() : 0;
+        }
+
+        private Segment segmentFor(Object key) {
+            int h = key == null ? 0 : key.hashCode();
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            return segments[h & mask];
+        }
+
+        /**
+         * 命中时返回 CacheEntry，未命中或已过期时返回 null
+         */
+        CacheEntry lookup(Object key) {
+            Segment s = segmentFor(key);
+            CacheEntry e;
+            synchronized (s) {
+                e = s.get(key);
+                if (e != null && ttlNanos > 0 && System.nanoTime() - e.writtenAt > ttlNanos) {
+                    s.remove(key);
+                    expirations.increment();
+                    e = null;
+                }
+            }
+            if (e == null) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return e;
+        }
+
+        void store(Object key, CacheEntry e) {
+            Segment s = segmentFor(key);
+            synchronized (s) {
+                s.put(key, e);
+            }
+        }
+
+        void clear() {
+            for (Segment s : segments) {
+                synchronized (s) {
+                    s.clear();
+                }
+            }
+        }
+
+        Stats stats() {
+            long size = 0;
+            for (Segment s : segments) {
+                synchronized (s) {
+                    size += s.size();
+                }
+            }
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size);
+        }
+    }
+
+    /**
+     * 按访问顺序排列的 LinkedHashMap，超过容量时淘汰最久没有访问的元素
+     */
+    static final class Segment extends LinkedHashMap<Object, CacheEntry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final transient LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(Math.min(capacity, 1 << 12) * 4 / 3 + 1, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.xc.learnjava.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * 保存在堆外（direct ByteBuffer）的 long 集合，开放寻址 + 线性探测
+ * 1.不为元素创建任何对象，GC 只看到一个 ByteBuffer；
+ * 2.0 作为空槽标记，元素 0 单独用一个标志位记录；
+ * 3.装载因子超过 1/2 时容量翻倍，超过 maxBytes 时抛出 IllegalStateException，而不是把进程内存耗尽。
+ * 非线程安全，并发访问由调用方加锁。堆外内存在 ByteBuffer 被回收时释放。
+ *
+ * @author joey
+ */
+final class OffHeapLongSet {
+
+    /**
+     * 单个 LongBuffer 能容纳的最大槽数：直接缓冲区不能超过 Integer.MAX_VALUE 字节，2^27 个 long 为 1GB
+     */
+    static final int MAX_CAPACITY = 1 << 27;
+
+    private final long maxBytes;
+    private LongBuffer table;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    OffHeapLongSet(long expected, long maxBytes) {
+        this.maxBytes = maxBytes;
+        long capacity = Long.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        this.table = allocate((int) Math.min(capacity, MAX_CAPACITY));
+        this.mask = table.capacity() - 1;
+    }
+
+    /**
+     * 加入 key，之前不存在时返回 true
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            return true;
+        }
+        int i = (int) mix(key) & mask;
+        while (true) {
+            long v = table.get(i);
+            if (v == 0) {
+                table.put(i, key);
+                if (++size > (mask + 1) >>> 1) {
+                    grow();
+                }
+                return true;
+            }
+            if (v == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    boolean contains(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        int i = (int) mix(key) & mask;
+        while (true) {
+            long v = table.get(i);
+            if (v == 0) {
+                return false;
+            }
+            if (v == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    long size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    /**
+     * 当前占用的堆外内存
+     */
+    long bytes() {
+        return (long) table.capacity() * Long.BYTES;
+    }
+
+    private void grow() {
+        int capacity = table.capacity() << 1;
+        if (capacity > MAX_CAPACITY || (long) capacity * Long.BYTES > maxBytes) {
+            throw new IllegalStateException("distinct set of " + size + " elements exceeds the limit of " + maxBytes + " bytes");
+        }
+        LongBuffer old = table;
+        table = allocate(capacity);
+        mask = capacity - 1;
+        for (int j = 0, n = old.capacity(); j < n; j++) {
+            long key = old.get(j);
+            if (key != 0) {
+                int i = (int) mix(key) & mask;
+                while (table.get(i) != 0) {
+                    i = (i + 1) & mask;
+                }
+                table.put(i, key);
+            }
+        }
+    }
+
+    private LongBuffer allocate(int capacity) {
+        if ((long) capacity * Long.BYTES > maxBytes) {
+            throw new IllegalStateException("distinct set needs " + (long) capacity * Long.BYTES + " bytes, limit is " + maxBytes);
+        }
+        return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * MurmurHash3 的 fmix64，把 key 的各位充分打散
+     */
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
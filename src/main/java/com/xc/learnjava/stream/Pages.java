@@ -0,0 +1,139 @@
+package com.xc.learnjava.stream;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * 按下标直接截取的分页
+ * StreamTest.OtherOppStream 中的 skip(2).limit(3) 需要先遍历（并行且有序时还要缓冲）前面被跳过的元素，越往后翻页越慢。
+ * 对于能按下标访问的数据源（数组、RandomAccess 的 List、数值区间、Sequences/Fibonacci 序列、连续的日期），
+ * 这里直接算出 [skip, skip + limit) 对应的子区间，得到的流是 SIZED|SUBSIZED 的，第 N 页与第 0 页的开销相同。
+ * 1.slice(source, skip, limit)：与 source.stream().skip(skip).limit(limit) 的结果相同；
+ * 2.page(source, pageIndex, pageSize)：即 slice(source, pageIndex * pageSize, pageSize)。
+ *
+ * @author joey
+ */
+public final class Pages {
+
+    private Pages() {
+    }
+
+    public static <T> Stream<T> slice(T[] array, long skip, long limit) {
+        int from = from(array.length, skip, limit);
+        return Arrays.stream(array, from, to(array.length, from, limit));
+    }
+
+    public static <T> Stream<T> page(T[] array, long pageIndex, int pageSize) {
+        return slice(array, offset(pageIndex, pageSize), pageSize);
+    }
+
+    public static IntStream slice(int[] array, long skip, long limit) {
+        int from = from(array.length, skip, limit);
+        return Arrays.stream(array, from, to(array.length, from, limit));
+    }
+
+    public static IntStream page(int[] array, long pageIndex, int pageSize) {
+        return slice(array, offset(pageIndex, pageSize), pageSize);
+    }
+
+    public static LongStream slice(long[] array, long skip, long limit) {
+        int from = from(array.length, skip, limit);
+        return Arrays.stream(array, from, to(array.length, from, limit));
+    }
+
+    public static LongStream page(long[] array, long pageIndex, int pageSize) {
+        return slice(array, offset(pageIndex, pageSize), pageSize);
+    }
+
+    /**
+     * RandomAccess 的 List 用 subList 按下标截取（ArrayList 等的 subList 流是 SIZED|SUBSIZED 的）；其它 List（如 LinkedList）只能退回到 skip/limit
+     */
+    public static <T> Stream<T> slice(List<T> list, long skip, long limit) {
+        if (!(list instanceof RandomAccess)) {
+            return list.stream().skip(skip).limit(limit);
+        }
+        int from = from(list.size(), skip, limit);
+        return list.subList(from, to(list.size(), from, limit)).stream();
+    }
+
+    public static <T> Stream<T> page(List<T> list, long pageIndex, int pageSize) {
+        return slice(list, offset(pageIndex, pageSize), pageSize);
+    }
+
+    /**
+     * [startInclusive, endExclusive) 区间的一页
+     */
+    public static LongStream range(long startInclusive, long endExclusive, long pageIndex, int pageSize) {
+        //区间长度超过 Long.MAX_VALUE 时按 Long.MAX_VALUE 计算，startInclusive + to 不会超过 endExclusive
+        long diff = endExclusive - startInclusive;
+        long size = endExclusive <= startInclusive ? 0 : diff < 0 ? Long.MAX_VALUE : diff;
+        long from = Math.min(offset(pageIndex, pageSize), size);
+        long to = from + Math.min(pageSize, size - from);
+        return Sequences.longs(startInclusive + from, startInclusive + to);
+    }
+
+    /**
+     * 自然数序列（StreamTest.NatualSupplier）的一页
+     */
+    public static LongStream naturals(long pageIndex, int pageSize) {
+        return range(1, Long.MAX_VALUE, pageIndex, pageSize);
+    }
+
+    /**
+     * 斐波拉契数列（StreamTest.FibSupplier）的一页，对 mod 取模；起点用快速倍增直接算出
+     */
+    public static LongStream fibonacci(long pageIndex, int pageSize, long mod) {
+        long from = offset(pageIndex, pageSize);
+        return Fibonacci.longs(from, saturatedAdd(from, pageSize), mod);
+    }
+
+    /**
+     * 从 start 开始的连续日期（StreamTest.LocalDateSupplier）的一页，超过 LocalDate.MAX 的部分为空
+     */
+    public static Stream<LocalDate> dates(LocalDate start, long pageIndex, int pageSize) {
+        long end = LocalDate.MAX.toEpochDay() + 1;
+        long from = Math.min(saturatedAdd(start.toEpochDay(), offset(pageIndex, pageSize)), end);
+        return Sequences.longs(from, from + Math.min(pageSize, end - from)).mapToObj(LocalDate::ofEpochDay);
+    }
+
+    /**
+     * pageIndex * pageSize，溢出时为 Long.MAX_VALUE（即超出任何数据源的末尾）
+     */
+    static long offset(long pageIndex, int pageSize) {
+        if (pageIndex < 0 || pageSize < 0) {
+            throw new IllegalArgumentException("pageIndex and pageSize must not be negative: " + pageIndex + ", " + pageSize);
+        }
+        if (pageSize != 0 && pageIndex > Long.MAX_VALUE / pageSize) {
+            return Long.MAX_VALUE;
+        }
+        return pageIndex * pageSize;
+    }
+
+    /**
+     * a + b，溢出时取 Long.MAX_VALUE 或 Long.MIN_VALUE
+     */
+    static long saturatedAdd(long a, long b) {
+        long r = a + b;
+        if (((a ^ r) & (b ^ r)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return r;
+    }
+
+    private static int from(int size, long skip, long limit) {
+        if (skip < 0 || limit < 0) {
+            throw new IllegalArgumentException("skip and limit must not be negative: " + skip + ", " + limit);
+        }
+        return (int) Math.min(skip, size);
+    }
+
+    private static int to(int size, int from, long limit) {
+        //不计算 from + limit，limit 为 Long.MAX_VALUE（不限）时也不会溢出
+        return from + (int) Math.min(limit, size - from);
+    }
+}
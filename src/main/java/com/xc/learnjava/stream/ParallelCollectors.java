@@ -0,0 +1,266 @@
+package com.xc.learnjava.stream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * parallel() 下结果正确的归约与收集
+ * StreamTest.reduceStream 中的两种写法在串行时没有问题，改为 parallel() 后就会出错：
+ * 1.reduce(new HashMap<>(), (m, kv) -> { m.putAll(kv); return m; }) 的 identity 被所有线程共享并修改，结果错误且线程不安全；
+ * 2.reduce(1, (acc, n) -> acc * n) 没有单独的 combiner，Integer 溢出也不会有任何提示。
+ * 这里的收集器都是"每个线程一个容器，最后用 combiner 合并"的可变归约：
+ * 1.toMap/intoMap/mergingMaps/counting/toSet：合并时把较小的容器并入较大的容器，重复 key 按 DuplicateKeyPolicy 处理，结果与串行时一致；
+ *   intoConcurrentMap 是所有线程共用一个 ConcurrentHashMap 的并发版本；
+ * 2.joining：每个线程只收集字符串的引用，finisher 中算出总长度后一次拼接；
+ * 3.summingExact/multiplyingExact：用 long 累加，溢出时抛出 ArithmeticException；multiplyingExact 遇到 0 后不再相乘，结果与分片方式无关；
+ * 4.reduce：identity 由 Supplier 提供，每个分片一份，accumulator 可以直接修改它，不会被多个线程共享。
+ *
+ * @author joey
+ */
+public final class ParallelCollectors {
+
+    private ParallelCollectors() {
+    }
+
+    /**
+     * 收集成 HashMap，重复 key 按 policy 处理
+     */
+    public static <T, K, V> Collector<T, ?, Map<K, V>> toMap(Function<? super T, ? extends K> keyMapper,
+                                                             Function<? super T, ? extends V> valueMapper,
+                                                             DuplicateKeyPolicy policy) {
+        return intoMap((m, t) -> policy.put(m, keyMapper.apply(t), valueMapper.apply(t)), policy);
+    }
+
+    /**
+     * 收集成 HashMap，每个元素由 accumulator 放入 map（可以放入多项或不放入，例如跳过注释行），
+     * accumulator 应当用 policy.put 放入，线程之间的 map 按出现顺序用 policy 合并
+     */
+    public static <T, K, V> Collector<T, ?, Map<K, V>> intoMap(BiConsumer<Map<K, V>, ? super T> accumulator,
+                                                               DuplicateKeyPolicy policy) {
+        return Collector.<T, Map<K, V>>of(
+                HashMap::new,
+                accumulator::accept,
+                (left, right) -> merge(left, right, policy),
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 并发版本：所有线程的 accumulator 写同一个 ConcurrentHashMap，省掉合并的开销，但不再保证出现顺序
+     */
+    public static <T, K, V> Collector<T, ?, ConcurrentMap<K, V>> intoConcurrentMap(BiConsumer<? super ConcurrentMap<K, V>, ? super T> accumulator,
+                                                                                   DuplicateKeyPolicy policy) {
+        return Collector.<T, ConcurrentMap<K, V>>of(
+                ConcurrentHashMap::new,
+                accumulator::accept,
+                (left, right) -> {
+                    policy.merge(left, right);
+                    return left;
+                },
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 把流中的多个 Map 合并成一个，替代以共享 HashMap 为 identity 的 reduce
+     */
+    public static <K, V> Collector<Map<K, V>, ?, Map<K, V>> mergingMaps(DuplicateKeyPolicy policy) {
+        return Collector.<Map<K, V>, Map<K, V>>of(
+                HashMap::new,
+                (m, kv) -> policy.merge(m, kv),
+                (left, right) -> merge(left, right, policy),
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 按 key 计数，每个 key 一个 long[1] 计数器，计数时不装箱
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>> counting(Function<? super T, ? extends K> classifier) {
+        return Collector.<T, Map<K, long[]>, Map<K, Long>>of(
+                HashMap::new,
+                (m, t) -> m.computeIfAbsent(classifier.apply(t), k -> new long[1])[0]++,
+                (left, right) -> {
+                    Map<K, long[]> into = left.size() >= right.size() ? left : right;
+                    Map<K, long[]> from = into == left ? right : left;
+                    for (Map.Entry<K, long[]> e : from.entrySet()) {
+                        long[] c = into.putIfAbsent(e.getKey(), e.getValue());
+                        if (c != null) {
+                            c[0] += e.getValue()[0];
+                        }
+                    }
+                    return into;
+                },
+                m -> {
+                    Map<K, Long> result = new HashMap<>(Math.max(16, (int) (m.size() / 0.75f) + 1));
+                    m.forEach((k, c) -> result.put(k, c[0]));
+                    return result;
+                });
+    }
+
+    /**
+     * 收集成 HashSet，合并时把较小的集合并入较大的集合
+     */
+    public static <T> Collector<T, ?, Set<T>> toSet() {
+        return Collector.<T, Set<T>>of(
+                HashSet::new,
+                Set::add,
+                (left, right) -> {
+                    if (left.size() >= right.size()) {
+                        left.addAll(right);
+                        return left;
+                    }
+                    right.addAll(left);
+                    return right;
+                },
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 用 delimiter 连接，保持出现顺序
+     */
+    public static Collector<CharSequence, ?, String> joining(CharSequence delimiter) {
+        String d = delimiter.toString();
+        return Collector.<CharSequence, List<CharSequence>, String>of(
+                ArrayList::new,
+                List::add,
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                parts -> {
+                    if (parts.isEmpty()) {
+                        return "";
+                    }
+                    int length = d.length() * (parts.size() - 1);
+                    for (CharSequence p : parts) {
+                        length += p.length();
+                    }
+                    StringBuilder sb = new StringBuilder(length);
+                    sb.append(parts.get(0));
+                    for (int i = 1; i < parts.size(); i++) {
+                        sb.append(d).append(parts.get(i));
+                    }
+                    return sb.toString();
+                });
+    }
+
+    /**
+     * 求和，溢出时抛出 ArithmeticException
+     */
+    public static <T> Collector<T, ?, Long> summingExact(ToLongFunction<? super T> mapper) {
+        return Collector.<T, long[], Long>of(
+                () -> new long[1],
+                (a, t) -> a[0] = Math.addExact(a[0], mapper.applyAsLong(t)),
+                (left, right) -> {
+                    left[0] = Math.addExact(left[0], right[0]);
+                    return left;
+                },
+                a -> a[0]);
+    }
+
+    /**
+     * 求积，溢出时抛出 ArithmeticException；含有 0 时结果为 0，不论 0 之前的乘积是否溢出，所以结果与分片方式无关。
+     * 累加状态为 {乘积, 是否遇到过 0, 是否溢出}，溢出先记录下来，到 finisher 中才抛出
+     */
+    public static <T> Collector<T, ?, Long> multiplyingExact(ToLongFunction<? super T> mapper) {
+        return Collector.<T, long[], Long>of(
+                () -> new long[]{1, 0, 0},
+                (a, t) -> {
+                    if (a[1] != 0) {
+                        return;
+                    }
+                    long x = mapper.applyAsLong(t);
+                    if (x == 0) {
+                        a[1] = 1;
+                    } else if (a[2] == 0) {
+                        multiply(a, x);
+                    }
+                },
+                (left, right) -> {
+                    if (right[1] != 0) {
+                        left[1] = 1;
+                    } else if (left[1] == 0) {
+                        left[2] |= right[2];
+                        if (left[2] == 0) {
+                            multiply(left, right[0]);
+                        }
+                    }
+                    return left;
+                },
+                a -> {
+                    if (a[1] != 0) {
+                        return 0L;
+                    }
+                    if (a[2] != 0) {
+                        throw new ArithmeticException("long overflow");
+                    }
+                    return a[0];
+                });
+    }
+
+    private static void multiply(long[] state, long x) {
+        try {
+            state[0] = Math.multiplyExact(state[0], x);
+        } catch (ArithmeticException e) {
+            state[2] = 1;
+        }
+    }
+
+    /**
+     * 替代 stream.reduce(identity, accumulator)：每个分片调用一次 identity.get() 得到自己的初始值，
+     * accumulator 可以直接修改并返回它（例如 (m, kv) -> { m.putAll(kv); return m; }），分片之间再用 accumulator 合并。
+     * 内部用 collect 实现，初始值不会被多个线程共享。
+     */
+    public static <T> T reduce(Stream<? extends T> stream, Supplier<T> identity, BinaryOperator<T> accumulator) {
+        return stream.collect(Collector.<T, Box<T>, T>of(
+                () -> new Box<>(identity.get()),
+                (box, t) -> box.value = accumulator.apply(box.value, t),
+                (left, right) -> {
+                    left.value = accumulator.apply(left.value, right.value);
+                    return left;
+                },
+                box -> box.value));
+    }
+
+    /**
+     * 把 right 合并进 left（right 中的元素在 left 之后），实际把较小的 Map 并入较大的 Map
+     */
+    static <K, V> Map<K, V> merge(Map<K, V> left, Map<K, V> right, DuplicateKeyPolicy policy) {
+        if (left.size() >= right.size()) {
+            return policy.merge(left, right);
+        }
+        //left 在前，并入 right 时冲突的值按先后关系处理
+        for (Map.Entry<K, V> e : left.entrySet()) {
+            K key = e.getKey();
+            V value = e.getValue();
+            V old = right.putIfAbsent(key, value);
+            if (old != null) {
+                right.put(key, policy.resolve(key, value, old));
+            }
+        }
+        return right;
+    }
+
+    private static final class Box<T> {
+
+        T value;
+
+        Box(T value) {
+            this.value = value;
+        }
+    }
+}
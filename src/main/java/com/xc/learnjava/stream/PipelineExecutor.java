@@ -0,0 +1,432 @@
+package com.xc.learnjava.stream;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 在独立的 ForkJoinPool 中执行并行流
+ * StreamTest.OtherOppStream 中的 parallel() 都在 JVM 共享的 ForkJoinPool.commonPool() 中执行，一个很重的流水线会占满所有工作线程，
+ * 进程中其它的并行任务只能等待。
+ * 并行流的终止操作如果是在某个 ForkJoinPool 的工作线程中调用的，拆分出的子任务就会在这个池中执行，这里利用这一点：
+ * 1.每个 PipelineExecutor 有自己的名字和并行度，工作线程命名为 "名字-worker-序号"，是守护线程；
+ * 2.maxPending 限制同时提交（排队 + 执行中）的流水线数量，超过时抛出 RejectedExecutionException；被取消但已经开始执行的流水线，结束前仍占用名额；
+ * 3.submit 返回 Task，可以取消、带超时等待，超时会取消流水线；流水线通过 Cancellation.guard 包装数据源，取消后尽快抛出 CancellationException；
+ * 4.metrics() 返回池的活跃线程数、排队任务数、窃取次数以及提交/完成/失败/取消/超时/拒绝的计数；
+ * 5.I/O 密集的 map 步骤用 blocking 包装，阻塞期间池会临时补充线程，保持并行度。
+ * Java 8 没有虚拟线程，阻塞调用用 ForkJoinPool.ManagedBlocker 代替。
+ *
+ * @author joey
+ */
+public final class PipelineExecutor implements AutoCloseable {
+
+    /**
+     * Cancellation.guard 每处理这么多个元素检查一次是否已取消
+     */
+    static final int CHECK_INTERVAL = 1 << 8;
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final Semaphore pending;
+    private final int maxPending;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private PipelineExecutor(String name, int parallelism, int maxPending) {
+        this.name = name;
+        this.maxPending = maxPending;
+        this.pending = new Semaphore(maxPending);
+        AtomicInteger index = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName(name + "-worker-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    /**
+     * 并行度为 parallelism，不限制排队的流水线数量
+     */
+    public static PipelineExecutor create(String name, int parallelism) {
+        return create(name, parallelism, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 并行度为 parallelism，最多 maxPending 条流水线同时排队或执行
+     */
+    public static PipelineExecutor create(String name, int parallelism, int maxPending) {
+        Objects.requireNonNull(name, "name");
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+        }
+        return new PipelineExecutor(name, parallelism, maxPending);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * 提交一条流水线，流水线中的 parallel() 在本池中执行
+     */
+    public <R> Task<R> submit(Supplier<R> pipeline) {
+        return submit(c -> pipeline.get());
+    }
+
+    /**
+     * 提交一条可以取消的流水线，流水线用参数中的 Cancellation 包装数据源
+     */
+    public <R> Task<R> submit(Function<Cancellation, R> pipeline) {
+        if (!pending.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedExecutionException(name + ": too many pending pipelines (max " + maxPending + ")");
+        }
+        Task<R> task = new Task<>(this, pipeline);
+        try {
+            pool.execute(task.forkJoinTask);
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        return task;
+    }
+
+    /**
+     * 提交并等待结果，超时后取消流水线并抛出 TimeoutException
+     */
+    public <R> R invoke(Function<Cancellation, R> pipeline, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        return submit(pipeline).get(timeout, unit);
+    }
+
+    public Metrics metrics() {
+        return new Metrics(this);
+    }
+
+    /**
+     * 不再接受新的流水线，已提交的继续执行
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * 等待已提交的流水线执行完
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 取消所有流水线并停止工作线程
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineExecutor[" + name + ", parallelism=" + parallelism() + "]";
+    }
+
+    /**
+     * 在流水线中执行阻塞调用（读文件、访问网络等），阻塞期间所在的 ForkJoinPool 会补充线程；不在 ForkJoinPool 中时直接调用
+     */
+    public static <T> T blocking(Supplier<T> call) {
+        Blocker<T> blocker = new Blocker<>(call);
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while blocking");
+        }
+        return blocker.result;
+    }
+
+    private static final class Blocker<T> implements ForkJoinPool.ManagedBlocker {
+
+        private final Supplier<T> call;
+        private boolean done;
+        private T result;
+
+        Blocker(Supplier<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public boolean block() {
+            result = call.get();
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    /**
+     * 一条已提交的流水线
+     */
+    public static final class Task<R> {
+
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final PipelineExecutor executor;
+        private final Cancellation cancellation = new Cancellation();
+        /**
+         * NEW -> RUNNING 或 NEW -> CANCELLED，只有一方能成功：
+         * 开始执行的流水线在结束时释放 maxPending 的名额，还没开始就被取消的由 cancel 释放
+         */
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        final ForkJoinTask<R> forkJoinTask;
+
+        Task(PipelineExecutor executor, Function<Cancellation, R> pipeline) {
+            this.executor = executor;
+            this.forkJoinTask = ForkJoinTask.adapt(() -> {
+                if (!state.compareAndSet(NEW, RUNNING)) {
+                    throw new CancellationException("pipeline cancelled");
+                }
+                try {
+                    R r = pipeline.apply(cancellation);
+                    executor.completed.increment();
+                    return r;
+                } catch (CancellationException e) {
+                    executor.cancelled.increment();
+                    throw e;
+                } catch (RuntimeException | Error e) {
+                    executor.failed.increment();
+                    throw e;
+                } finally {
+                    executor.pending.release();
+                }
+            });
+        }
+
+        /**
+         * 取消流水线：还没开始的不再执行；正在执行的在下一次检查 Cancellation 时停止，结束前仍占用 maxPending 的名额。
+         * 已经结束时返回 false
+         */
+        public boolean cancel() {
+            cancellation.cancel();
+            if (state.compareAndSet(NEW, CANCELLED)) {
+                forkJoinTask.cancel(false);
+                executor.cancelled.increment();
+                executor.pending.release();
+                return true;
+            }
+            return !forkJoinTask.isDone();
+        }
+
+        public boolean isDone() {
+            return forkJoinTask.isDone();
+        }
+
+        public boolean isCancelled() {
+            return cancellation.isCancelled();
+        }
+
+        /**
+         * 等待结果，流水线抛出的 RuntimeException 原样抛出，被取消时抛出 CancellationException
+         */
+        public R join() {
+            return forkJoinTask.join();
+        }
+
+        /**
+         * 带超时等待结果，超时后取消流水线
+         */
+        public R get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            try {
+                return forkJoinTask.get(timeout, unit);
+            } catch (TimeoutException e) {
+                executor.timedOut.increment();
+                cancel();
+                throw e;
+            } catch (InterruptedException e) {
+                cancel();
+                throw e;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+     * 流水线的取消标记
+     */
+    public static final class Cancellation {
+
+        private volatile boolean cancelled;
+
+        Cancellation() {
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 已取消时抛出 CancellationException
+         */
+        public void check() {
+            if (cancelled) {
+                throw new CancellationException("pipeline cancelled");
+            }
+        }
+
+        /**
+         * 包装数据源，取消后不再产生元素并抛出 CancellationException；拆分出的子数据源同样受控
+         */
+        public <T> Stream<T> guard(Stream<T> source) {
+            return StreamSupport.stream(new GuardedSpliterator<>(source.spliterator(), this), source.isParallel())
+                    .onClose(source::close);
+        }
+    }
+
+    static final class GuardedSpliterator<T> implements Spliterator<T> {
+
+        private final Spliterator<T> source;
+        private final Cancellation cancellation;
+
+        GuardedSpliterator(Spliterator<T> source, Cancellation cancellation) {
+            this.source = source;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            cancellation.check();
+            return source.tryAdvance(action);
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            int n = 0;
+            do {
+                if ((n++ & (CHECK_INTERVAL - 1)) == 0) {
+                    cancellation.check();
+                }
+            } while (source.tryAdvance(action));
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            cancellation.check();
+            Spliterator<T> prefix = source.trySplit();
+            return prefix == null ? null : new GuardedSpliterator<>(prefix, cancellation);
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return source.getExactSizeIfKnown();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics();
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return source.getComparator();
+        }
+    }
+
+    /**
+     * 某一时刻的统计数据
+     */
+    public static final class Metrics {
+
+        public final String name;
+        public final int parallelism;
+        public final int poolSize;
+        public final int activeThreads;
+        public final int runningThreads;
+        public final int queuedSubmissions;
+        public final long queuedTasks;
+        public final long steals;
+        public final long submitted;
+        public final long completed;
+        public final long failed;
+        public final long cancelled;
+        public final long timedOut;
+        public final long rejected;
+
+        Metrics(PipelineExecutor e) {
+            ForkJoinPool p = e.pool;
+            this.name = e.name;
+            this.parallelism = p.getParallelism();
+            this.poolSize = p.getPoolSize();
+            this.activeThreads = p.getActiveThreadCount();
+            this.runningThreads = p.getRunningThreadCount();
+            this.queuedSubmissions = p.getQueuedSubmissionCount();
+            this.queuedTasks = p.getQueuedTaskCount();
+            this.steals = p.getStealCount();
+            this.submitted = e.submitted.sum();
+            this.completed = e.completed.sum();
+            this.failed = e.failed.sum();
+            this.cancelled = e.cancelled.sum();
+            this.timedOut = e.timedOut.sum();
+            this.rejected = e.rejected.sum();
+        }
+
+        @Override
+        public String toString() {
+            return name + "{parallelism=" + parallelism + ", poolSize=" + poolSize + ", active=" + activeThreads
+                    + ", running=" + runningThreads + ", queuedSubmissions=" + queuedSubmissions + ", queuedTasks=" + queuedTasks
+                    + ", steals=" + steals + ", submitted=" + submitted + ", completed=" + completed + ", failed=" + failed
+                    + ", cancelled=" + cancelled + ", timedOut=" + timedOut + ", rejected=" + rejected + "}";
+        }
+    }
+}
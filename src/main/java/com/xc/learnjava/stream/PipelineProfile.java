@@ -0,0 +1,418 @@
+package com.xc.learnjava.stream;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 流水线各步骤的计数与耗时统计
+ * StreamTest.mapStream 中 trim -> toLowerCase -> sorted、filterStream 中按星期几过滤，都看不出时间花在哪一步。
+ * 把每一步的函数用同名的方法包装一下，就能按步骤名统计：
+ * 1.map/filter/comparator/peek：输入、输出的元素个数，filter 的选择率（输出 / 输入）；
+ * 2.每次调用的耗时（System.nanoTime），记录到对数分桶的直方图中，每个 2 的幂区间再分为 8 个子桶，相对误差不超过 12.5%，可以得到 p50/p90/p99/max；
+ * 3.trackAllocation 为 true 且 JVM 支持时，统计调用期间当前线程分配的字节数；
+ * 4.report()/toJson() 输出纯文本表格或 JSON。
+ * 每个线程写自己的计数器，不加锁也没有 CAS，汇总时才合并，parallel() 下同样适用；应在流水线结束后再读取统计结果。
+ * 每次调用额外有两次 nanoTime（约几十纳秒），函数本身很轻量时耗时会偏大，计数不受影响。
+ * Java 8 没有 JFR 事件 API，这里只提供文本和 JSON 两种输出。
+ *
+ * @author joey
+ */
+public final class PipelineProfile {
+
+    /**
+     * 每个 2 的幂区间的子桶个数为 2^SUB_BITS
+     */
+    static final int SUB_BITS = 3;
+    static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final String name;
+    private final boolean trackAllocation;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    private PipelineProfile(String name, boolean trackAllocation) {
+        this.name = name;
+        this.trackAllocation = trackAllocation && Allocation.THREADS != null;
+    }
+
+    public static PipelineProfile create(String name) {
+        return new PipelineProfile(name, false);
+    }
+
+    /**
+     * trackAllocation 为 true 时统计分配的字节数，JVM 不支持时忽略
+     */
+    public static PipelineProfile create(String name, boolean trackAllocation) {
+        return new PipelineProfile(name, trackAllocation);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 按名字取得步骤，不存在时创建，步骤按创建顺序输出
+     */
+    public synchronized Stage stage(String stageName) {
+        return stages.computeIfAbsent(stageName, Stage::new);
+    }
+
+    public synchronized List<Stage> stages() {
+        return new ArrayList<>(stages.values());
+    }
+
+    /**
+     * 包装 map 的函数
+     */
+    public <T, R> Function<T, R> map(String stageName, Function<? super T, ? extends R> mapper) {
+        Stage stage = stage(stageName);
+        return t -> {
+            Recorder r = stage.recorder();
+            long allocated = allocated();
+            long start = System.nanoTime();
+            R result = mapper.apply(t);
+            r.record(System.nanoTime() - start, true, allocated() - allocated);
+            return result;
+        };
+    }
+
+    /**
+     * 包装 filter 的条件，输出个数为返回 true 的个数
+     */
+    public <T> Predicate<T> filter(String stageName, Predicate<? super T> predicate) {
+        Stage stage = stage(stageName);
+        return t -> {
+            Recorder r = stage.recorder();
+            long allocated = allocated();
+            long start = System.nanoTime();
+            boolean pass = predicate.test(t);
+            r.record(System.nanoTime() - start, pass, allocated() - allocated);
+            return pass;
+        };
+    }
+
+    /**
+     * 包装 sorted/max/min 的比较器，输入个数为比较次数
+     */
+    public <T> Comparator<T> comparator(String stageName, Comparator<? super T> comparator) {
+        Stage stage = stage(stageName);
+        return (a, b) -> {
+            Recorder r = stage.recorder();
+            long allocated = allocated();
+            long start = System.nanoTime();
+            int c = comparator.compare(a, b);
+            r.record(System.nanoTime() - start, true, allocated() - allocated);
+            return c;
+        };
+    }
+
+    /**
+     * 用于 peek，只统计经过的元素个数，不计时
+     */
+    public <T> Consumer<T> peek(String stageName) {
+        Stage stage = stage(stageName);
+        return t -> {
+            Recorder r = stage.recorder();
+            r.in++;
+            r.out++;
+        };
+    }
+
+    /**
+     * 统计一段代码（例如整条流水线或终止操作）的耗时
+     */
+    public <R> R time(String stageName, Supplier<R> body) {
+        Recorder r = stage(stageName).recorder();
+        long allocated = allocated();
+        long start = System.nanoTime();
+        R result = body.get();
+        r.record(System.nanoTime() - start, true, allocated() - allocated);
+        return result;
+    }
+
+    private long allocated() {
+        return trackAllocation ? Allocation.THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * 纯文本表格，时间单位为微秒
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("pipeline ").append(name).append('\n');
+        sb.append(String.format(Locale.ROOT, "%-16s %12s %12s %8s %12s %10s %10s %10s %10s %10s%s%n",
+                "stage", "in", "out", "select", "total(us)", "mean(us)", "p50(us)", "p90(us)", "p99(us)", "max(us)",
+                trackAllocation ? String.format(Locale.ROOT, " %14s", "alloc(bytes)") : ""));
+        for (Stage s : stages()) {
+            Snapshot v = s.snapshot();
+            sb.append(String.format(Locale.ROOT, "%-16s %12d %12d %7.1f%% %12.1f %10.3f %10.3f %10.3f %10.3f %10.3f%s%n",
+                    s.name, v.in, v.out, v.selectivity() * 100, v.nanos / 1e3, v.mean() / 1e3,
+                    v.percentile(0.5) / 1e3, v.percentile(0.9) / 1e3, v.percentile(0.99) / 1e3, v.max / 1e3,
+                    trackAllocation ? String.format(Locale.ROOT, " %14d", v.allocated) : ""));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * JSON 格式，时间单位为纳秒
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"pipeline\":");
+        quote(sb, name);
+        sb.append(",\"stages\":[");
+        boolean first = true;
+        for (Stage s : stages()) {
+            Snapshot v = s.snapshot();
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":");
+            quote(sb, s.name);
+            sb.append(",\"in\":").append(v.in)
+                    .append(",\"out\":").append(v.out)
+                    .append(",\"selectivity\":").append(v.selectivity())
+                    .append(",\"totalNanos\":").append(v.nanos)
+                    .append(",\"meanNanos\":").append(v.mean())
+                    .append(",\"p50Nanos\":").append(v.percentile(0.5))
+                    .append(",\"p90Nanos\":").append(v.percentile(0.9))
+                    .append(",\"p99Nanos\":").append(v.percentile(0.99))
+                    .append(",\"p999Nanos\":").append(v.percentile(0.999))
+                    .append(",\"maxNanos\":").append(v.max);
+            if (trackAllocation) {
+                sb.append(",\"allocatedBytes\":").append(v.allocated);
+            }
+            sb.append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * 延迟初始化：只有 trackAllocation 为 true 的 profile 才会加载这个类，
+     * 开启分配统计是 JVM 全局的设置，不应在仅仅用到 PipelineProfile 时就打开
+     */
+    private static final class Allocation {
+
+        static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) bean;
+                if (b.isThreadAllocatedMemorySupported()) {
+                    if (!b.isThreadAllocatedMemoryEnabled()) {
+                        b.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return b;
+                }
+            }
+        } catch (RuntimeException | LinkageError e) {
+            //不支持时不统计分配
+        }
+        return null;
+    }
+
+    //------------------------------------------------------------ 直方图
+
+    /**
+     * 取值 v 所在的桶：v < 2^SUB_BITS 时每个值一个桶，否则按最高位所在的区间和其后的 SUB_BITS 位确定
+     */
+    static int bucket(long v) {
+        if (v < SUB_COUNT) {
+            return (int) Math.max(v, 0);
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * 桶中的最大值
+     */
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exp = bucket / SUB_COUNT + SUB_BITS - 1;
+        long sub = bucket % SUB_COUNT;
+        long lower = (1L << exp) | (sub << (exp - SUB_BITS));
+        return lower + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    /**
+     * 一个线程在一个步骤上的计数，只由这个线程写
+     */
+    static final class Recorder {
+
+        long in;
+        long out;
+        long nanos;
+        long max;
+        long allocated;
+        final long[] buckets = new long[BUCKETS];
+
+        void record(long elapsed, boolean passed, long allocatedBytes) {
+            in++;
+            if (passed) {
+                out++;
+            }
+            nanos += elapsed;
+            if (elapsed > max) {
+                max = elapsed;
+            }
+            allocated += allocatedBytes;
+            buckets[bucket(elapsed)]++;
+        }
+    }
+
+    /**
+     * 流水线中的一个步骤
+     */
+    public static final class Stage {
+
+        private final String name;
+        private final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<Recorder> local = ThreadLocal.withInitial(() -> {
+            Recorder r = new Recorder();
+            recorders.add(r);
+            return r;
+        });
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        Recorder recorder() {
+            return local.get();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * 合并所有线程的计数
+         */
+        public Snapshot snapshot() {
+            Snapshot s = new Snapshot();
+            for (Recorder r : recorders) {
+                s.in += r.in;
+                s.out += r.out;
+                s.nanos += r.nanos;
+                s.max = Math.max(s.max, r.max);
+                s.allocated += r.allocated;
+                for (int i = 0; i < BUCKETS; i++) {
+                    s.buckets[i] += r.buckets[i];
+                }
+            }
+            return s;
+        }
+    }
+
+    /**
+     * 某个步骤合并后的统计结果
+     */
+    public static final class Snapshot {
+
+        long in;
+        long out;
+        long nanos;
+        long max;
+        long allocated;
+        final long[] buckets = new long[BUCKETS];
+
+        Snapshot() {
+        }
+
+        public long in() {
+            return in;
+        }
+
+        public long out() {
+            return out;
+        }
+
+        /**
+         * 输出个数 / 输入个数，没有输入时为 1
+         */
+        public double selectivity() {
+            return in == 0 ? 1 : (double) out / in;
+        }
+
+        public long totalNanos() {
+            return nanos;
+        }
+
+        public long maxNanos() {
+            return max;
+        }
+
+        public long allocatedBytes() {
+            return allocated;
+        }
+
+        public double mean() {
+            long timed = 0;
+            for (long c : buckets) {
+                timed += c;
+            }
+            return timed == 0 ? 0 : (double) nanos / timed;
+        }
+
+        /**
+         * 第 q（0~1）分位的耗时（纳秒），返回所在桶的上界，且不超过最大值
+         */
+        public long percentile(double q) {
+            long total = 0;
+            for (long c : buckets) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.xc.learnjava.stream;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * "K:V" 这类分隔记录的拆分与收集
+ * StreamTest.outputStream 中 Collectors.toMap 的写法对每条记录调用两次 s.indexOf(':')，再截取两个子串。
+ * 这里每条记录只找一次分隔符，得到一个 Record，key/value 都是原始字符序列上的 CharView，调用方需要时才转成 String。
+ * 1.toMap/toConcurrentMap：收集成 Map<String, String>，每条记录只创建 key、value 两个字符串；
+ * 2.toViewMap：收集成 Map<CharView, CharView>，不复制任何字符；
+ * 3.stream：把一整块缓冲区按行拆成 Record 流，可以按行边界切分后并行处理。
+ * 没有分隔符的记录抛出 IllegalArgumentException。
+ *
+ * @author joey
+ */
+public final class Records {
+
+    private Records() {
+    }
+
+    /**
+     * 一条 "key{delimiter}value" 记录，key 为第一个分隔符之前的部分
+     */
+    public static final class Record {
+
+        private final CharSequence source;
+        private final int start;
+        private final int separator;
+        private final int end;
+
+        Record(CharSequence source, int start, int separator, int end) {
+            this.source = source;
+            this.start = start;
+            this.separator = separator;
+            this.end = end;
+        }
+
+        public CharView key() {
+            return new CharView(source, start, separator);
+        }
+
+        public CharView value() {
+            return new CharView(source, separator + 1, end);
+        }
+
+        public String keyString() {
+            return substring(source, start, separator);
+        }
+
+        public String valueString() {
+            return substring(source, separator + 1, end);
+        }
+
+        @Override
+        public String toString() {
+            return substring(source, start, end);
+        }
+    }
+
+    /**
+     * 拆分一条记录
+     */
+    public static Record split(CharSequence record, char delimiter) {
+        return split(record, 0, record.length(), delimiter);
+    }
+
+    static Record split(CharSequence source, int start, int end, char delimiter) {
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == delimiter) {
+                return new Record(source, start, i, end);
+            }
+        }
+        throw new IllegalArgumentException("no '" + delimiter + "' in record: " + substring(source, start, end));
+    }
+
+    /**
+     * 收集成 Map<String, String>，parallel() 时每个线程各自收集，按出现顺序合并
+     */
+    public static Collector<CharSequence, ?, Map<String, String>> toMap(char delimiter, DuplicateKeyPolicy policy) {
+        return ParallelCollectors.intoMap((m, s) -> {
+            Record r = split(s, delimiter);
+            policy.put(m, r.keyString(), r.valueString());
+        }, policy);
+    }
+
+    /**
+     * 并发版本：所有线程写同一个 ConcurrentHashMap，不再保证出现顺序
+     */
+    public static Collector<CharSequence, ?, ConcurrentMap<String, String>> toConcurrentMap(char delimiter, DuplicateKeyPolicy policy) {
+        return ParallelCollectors.intoConcurrentMap((m, s) -> {
+            Record r = split(s, delimiter);
+            policy.put(m, r.keyString(), r.valueString());
+        }, policy);
+    }
+
+    /**
+     * 收集成 Map<CharView, CharView>，key/value 都是原始记录上的视图
+     */
+    public static Collector<CharSequence, ?, Map<CharView, CharView>> toViewMap(char delimiter, DuplicateKeyPolicy policy) {
+        return ParallelCollectors.intoMap((m, s) -> {
+            Record r = split(s, delimiter);
+            policy.put(m, r.key(), r.value());
+        }, policy);
+    }
+
+    /**
+     * 把 buffer 按 lineDelimiter 拆成记录流，空行跳过，行尾的 '\r' 会被去掉
+     */
+    public static Stream<Record> stream(CharSequence buffer, char lineDelimiter, char fieldDelimiter) {
+        return StreamSupport.stream(new RecordSpliterator(buffer, 0, buffer.length(), lineDelimiter, fieldDelimiter), false);
+    }
+
+    private static String substring(CharSequence source, int start, int end) {
+        if (source instanceof String) {
+            return ((String) source).substring(start, end);
+        }
+        return new StringBuilder(end - start).append(source, start, end).toString();
+    }
+
+    /**
+     * 按行遍历 [from, to)，切分时从中点向后找到下一个行分隔符
+     */
+    static final class RecordSpliterator implements Spliterator<Record> {
+
+        private final CharSequence buffer;
+        private int from;
+        private final int to;
+        private final char lineDelimiter;
+        private final char fieldDelimiter;
+
+        RecordSpliterator(CharSequence buffer, int from, int to, char lineDelimiter, char fieldDelimiter) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.lineDelimiter = lineDelimiter;
+            this.fieldDelimiter = fieldDelimiter;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Record> action) {
+            while (from < to) {
+                int end = from;
+                while (end < to && buffer.charAt(end) != lineDelimiter) {
+                    end++;
+                }
+                int start = from;
+                from = end + 1;
+                if (end > start && buffer.charAt(end - 1) == '\r') {
+                    end--;
+                }
+                if (end > start) {
+                    action.accept(split(buffer, start, end, fieldDelimiter));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Record> trySplit() {
+            int mid = from + ((to - from) >>> 1);
+            while (mid < to && buffer.charAt(mid) != lineDelimiter) {
+                mid++;
+            }
+            if (mid >= to - 1 || mid <= from) {
+                return null;
+            }
+            RecordSpliterator prefix = new RecordSpliterator(buffer, from, mid + 1, lineDelimiter, fieldDelimiter);
+            from = mid + 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            //不知道确切的行数，只能给出字符数作为上界
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
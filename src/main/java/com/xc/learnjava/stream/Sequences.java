@@ -0,0 +1,69 @@
+package com.xc.learnjava.stream;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * 基本类型的序列源，用来替代 StreamTest.NatualSupplier 这类基于 Supplier 的写法
+ * 1.Stream.generate(new NatualSupplier()) 每个元素都要装箱，Supplier 的状态被所有线程共享，parallel() 下结果错误；
+ * 2.generate 得到的是无大小（unsized）的流，并行时只能按批次串行地切分；
+ * 3.这里的序列直接用 IntStream.range/LongStream.range，它们是 SIZED|SUBSIZED 的，可以均匀地切分给 ForkJoin 的工作线程。
+ *
+ * "无限"自然数序列其实是一个很大的区间（int 到 Integer.MAX_VALUE，long 到 Long.MAX_VALUE - 1），
+ * 因为区间大小已知，后面的 limit(n) 可以直接截取前 n 个下标，而不必像 generate 那样边生成边计数。
+ *
+ * @author joey
+ */
+public final class Sequences {
+
+    private Sequences() {
+    }
+
+    /**
+     * [startInclusive, endExclusive) 上的 int 序列
+     */
+    public static IntStream ints(int startInclusive, int endExclusive) {
+        return IntStream.range(startInclusive, endExclusive);
+    }
+
+    /**
+     * 1, 2, 3, ... , Integer.MAX_VALUE
+     */
+    public static IntStream naturalInts() {
+        return IntStream.rangeClosed(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 前 count 个自然数，等价于 naturalInts().limit(count)，但不经过 limit 的切片逻辑
+     */
+    public static IntStream naturalInts(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        return IntStream.rangeClosed(1, count);
+    }
+
+    /**
+     * [startInclusive, endExclusive) 上的 long 序列
+     */
+    public static LongStream longs(long startInclusive, long endExclusive) {
+        return LongStream.range(startInclusive, endExclusive);
+    }
+
+    /**
+     * 1, 2, 3, ... , Long.MAX_VALUE - 1
+     */
+    public static LongStream naturalLongs() {
+        return LongStream.range(1, Long.MAX_VALUE);
+    }
+
+    /**
+     * 前 count 个自然数，等价于 naturalLongs().limit(count)
+     */
+    public static LongStream naturalLongs(long count) {
+        if (count < 0 || count == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("count out of range: " + count);
+        }
+        return LongStream.rangeClosed(1, count);
+    }
+}
@@ -0,0 +1,603 @@
+package com.xc.learnjava.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * 取最大（或最小）的 k 个元素，替代 sorted().limit(k)
+ * StreamTest.OtherOppStream、mapStream 中的 sorted() 要先把所有元素缓存下来再整体排序，复杂度 O(n log n)，即使只需要前几个。
+ * 1.largest/smallest 收集器用一个最多 k 个元素的堆保存当前最好的 k 个元素，复杂度 O(n log k)，内存 O(min(k, n))；
+ * 2.parallel() 时每个线程一个堆，合并时把较小的堆逐个放入较大的堆；
+ * 3.IntStream/LongStream/DoubleStream 有对应的重载，堆是基本类型数组，不装箱；double 的比较与 Double.compare 相同（NaN 最大）；
+ * 4.结果按从好到坏排列：largest 为降序，smallest 为升序；相等元素之间的先后不保证；
+ * 5.partialSort 是数组上的部分排序：用快速选择把最小的 k 个元素移到数组前部，再只对这 k 个排序，平均复杂度 O(n + k log k)。
+ *
+ * @author joey
+ */
+public final class TopK {
+
+    /**
+     * 堆的初始容量，之后按两倍增长到 k；并行收集时每个分片一个堆，不能一开始就分配 k 个位置
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    private TopK() {
+    }
+
+    //------------------------------------------------------------ 收集器
+
+    public static <T extends Comparable<? super T>> Collector<T, ?, List<T>> largest(int k) {
+        return largest(k, Comparator.<T>naturalOrder());
+    }
+
+    public static <T extends Comparable<? super T>> Collector<T, ?, List<T>> smallest(int k) {
+        return smallest(k, Comparator.<T>naturalOrder());
+    }
+
+    /**
+     * 按 comparator 最大的 k 个元素，降序
+     */
+    public static <T> Collector<T, ?, List<T>> largest(int k, Comparator<? super T> comparator) {
+        return collector(k, comparator);
+    }
+
+    /**
+     * 按 comparator 最小的 k 个元素，升序
+     */
+    public static <T> Collector<T, ?, List<T>> smallest(int k, Comparator<? super T> comparator) {
+        return collector(k, comparator.reversed());
+    }
+
+    private static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> order) {
+        checkK(k);
+        return Collector.of(
+                () -> new ObjectHeap<T>(k, order),
+                ObjectHeap::offer,
+                ObjectHeap::merge,
+                ObjectHeap::toList,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    //------------------------------------------------------------ 基本类型
+
+    public static int[] largest(IntStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new IntHeap(k, true), IntHeap::offer, IntHeap::merge).toArray();
+    }
+
+    public static int[] smallest(IntStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new IntHeap(k, false), IntHeap::offer, IntHeap::merge).toArray();
+    }
+
+    public static long[] largest(LongStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new LongHeap(k, true), LongHeap::offer, LongHeap::merge).toArray();
+    }
+
+    public static long[] smallest(LongStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new LongHeap(k, false), LongHeap::offer, LongHeap::merge).toArray();
+    }
+
+    public static double[] largest(DoubleStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new DoubleHeap(k, true), DoubleHeap::offer, DoubleHeap::merge).toArray();
+    }
+
+    public static double[] smallest(DoubleStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new DoubleHeap(k, false), DoubleHeap::offer, DoubleHeap::merge).toArray();
+    }
+
+    private static int grow(int capacity, int k) {
+        return (int) Math.min(k, Math.max(1L, capacity * 2L));
+    }
+
+    private static void checkK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+    }
+
+    /**
+     * 堆顶是保留的元素中最差的一个（按 order 最小），新元素比堆顶好时替换堆顶
+     */
+    static final class ObjectHeap<T> {
+
+        private final int k;
+        private final Comparator<? super T> order;
+        private Object[] heap;
+        private int size;
+
+        ObjectHeap(int k, Comparator<? super T> order) {
+            this.k = k;
+            this.heap = new Object[Math.min(k, INITIAL_CAPACITY)];
+            this.order = order;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T at(int i) {
+            return (T) heap[i];
+        }
+
+        void offer(T t) {
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, grow(heap.length, k));
+                }
+                int i = size++;
+                //上浮
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (order.compare(t, at(parent)) >= 0) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = t;
+            } else if (size > 0 && order.compare(t, at(0)) > 0) {
+                siftDown(t);
+            }
+        }
+
+        private void siftDown(T t) {
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && order.compare(at(right), at(child)) < 0) {
+                    child = right;
+                }
+                if (order.compare(t, at(child)) <= 0) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = t;
+        }
+
+        ObjectHeap<T> merge(ObjectHeap<T> other) {
+            ObjectHeap<T> into = size >= other.size ? this : other;
+            ObjectHeap<T> from = into == this ? other : this;
+            for (int i = 0; i < from.size; i++) {
+                into.offer(from.at(i));
+            }
+            return into;
+        }
+
+        List<T> toList() {
+            List<T> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(at(i));
+            }
+            list.sort(order.reversed());
+            return list;
+        }
+    }
+
+    static final class IntHeap {
+
+        private final int k;
+        private final boolean largest;
+        private int[] heap;
+        private int size;
+
+        IntHeap(int k, boolean largest) {
+            this.k = k;
+            this.heap = new int[Math.min(k, INITIAL_CAPACITY)];
+            this.largest = largest;
+        }
+
+        /**
+         * a 比 b 差
+         */
+        private boolean worse(int a, int b) {
+            return largest ? a < b : a > b;
+        }
+
+        void offer(int v) {
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, grow(heap.length, k));
+                }
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(v, heap[parent])) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = v;
+            } else if (size > 0 && worse(heap[0], v)) {
+                int i = 0;
+                int half = size >>> 1;
+                while (i < half) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && worse(heap[child + 1], heap[child])) {
+                        child++;
+                    }
+                    if (!worse(heap[child], v)) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = v;
+            }
+        }
+
+        void merge(IntHeap other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+        }
+
+        int[] toArray() {
+            int[] a = Arrays.copyOf(heap, size);
+            Arrays.sort(a);
+            if (largest) {
+                for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+                    int t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                }
+            }
+            return a;
+        }
+    }
+
+    static final class LongHeap {
+
+        private final int k;
+        private final boolean largest;
+        private long[] heap;
+        private int size;
+
+        LongHeap(int k, boolean largest) {
+            this.k = k;
+            this.heap = new long[Math.min(k, INITIAL_CAPACITY)];
+            this.largest = largest;
+        }
+
+        private boolean worse(long a, long b) {
+            return largest ? a < b : a > b;
+        }
+
+        void offer(long v) {
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, grow(heap.length, k));
+                }
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(v, heap[parent])) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = v;
+            } else if (size > 0 && worse(heap[0], v)) {
+                int i = 0;
+                int half = size >>> 1;
+                while (i < half) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && worse(heap[child + 1], heap[child])) {
+                        child++;
+                    }
+                    if (!worse(heap[child], v)) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = v;
+            }
+        }
+
+        void merge(LongHeap other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+        }
+
+        long[] toArray() {
+            long[] a = Arrays.copyOf(heap, size);
+            Arrays.sort(a);
+            if (largest) {
+                for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+                    long t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                }
+            }
+            return a;
+        }
+    }
+
+    static final class DoubleHeap {
+
+        private final int k;
+        private final boolean largest;
+        private double[] heap;
+        private int size;
+
+        DoubleHeap(int k, boolean largest) {
+            this.k = k;
+            this.heap = new double[Math.min(k, INITIAL_CAPACITY)];
+            this.largest = largest;
+        }
+
+        private boolean worse(double a, double b) {
+            int c = Double.compare(a, b);
+            return largest ? c < 0 : c > 0;
+        }
+
+        void offer(double v) {
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, grow(heap.length, k));
+                }
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(v, heap[parent])) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = v;
+            } else if (size > 0 && worse(heap[0], v)) {
+                int i = 0;
+                int half = size >>> 1;
+                while (i < half) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && worse(heap[child + 1], heap[child])) {
+                        child++;
+                    }
+                    if (!worse(heap[child], v)) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = v;
+            }
+        }
+
+        void merge(DoubleHeap other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+        }
+
+        double[] toArray() {
+            double[] a = Arrays.copyOf(heap, size);
+            Arrays.sort(a);
+            if (largest) {
+                for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+                    double t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                }
+            }
+            return a;
+        }
+    }
+
+    //------------------------------------------------------------ 部分排序
+
+    /**
+     * 把按 comparator 最小的 k 个元素按顺序放到 a[0, k)，其余元素的顺序不确定；取最大的 k 个时传入 comparator.reversed()
+     */
+    public static <T> void partialSort(T[] a, int k, Comparator<? super T> comparator) {
+        checkPartial(a.length, k);
+        if (k == 0) {
+            return;
+        }
+        int lo = 0;
+        int hi = a.length - 1;
+        int n = k - 1;
+        while (lo < hi) {
+            int mid = lo + ((hi - lo) >>> 1);
+            T pivot = medianOfThree(a[lo], a[mid], a[hi], comparator);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (comparator.compare(a[i], pivot) < 0) {
+                    i++;
+                }
+                while (comparator.compare(a[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    T t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (n <= j) {
+                hi = j;
+            } else if (n >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        Arrays.sort(a, 0, k, comparator);
+    }
+
+    /**
+     * 把最小的 k 个元素按升序放到 a[0, k)
+     */
+    public static void partialSort(int[] a, int k) {
+        checkPartial(a.length, k);
+        if (k == 0) {
+            return;
+        }
+        int lo = 0;
+        int hi = a.length - 1;
+        int n = k - 1;
+        while (lo < hi) {
+            int mid = lo + ((hi - lo) >>> 1);
+            int x = a[lo];
+            int y = a[mid];
+            int z = a[hi];
+            int pivot = Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (n <= j) {
+                hi = j;
+            } else if (n >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        Arrays.sort(a, 0, k);
+    }
+
+    /**
+     * 把最小的 k 个元素按升序放到 a[0, k)
+     */
+    public static void partialSort(long[] a, int k) {
+        checkPartial(a.length, k);
+        if (k == 0) {
+            return;
+        }
+        int lo = 0;
+        int hi = a.length - 1;
+        int n = k - 1;
+        while (lo < hi) {
+            int mid = lo + ((hi - lo) >>> 1);
+            long x = a[lo];
+            long y = a[mid];
+            long z = a[hi];
+            long pivot = Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (n <= j) {
+                hi = j;
+            } else if (n >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        Arrays.sort(a, 0, k);
+    }
+
+    /**
+     * 把最小的 k 个元素按升序放到 a[0, k)，顺序与 Arrays.sort(double[]) 相同（-0.0 在 0.0 之前，NaN 在最后）
+     */
+    public static void partialSort(double[] a, int k) {
+        checkPartial(a.length, k);
+        if (k == 0) {
+            return;
+        }
+        int lo = 0;
+        int hi = a.length - 1;
+        int n = k - 1;
+        while (lo < hi) {
+            int mid = lo + ((hi - lo) >>> 1);
+            double pivot = medianOfThree(a[lo], a[mid], a[hi]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (Double.compare(a[i], pivot) < 0) {
+                    i++;
+                }
+                while (Double.compare(a[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    double t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (n <= j) {
+                hi = j;
+            } else if (n >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        Arrays.sort(a, 0, k);
+    }
+
+    private static void checkPartial(int length, int k) {
+        if (k < 0 || k > length) {
+            throw new IllegalArgumentException("k must be in [0, " + length + "]: " + k);
+        }
+    }
+
+    /**
+     * 按 Double.compare 取中位数，不装箱
+     */
+    private static double medianOfThree(double x, double y, double z) {
+        if (Double.compare(x, y) > 0) {
+            double t = x;
+            x = y;
+            y = t;
+        }
+        if (Double.compare(y, z) <= 0) {
+            return y;
+        }
+        return Double.compare(x, z) >= 0 ? x : z;
+    }
+
+    private static <T> T medianOfThree(T x, T y, T z, Comparator<? super T> c) {
+        if (c.compare(x, y) > 0) {
+            T t = x;
+            x = y;
+            y = t;
+        }
+        //x <= y
+        if (c.compare(y, z) <= 0) {
+            return y;
+        }
+        return c.compare(x, z) >= 0 ? x : z;
+    }
+}
@@ -0,0 +1,404 @@
+package com.xc.learnjava.stream;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.BaseStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 无限流上的滚动（tumbling）与滑动（sliding）窗口聚合
+ * StreamTest 中 Stream.generate(new LocalDateSupplier())、NatualSupplier、FibSupplier 这类无限流只能先 limit() 再整体 reduce/collect，
+ * 每来一个新元素都要从头重新计算。
+ * 这里把流转换为窗口结果的流，每个窗口给出元素个数、和、最小值、最大值：
+ * 1.按个数分窗口时，元素的位置是它的序号；按日期分窗口时，位置是元素日期的 epoch-day，日期必须非递减；
+ * 2.窗口为 [start, start + size)，每隔 step 个位置一个，step == size 时为滚动窗口，step < size 时为滑动窗口；
+ * 3.元素进入和离开窗口时增量更新个数与和，最小值、最大值用单调队列维护，每个元素均摊 O(1)，与窗口大小无关；
+ * 4.窗口按个数分时凑满即输出；按日期分时，出现窗口结束之后的日期才输出，没有元素的窗口不输出；
+ * 5.有限流结束时，如果还有元素没有出现在任何已输出的窗口中，输出最后一个不完整的窗口。
+ * 结果流是顺序的，不能拆分；和按 long 的补码运算，只要窗口内真实的和不超过 long 的范围，中间溢出不影响结果。
+ *
+ * @author joey
+ */
+public final class Windows {
+
+    private Windows() {
+    }
+
+    /**
+     * 每 size 个元素一个窗口
+     */
+    public static <T> Stream<Window> tumbling(Stream<T> stream, int size, ToLongFunction<? super T> value) {
+        return sliding(stream, size, size, value);
+    }
+
+    /**
+     * 最近 size 个元素为一个窗口，每 step 个元素输出一次
+     */
+    public static <T> Stream<Window> sliding(Stream<T> stream, int size, int step, ToLongFunction<? super T> value) {
+        Objects.requireNonNull(value, "value");
+        Engine engine = new Engine(size, step, null, true, false);
+        Spliterator<T> source = stream.spliterator();
+        long[] index = new long[1];
+        return windows(stream, engine, e -> source.tryAdvance(t -> e.add(index[0]++, value.applyAsLong(t))));
+    }
+
+    public static Stream<Window> tumbling(LongStream stream, int size) {
+        return sliding(stream, size, size);
+    }
+
+    public static Stream<Window> sliding(LongStream stream, int size, int step) {
+        Engine engine = new Engine(size, step, null, true, false);
+        Spliterator.OfLong source = stream.spliterator();
+        long[] index = new long[1];
+        return windows(stream, engine, e -> source.tryAdvance((LongConsumer) v -> e.add(index[0]++, v)));
+    }
+
+    /**
+     * 每 days 天一个窗口，第一个窗口从第一个元素的日期开始
+     */
+    public static <T> Stream<Window> tumblingByDate(Stream<T> stream, int days,
+                                                    Function<? super T, LocalDate> date, ToLongFunction<? super T> value) {
+        return byDate(stream, days, days, null, date, value);
+    }
+
+    /**
+     * 最近 days 天为一个窗口，每 stepDays 天输出一次，第一个窗口从第一个元素的日期开始
+     */
+    public static <T> Stream<Window> slidingByDate(Stream<T> stream, int days, int stepDays,
+                                                   Function<? super T, LocalDate> date, ToLongFunction<? super T> value) {
+        return byDate(stream, days, stepDays, null, date, value);
+    }
+
+    /**
+     * 窗口的起点为 origin + k * stepDays（例如传入一个星期一，按自然周对齐），包含第一个元素的窗口都会输出
+     */
+    public static <T> Stream<Window> slidingByDate(Stream<T> stream, int days, int stepDays, LocalDate origin,
+                                                   Function<? super T, LocalDate> date, ToLongFunction<? super T> value) {
+        return byDate(stream, days, stepDays, Objects.requireNonNull(origin, "origin"), date, value);
+    }
+
+    private static <T> Stream<Window> byDate(Stream<T> stream, int days, int stepDays, LocalDate origin,
+                                             Function<? super T, LocalDate> date, ToLongFunction<? super T> value) {
+        Objects.requireNonNull(date, "date");
+        Objects.requireNonNull(value, "value");
+        Engine engine = new Engine(days, stepDays, origin == null ? null : origin.toEpochDay(), false, true);
+        Spliterator<T> source = stream.spliterator();
+        return windows(stream, engine, e -> source.tryAdvance(t -> e.add(date.apply(t).toEpochDay(), value.applyAsLong(t))));
+    }
+
+    private static Stream<Window> windows(BaseStream<?, ?> source, Engine engine, Predicate<Engine> pull) {
+        return StreamSupport.stream(new WindowSpliterator(engine, pull), false).onClose(source::close);
+    }
+
+    /**
+     * 一个窗口的聚合结果，窗口为 [start, end)
+     */
+    public static final class Window {
+
+        private final long start;
+        private final long end;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+        private final boolean dated;
+
+        Window(long start, long end, long count, long sum, long min, long max, boolean dated) {
+            this.start = start;
+            this.end = end;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.dated = dated;
+        }
+
+        /**
+         * 起点（包含），按个数分时为序号，按日期分时为 epoch-day
+         */
+        public long start() {
+            return start;
+        }
+
+        /**
+         * 终点（不包含）
+         */
+        public long end() {
+            return end;
+        }
+
+        public LocalDate startDate() {
+            return LocalDate.ofEpochDay(start);
+        }
+
+        /**
+         * 窗口的最后一天
+         */
+        public LocalDate lastDate() {
+            return LocalDate.ofEpochDay(end - 1);
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        public long min() {
+            return min;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            return (double) sum / count;
+        }
+
+        @Override
+        public String toString() {
+            String range = dated ? "[" + startDate() + ", " + lastDate() + "]" : "[" + start + ", " + end + ")";
+            return "Window" + range + "{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + "}";
+        }
+    }
+
+    static final class WindowSpliterator implements Spliterator<Window> {
+
+        private final Engine engine;
+        private final Predicate<Engine> pull;
+        private boolean exhausted;
+
+        WindowSpliterator(Engine engine, Predicate<Engine> pull) {
+            this.engine = engine;
+            this.pull = pull;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Window> action) {
+            while (engine.ready.isEmpty()) {
+                if (exhausted) {
+                    return false;
+                }
+                if (!pull.test(engine)) {
+                    exhausted = true;
+                    engine.finish();
+                }
+            }
+            action.accept(engine.ready.poll());
+            return true;
+        }
+
+        @Override
+        public Spliterator<Window> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * 增量维护当前窗口，已经结束的窗口放入 ready
+     */
+    static final class Engine {
+
+        private final long size;
+        private final long step;
+        private final boolean dense;
+        private final boolean dated;
+        private final boolean explicitOrigin;
+        private long origin;
+
+        /**
+         * 当前窗口 [start, end)
+         */
+        private long start;
+        private long end;
+        private boolean started;
+        private long last = Long.MIN_VALUE;
+        /**
+         * 最后输出的窗口的终点，用于判断结束时是否还有没输出过的元素
+         */
+        private long emittedEnd = Long.MIN_VALUE;
+
+        private long sum;
+        private final Ring all = new Ring();
+        private final Ring minQueue = new Ring();
+        private final Ring maxQueue = new Ring();
+        final ArrayDeque<Window> ready = new ArrayDeque<>();
+
+        /**
+         * dense 为 true 时位置是连续的序号，窗口凑满立即输出
+         */
+        Engine(int size, int step, Long origin, boolean dense, boolean dated) {
+            if (size <= 0 || step <= 0) {
+                throw new IllegalArgumentException("size and step must be positive: " + size + ", " + step);
+            }
+            this.size = size;
+            this.step = step;
+            this.dense = dense;
+            this.dated = dated;
+            this.explicitOrigin = origin != null;
+            this.origin = origin == null ? 0 : origin;
+        }
+
+        void add(long position, long value) {
+            if (!started) {
+                started = true;
+                if (!explicitOrigin) {
+                    origin = position;
+                }
+                start = explicitOrigin ? firstStartContaining(position) : position;
+                end = start + size;
+            } else if (position < last) {
+                throw new IllegalStateException("positions must be non-decreasing: " + position + " after " + last);
+            }
+            last = position;
+            while (position >= end) {
+                if (all.isEmpty()) {
+                    //剩下的窗口中都没有元素，直接跳到包含 position 的第一个窗口
+                    start = firstStartContaining(position);
+                    end = start + size;
+                    break;
+                }
+                close();
+            }
+            if (position >= start) {
+                push(position, value);
+            }
+            if (dense && position == end - 1) {
+                close();
+            }
+        }
+
+        private void push(long position, long value) {
+            all.addLast(position, value);
+            sum += value;
+            while (!minQueue.isEmpty() && minQueue.lastValue() >= value) {
+                minQueue.removeLast();
+            }
+            minQueue.addLast(position, value);
+            while (!maxQueue.isEmpty() && maxQueue.lastValue() <= value) {
+                maxQueue.removeLast();
+            }
+            maxQueue.addLast(position, value);
+        }
+
+        /**
+         * 输出当前窗口，然后移动到下一个窗口，并移除不在新窗口中的元素
+         */
+        private void close() {
+            if (!all.isEmpty()) {
+                ready.add(new Window(start, end, all.size(), sum, minQueue.firstValue(), maxQueue.firstValue(), dated));
+                emittedEnd = end;
+            }
+            start += step;
+            end = start + size;
+            while (!all.isEmpty() && all.firstPosition() < start) {
+                sum -= all.firstValue();
+                all.removeFirst();
+            }
+            while (!minQueue.isEmpty() && minQueue.firstPosition() < start) {
+                minQueue.removeFirst();
+            }
+            while (!maxQueue.isEmpty() && maxQueue.firstPosition() < start) {
+                maxQueue.removeFirst();
+            }
+        }
+
+        void finish() {
+            if (started && last >= emittedEnd && !all.isEmpty()) {
+                close();
+            }
+        }
+
+        /**
+         * 包含 position 的第一个窗口的起点：origin + k * step 中满足 start + size > position 的最小值
+         */
+        private long firstStartContaining(long position) {
+            long a = position - size + 1 - origin;
+            return origin + -Math.floorDiv(-a, step) * step;
+        }
+    }
+
+    /**
+     * 可扩容的环形双端队列，每个元素是 (位置, 值)
+     */
+    static final class Ring {
+
+        private long[] positions = new long[16];
+        private long[] values = new long[16];
+        private int head;
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void addLast(long position, long value) {
+            if (size == positions.length) {
+                grow();
+            }
+            int i = (head + size) & (positions.length - 1);
+            positions[i] = position;
+            values[i] = value;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) & (positions.length - 1);
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        long firstPosition() {
+            return positions[head];
+        }
+
+        long firstValue() {
+            return values[head];
+        }
+
+        long lastValue() {
+            return values[(head + size - 1) & (positions.length - 1)];
+        }
+
+        private void grow() {
+            int n = positions.length;
+            long[] p = Arrays.copyOf(positions, n * 2);
+            long[] v = Arrays.copyOf(values, n * 2);
+            //把绕回到数组开头的部分移到后面
+            System.arraycopy(positions, 0, p, n, head);
+            System.arraycopy(values, 0, v, n, head);
+            positions = p;
+            values = v;
+        }
+    }
+}
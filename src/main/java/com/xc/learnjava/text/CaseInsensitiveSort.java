@@ -0,0 +1,238 @@
+package com.xc.learnjava.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+/**
+ * 忽略大小写排序，结果与 Arrays.sort(array, String::compareToIgnoreCase) 完全相同（包括相等元素的先后顺序）
+ * LambdaTest.test_01 与 StreamTest.OtherOppStream 中用 String::compareToIgnoreCase 排序，每比较一次都要对两边的字符重新做大小写转换，
+ * 一共 O(n log n) 次比较。这里先为每个字符串算一次"折叠键"，之后只比较折叠键：
+ * 1.compareToIgnoreCase 对每个字符比较的是 Character.toLowerCase(Character.toUpperCase(c))，折叠键就是把每个字符都换成这个值，
+ *   因此按折叠键的 String.compareTo 排序与按 compareToIgnoreCase 排序是等价的；本身已经是折叠形式的字符串直接用作键，不分配新对象；
+ * 2.SEQUENTIAL：Arrays.sort，PARALLEL：Arrays.parallelSort，两者都是稳定的；
+ * 3.RADIX：在折叠键上做 MSD 基数排序（每次按一个字节分桶，稳定），顶层分桶之后各桶并行排序。
+ * 含有代理对（supplementary 字符）的数组，新版本 JDK 的 compareToIgnoreCase 会按码点比较，这时退回到原来的比较器排序，以保证结果一致。
+ *
+ * @author joey
+ */
+public final class CaseInsensitiveSort {
+
+    public enum Mode {
+        SEQUENTIAL,
+        PARALLEL,
+        RADIX
+    }
+
+    /**
+     * 数组长度超过这个值时 sortIgnoreCase 改用并行排序
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * 基数排序中，子数组小于这个长度时改用插入排序
+     */
+    static final int INSERTION_CUTOFF = 32;
+
+    /**
+     * 基数排序的递归深度上限（按字节计），超过后余下部分改用 Arrays.sort
+     */
+    static final int MAX_RADIX_DEPTH = 128;
+
+    private CaseInsensitiveSort() {
+    }
+
+    /**
+     * 稳定的忽略大小写排序，数组较大时自动并行
+     */
+    public static void sortIgnoreCase(String[] array) {
+        sort(array, array.length >= PARALLEL_THRESHOLD ? Mode.PARALLEL : Mode.SEQUENTIAL);
+    }
+
+    public static void sort(String[] array, Mode mode) {
+        Keyed[] keyed = new Keyed[array.length];
+        for (int i = 0; i < array.length; i++) {
+            String key = foldKey(array[i]);
+            if (key == null) {
+                Arrays.sort(array, String::compareToIgnoreCase);
+                return;
+            }
+            keyed[i] = new Keyed(key, array[i]);
+        }
+        switch (mode) {
+            case PARALLEL:
+                Arrays.parallelSort(keyed);
+                break;
+            case RADIX:
+                radixSort(keyed);
+                break;
+            default:
+                Arrays.sort(keyed);
+                break;
+        }
+        for (int i = 0; i < keyed.length; i++) {
+            array[i] = keyed[i].value;
+        }
+    }
+
+    /**
+     * 收集成按忽略大小写排好序的 List
+     */
+    public static Collector<String, ?, List<String>> toSortedList() {
+        return Collector.of(
+                ArrayList<String>::new,
+                List::add,
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                list -> {
+                    String[] array = list.toArray(new String[0]);
+                    sortIgnoreCase(array);
+                    return Arrays.asList(array);
+                });
+    }
+
+    /**
+     * 折叠键：每个字符替换为 toLowerCase(toUpperCase(c))；字符串含有代理对时返回 null
+     */
+    public static String foldKey(String s) {
+        int n = s.length();
+        int i = 0;
+        char c = 0;
+        //先找到第一个需要转换的字符，之前的部分原样保留
+        for (; i < n; i++) {
+            c = s.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return null;
+            }
+            if (fold(c) != c) {
+                break;
+            }
+        }
+        if (i == n) {
+            return s;
+        }
+        char[] chars = s.toCharArray();
+        for (; i < n; i++) {
+            c = chars[i];
+            if (Character.isSurrogate(c)) {
+                return null;
+            }
+            chars[i] = fold(c);
+        }
+        return new String(chars);
+    }
+
+    static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * 折叠键与原字符串，按折叠键比较
+     */
+    static final class Keyed implements Comparable<Keyed> {
+
+        final String key;
+        final String value;
+
+        Keyed(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Keyed o) {
+            return key.compareTo(o.key);
+        }
+    }
+
+    static void radixSort(Keyed[] a) {
+        radixSort(a, new Keyed[a.length], 0, a.length, 0);
+    }
+
+    /**
+     * 对 [lo, hi) 按第 d 个字节做 MSD 基数排序，d 为偶数时取字符的高字节，奇数时取低字节；
+     * 子数组足够大时各个桶并行排序，桶之间互不重叠，可以共用同一个 aux
+     */
+    static void radixSort(Keyed[] a, Keyed[] aux, int lo, int hi, int d) {
+        if (hi - lo < INSERTION_CUTOFF) {
+            insertionSort(a, lo, hi);
+            return;
+        }
+        if (d >= MAX_RADIX_DEPTH) {
+            Arrays.sort(a, lo, hi);
+            return;
+        }
+        int[] bounds = distribute(a, aux, lo, hi, d);
+        //桶 0 是已经结束的字符串，全部相等，不需要再排序
+        if (hi - lo >= PARALLEL_THRESHOLD) {
+            IntStream.range(1, bounds.length - 1)
+                    .parallel()
+                    .filter(b -> bounds[b + 1] - bounds[b] > 1)
+                    .forEach(b -> radixSort(a, aux, bounds[b], bounds[b + 1], d + 1));
+        } else {
+            for (int b = 1; b < bounds.length - 1; b++) {
+                if (bounds[b + 1] - bounds[b] > 1) {
+                    radixSort(a, aux, bounds[b], bounds[b + 1], d + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按第 d 个字节把 [lo, hi) 稳定地分到 257 个桶里，桶 0 是已经结束的字符串，桶 k 是字节值为 k - 1 的字符串；
+     * 返回各桶的边界，桶 k 为 [bounds[k], bounds[k + 1])
+     */
+    static int[] distribute(Keyed[] a, Keyed[] aux, int lo, int hi, int d) {
+        int[] count = new int[259];
+        for (int i = lo; i < hi; i++) {
+            count[digit(a[i].key, d) + 2]++;
+        }
+        //所有元素落在同一个桶里时不必搬动
+        boolean single = count[digit(a[lo].key, d) + 2] == hi - lo;
+        for (int r = 0; r < 258; r++) {
+            count[r + 1] += count[r];
+        }
+        int[] bounds = new int[258];
+        for (int k = 0; k < 258; k++) {
+            bounds[k] = lo + count[k];
+        }
+        if (!single) {
+            for (int i = lo; i < hi; i++) {
+                aux[lo + count[digit(a[i].key, d) + 1]++] = a[i];
+            }
+            System.arraycopy(aux, lo, a, lo, hi - lo);
+        }
+        return bounds;
+    }
+
+    /**
+     * 第 d 个字节，字符串已经结束时返回 -1
+     */
+    static int digit(String key, int d) {
+        int i = d >> 1;
+        if (i >= key.length()) {
+            return -1;
+        }
+        char c = key.charAt(i);
+        return (d & 1) == 0 ? c >>> 8 : c & 0xff;
+    }
+
+    static void insertionSort(Keyed[] a, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            Keyed x = a[i];
+            int j = i - 1;
+            while (j >= lo && a[j].key.compareTo(x.key) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = x;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.xc.learnjava.text;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * 把 Unicode 码点数组批量转换为 String、char[] 或 UTF-8 字节
+ * TutorialTest.main 中用 "" + (char) a + (char) b + (char) c 拼接，每一步都生成中间字符串，并且 (char) 会截断大于 0xFFFF 的码点。
+ * 1.大于 0xFFFF 的码点（补充字符）转换为一对代理字符（surrogate pair），UTF-8 编码为 4 个字节；
+ * 2.码点数组中单独出现的代理字符，转换为 char 时原样保留（与 new String(int[], int, int) 一致），编码为 UTF-8 时写 '?'（与 String.getBytes(UTF_8) 一致）；
+ * 3.小于 0 或大于 0x10FFFF 的值不是码点，抛出 IllegalArgumentException；
+ * 4.encodeUtf8 写入调用方复用的 ByteBuffer，空间不足时停在完整的码点上，返回下一个要编码的下标，清空缓冲区后可以继续；
+ * 5.超过 PARALLEL_THRESHOLD 个码点时并行转换：先并行计算每块的输出长度，求前缀和得到每块的起始位置，再并行写入同一个数组。
+ *
+ * @author joey
+ */
+public final class CodePoints {
+
+    /**
+     * 超过这个长度并行转换，同时也是每块的大小
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private CodePoints() {
+    }
+
+    //------------------------------------------------------------ String、char[]
+
+    public static String toString(int... codePoints) {
+        return toString(codePoints, 0, codePoints.length);
+    }
+
+    /**
+     * codePoints 的 [from, to) 部分转换为 String
+     */
+    public static String toString(int[] codePoints, int from, int to) {
+        checkRange(codePoints, from, to);
+        if (to - from < PARALLEL_THRESHOLD) {
+            return new String(codePoints, from, to - from);
+        }
+        return new String(toChars(codePoints, from, to));
+    }
+
+    /**
+     * 码点流转换为 String，parallel() 下每个线程各自拼接再按顺序合并
+     */
+    public static String toString(IntStream codePoints) {
+        return codePoints.collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+    }
+
+    public static char[] toChars(int[] codePoints) {
+        return toChars(codePoints, 0, codePoints.length);
+    }
+
+    public static char[] toChars(int[] codePoints, int from, int to) {
+        checkRange(codePoints, from, to);
+        if (to - from < PARALLEL_THRESHOLD) {
+            char[] chars = new char[charLength(codePoints, from, to)];
+            putChars(codePoints, from, to, chars, 0);
+            return chars;
+        }
+        int chunks = chunks(from, to);
+        int[] starts = new int[chunks + 1];
+        chunkStream(chunks).forEach(c -> starts[c + 1] = charLength(codePoints, chunkFrom(from, c), chunkTo(from, to, c)));
+        prefixSum(starts);
+        char[] chars = new char[starts[chunks]];
+        chunkStream(chunks).forEach(c -> putChars(codePoints, chunkFrom(from, c), chunkTo(from, to, c), chars, starts[c]));
+        return chars;
+    }
+
+    /**
+     * 写入 dst 的 offset 处，返回写入的 char 个数；dst 的空间不足时抛出 IndexOutOfBoundsException
+     */
+    public static int toChars(int[] codePoints, int from, int to, char[] dst, int offset) {
+        checkRange(codePoints, from, to);
+        int length = charLength(codePoints, from, to);
+        if (offset < 0 || offset > dst.length - length) {
+            throw new IndexOutOfBoundsException("need " + length + " chars at offset " + offset + ", capacity " + dst.length);
+        }
+        return putChars(codePoints, from, to, dst, offset) - offset;
+    }
+
+    /**
+     * 转换为 char 后的长度，补充字符占 2 个 char
+     */
+    public static int charLength(int[] codePoints, int from, int to) {
+        long n = to - from;
+        for (int i = from; i < to; i++) {
+            int cp = codePoints[i];
+            if ((cp >>> 16) != 0) {
+                check(cp, i);
+                n++;
+            }
+        }
+        if (n > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Required length exceeds implementation limit");
+        }
+        return (int) n;
+    }
+
+    private static int putChars(int[] codePoints, int from, int to, char[] dst, int pos) {
+        for (int i = from; i < to; i++) {
+            int cp = codePoints[i];
+            if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                dst[pos++] = (char) cp;
+            } else {
+                dst[pos++] = Character.highSurrogate(cp);
+                dst[pos++] = Character.lowSurrogate(cp);
+            }
+        }
+        return pos;
+    }
+
+    //------------------------------------------------------------ UTF-8
+
+    public static byte[] toUtf8(int[] codePoints) {
+        return toUtf8(codePoints, 0, codePoints.length);
+    }
+
+    public static byte[] toUtf8(int[] codePoints, int from, int to) {
+        checkRange(codePoints, from, to);
+        if (to - from < PARALLEL_THRESHOLD) {
+            byte[] bytes = new byte[utf8Length(codePoints, from, to)];
+            putUtf8(codePoints, from, to, bytes, 0);
+            return bytes;
+        }
+        int chunks = chunks(from, to);
+        int[] starts = new int[chunks + 1];
+        chunkStream(chunks).forEach(c -> starts[c + 1] = utf8Length(codePoints, chunkFrom(from, c), chunkTo(from, to, c)));
+        prefixSum(starts);
+        byte[] bytes = new byte[starts[chunks]];
+        chunkStream(chunks).forEach(c -> putUtf8(codePoints, chunkFrom(from, c), chunkTo(from, to, c), bytes, starts[c]));
+        return bytes;
+    }
+
+    /**
+     * UTF-8 编码后的字节数
+     */
+    public static int utf8Length(int[] codePoints, int from, int to) {
+        long n = 0;
+        for (int i = from; i < to; i++) {
+            n += utf8Length(codePoints[i], i);
+        }
+        if (n > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Required length exceeds implementation limit");
+        }
+        return (int) n;
+    }
+
+    /**
+     * 把 [from, to) 编码写入 dst 的 position 处，写入后 position 后移；
+     * 返回下一个没有写入的码点下标，等于 to 说明全部写完，否则 dst 的剩余空间不足以写入这个码点
+     */
+    public static int encodeUtf8(int[] codePoints, int from, int to, ByteBuffer dst) {
+        checkRange(codePoints, from, to);
+        int i = from;
+        if (dst.hasArray()) {
+            byte[] array = dst.array();
+            int base = dst.arrayOffset();
+            int pos = base + dst.position();
+            int limit = base + dst.limit();
+            for (; i < to; i++) {
+                int cp = codePoints[i];
+                if ((cp >>> 7) == 0 && pos < limit) {
+                    array[pos++] = (byte) cp;
+                    continue;
+                }
+                if (pos + utf8Length(cp, i) > limit) {
+                    break;
+                }
+                pos = putUtf8(cp, array, pos);
+            }
+            ((Buffer) dst).position(pos - base);
+            return i;
+        }
+        byte[] scratch = new byte[4];
+        for (; i < to; i++) {
+            int cp = codePoints[i];
+            int length = utf8Length(cp, i);
+            if (dst.remaining() < length) {
+                break;
+            }
+            if (length == 1) {
+                dst.put(cp < 0x80 ? (byte) cp : (byte) '?');
+            } else {
+                putUtf8(cp, scratch, 0);
+                dst.put(scratch, 0, length);
+            }
+        }
+        return i;
+    }
+
+    private static int utf8Length(int cp, int index) {
+        if (cp < 0x80) {
+            check(cp, index);
+            return 1;
+        } else if (cp < 0x800) {
+            return 2;
+        } else if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return Character.isSurrogate((char) cp) ? 1 : 3;
+        }
+        check(cp, index);
+        return 4;
+    }
+
+    private static int putUtf8(int[] codePoints, int from, int to, byte[] dst, int pos) {
+        for (int i = from; i < to; i++) {
+            int cp = codePoints[i];
+            if (cp < 0x80) {
+                dst[pos++] = (byte) cp;
+            } else {
+                pos = putUtf8(cp, dst, pos);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 写入一个已经检查过的码点，返回写入后的位置
+     */
+    private static int putUtf8(int cp, byte[] dst, int pos) {
+        if (cp < 0x80) {
+            dst[pos++] = (byte) cp;
+        } else if (cp < 0x800) {
+            dst[pos++] = (byte) (0xc0 | (cp >> 6));
+            dst[pos++] = (byte) (0x80 | (cp & 0x3f));
+        } else if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            if (Character.isSurrogate((char) cp)) {
+                dst[pos++] = '?';
+            } else {
+                dst[pos++] = (byte) (0xe0 | (cp >> 12));
+                dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                dst[pos++] = (byte) (0x80 | (cp & 0x3f));
+            }
+        } else {
+            dst[pos++] = (byte) (0xf0 | (cp >> 18));
+            dst[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            dst[pos++] = (byte) (0x80 | (cp & 0x3f));
+        }
+        return pos;
+    }
+
+    //------------------------------------------------------------ 检查、分块
+
+    private static void check(int cp, int index) {
+        if (!Character.isValidCodePoint(cp)) {
+            throw new IllegalArgumentException("invalid code point " + cp + " at index " + index);
+        }
+    }
+
+    private static void checkRange(int[] codePoints, int from, int to) {
+        if (from < 0 || to > codePoints.length || from > to) {
+            throw new IndexOutOfBoundsException("range [" + from + ", " + to + ") out of bounds for length " + codePoints.length);
+        }
+    }
+
+    private static int chunks(int from, int to) {
+        return (int) (((long) to - from + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD);
+    }
+
+    private static IntStream chunkStream(int chunks) {
+        return IntStream.range(0, chunks).parallel();
+    }
+
+    private static int chunkFrom(int from, int chunk) {
+        return from + chunk * PARALLEL_THRESHOLD;
+    }
+
+    private static int chunkTo(int from, int to, int chunk) {
+        return (int) Math.min(to, from + (long) (chunk + 1) * PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * starts[c + 1] 为第 c 块的长度，原地转换为每块的起始位置，超过 int 范围时抛出 OutOfMemoryError
+     */
+    private static void prefixSum(int[] starts) {
+        long sum = 0;
+        for (int c = 1; c < starts.length; c++) {
+            sum += starts[c];
+            if (sum > Integer.MAX_VALUE) {
+                throw new OutOfMemoryError("Required length exceeds implementation limit");
+            }
+            starts[c] = (int) sum;
+        }
+    }
+}
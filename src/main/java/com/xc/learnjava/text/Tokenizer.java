@@ -0,0 +1,331 @@
+package com.xc.learnjava.text;
+
+import com.xc.learnjava.io.FileScan;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 不用正则的分词器，可以对内存映射的大文件并行分词
+ * StreamTest.createStream 中 Pattern.compile("\\s+").splitAsStream(...) 要求整个输入是一个 String，每个词都要跑一遍正则引擎。
+ * 1.分隔符是 ASCII 字符，用一个 256 位的查找表判断；默认分隔符为空白（<= ' ' 的控制字符和空格）；
+ * 2.文件用 FileChannel.map 映射（每段不超过 1GB，段的边界落在分隔符上），不需要把整个文件读进堆；
+ * 3.切分时从中点向后找到下一个分隔符再切开，所以词不会被切断；UTF-8 的多字节字符中不会出现 ASCII 字节，按字节切分是安全的；
+ * 4.只有输出的词才会被解码成 String。
+ *
+ * @author joey
+ */
+public final class Tokenizer {
+
+    /**
+     * 单个映射段的大小上限
+     */
+    static final long MAX_REGION = 1 << 30;
+
+    private static final Tokenizer WHITESPACE;
+
+    static {
+        boolean[] table = new boolean[256];
+        for (int c = 0; c <= ' '; c++) {
+            table[c] = true;
+        }
+        WHITESPACE = new Tokenizer(table);
+    }
+
+    private final boolean[] delimiters;
+
+    private Tokenizer(boolean[] delimiters) {
+        this.delimiters = delimiters;
+    }
+
+    /**
+     * 以空白分隔
+     */
+    public static Tokenizer whitespace() {
+        return WHITESPACE;
+    }
+
+    /**
+     * 以 delimiters 中的任意字符分隔，只能是 ASCII 字符
+     */
+    public static Tokenizer of(String delimiters) {
+        boolean[] table = new boolean[256];
+        for (int i = 0; i < delimiters.length(); i++) {
+            char c = delimiters.charAt(i);
+            if (c >= 0x80) {
+                throw new IllegalArgumentException("delimiter must be ASCII: " + c);
+            }
+            table[c] = true;
+        }
+        return new Tokenizer(table);
+    }
+
+    /**
+     * 对字符串分词，与 splitAsStream 不同的是不会产生空串；词是按需切出来的，limit() 之后不会再扫描剩下的文本
+     */
+    public Stream<String> tokens(CharSequence text) {
+        return StreamSupport.stream(new CharTokenSpliterator(text, 0, text.length()), false);
+    }
+
+    /**
+     * 对 UTF-8 文件分词，返回的流可以 parallel()
+     */
+    public Stream<String> tokens(Path file) throws IOException {
+        List<Spliterator<String>> regions = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = start + MAX_REGION >= size ? size : nextDelimiter(channel, start + MAX_REGION, size);
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("token too long near offset " + start + " in " + file);
+                }
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                regions.add(new TokenSpliterator(buffer, 0, buffer.limit()));
+                start = end;
+            }
+        }
+        if (regions.size() == 1) {
+            return StreamSupport.stream(regions.get(0), false);
+        }
+        return StreamSupport.stream(new ConcatSpliterator<>(regions, 0, regions.size()), false);
+    }
+
+    /**
+     * 词频统计：每个线程各自计数，最后合并
+     */
+    public static Collector<String, ?, Map<String, Long>> wordCount() {
+        return Collector.<String, Map<String, long[]>, Map<String, Long>>of(
+                HashMap::new,
+                (counts, word) -> counts.computeIfAbsent(word, w -> new long[1])[0]++,
+                (left, right) -> {
+                    for (Map.Entry<String, long[]> e : right.entrySet()) {
+                        long[] c = left.putIfAbsent(e.getKey(), e.getValue());
+                        if (c != null) {
+                            c[0] += e.getValue()[0];
+                        }
+                    }
+                    return left;
+                },
+                counts -> {
+                    Map<String, Long> result = new HashMap<>(counts.size() * 4 / 3 + 1);
+                    counts.forEach((word, c) -> result.put(word, c[0]));
+                    return result;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    private boolean isDelimiter(char c) {
+        return c < 0x80 && delimiters[c];
+    }
+
+    private boolean isDelimiter(byte b) {
+        return b >= 0 && delimiters[b];
+    }
+
+    /**
+     * 从 offset 开始向后找第一个分隔符的位置，找不到时返回 size
+     */
+    private long nextDelimiter(FileChannel channel, long offset, long size) throws IOException {
+        return FileScan.indexOf(channel, offset, size, b -> isDelimiter((char) b));
+    }
+
+    /**
+     * text 上 [from, to) 内的词，切分方式与 TokenSpliterator 相同
+     */
+    final class CharTokenSpliterator implements Spliterator<String> {
+
+        private final CharSequence text;
+        private int from;
+        private final int to;
+
+        CharTokenSpliterator(CharSequence text, int from, int to) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            int i = from;
+            while (i < to && isDelimiter(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < to && !isDelimiter(text.charAt(i))) {
+                i++;
+            }
+            from = i;
+            if (i == start) {
+                return false;
+            }
+            action.accept(text.subSequence(start, i).toString());
+            return true;
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            int mid = from + ((to - from) >>> 1);
+            while (mid < to && !isDelimiter(text.charAt(mid))) {
+                mid++;
+            }
+            if (mid <= from || mid >= to) {
+                return null;
+            }
+            CharTokenSpliterator prefix = new CharTokenSpliterator(text, from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (to - from + 7) >>> 3;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * buffer 上 [from, to) 内的词
+     */
+    final class TokenSpliterator implements Spliterator<String> {
+
+        private final ByteBuffer buffer;
+        private final ByteBuffer dup;
+        private int from;
+        private final int to;
+        private byte[] scratch = new byte[64];
+
+        TokenSpliterator(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.dup = buffer.duplicate();
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            int i = from;
+            while (i < to && isDelimiter(buffer.get(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < to && !isDelimiter(buffer.get(i))) {
+                i++;
+            }
+            from = i;
+            if (i == start) {
+                return false;
+            }
+            int length = i - start;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            ((Buffer) dup).limit(i).position(start);
+            dup.get(scratch, 0, length);
+            action.accept(new String(scratch, 0, length, StandardCharsets.UTF_8));
+            return true;
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            int mid = from + ((to - from) >>> 1);
+            while (mid < to && !isDelimiter(buffer.get(mid))) {
+                mid++;
+            }
+            if (mid <= from || mid >= to) {
+                return null;
+            }
+            TokenSpliterator prefix = new TokenSpliterator(buffer, from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            //词数未知，按平均每个词 8 个字节估计
+            return (to - from + 7) >>> 3;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * 把多个 Spliterator 依次连接起来，切分时先按段切，只剩一段时交给该段自己切分
+     */
+    static final class ConcatSpliterator<T> implements Spliterator<T> {
+
+        private final List<Spliterator<T>> parts;
+        private int lo;
+        private final int hi;
+
+        ConcatSpliterator(List<Spliterator<T>> parts, int lo, int hi) {
+            this.parts = parts;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (lo < hi) {
+                if (parts.get(lo).tryAdvance(action)) {
+                    return true;
+                }
+                lo++;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; lo < hi; lo++) {
+                parts.get(lo).forEachRemaining(action);
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                ConcatSpliterator<T> prefix = new ConcatSpliterator<>(parts, lo, mid);
+                lo = mid;
+                return prefix;
+            }
+            return lo < hi ? parts.get(lo).trySplit() : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = 0;
+            for (int i = lo; i < hi; i++) {
+                size += parts.get(i).estimateSize();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.xc.learnjava.time;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 工作日 / 休息日的区间计算
+ * StreamTest.filterStream 中通过 LocalDateSupplier 逐天生成 LocalDate，再按 getDayOfWeek() 过滤，时间是 O(天数)，且每天一个对象。
+ * 这里完全用 epoch-day（LocalDate.toEpochDay()）做算术：
+ * 1.1970-01-01 是星期四，任意一天的星期几 = floorMod(epochDay + 3, 7)，不需要创建 LocalDate；
+ * 2.计数：整周直接相乘，余下不到 7 天单独数，节假日用二分查找，与区间长度无关；
+ * 3.枚举：按星期几跳到下一个符合条件的日子，时间与输出个数成正比；
+ *   结果是 epoch-day 的 LongStream，区间从中点切分，每一半的个数都能直接算出，因此是 SIZED|SUBSIZED 的，并行时切分均匀。
+ * 所有区间都是左闭右开 [from, to)。
+ *
+ * @author joey
+ */
+public final class BusinessCalendar {
+
+    private static final BusinessCalendar STANDARD = new BusinessCalendar(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), new long[0]);
+
+    /**
+     * 休息日的掩码，第 i 位表示 DayOfWeek.of(i + 1)
+     */
+    private final int weekendMask;
+
+    /**
+     * 落在工作日上的节假日，已排序、去重；落在周末的节假日不影响计数，直接丢弃
+     */
+    private final long[] holidays;
+
+    private BusinessCalendar(Set<DayOfWeek> weekend, long[] holidayEpochDays) {
+        int mask = 0;
+        for (DayOfWeek d : weekend) {
+            mask |= 1 << (d.getValue() - 1);
+        }
+        this.weekendMask = mask;
+        final int m = mask;
+        this.holidays = Arrays.stream(holidayEpochDays)
+                .filter(day -> (m & (1 << dayOfWeekIndex(day))) == 0)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * 周六、周日休息，没有节假日
+     */
+    public static BusinessCalendar standard() {
+        return STANDARD;
+    }
+
+    public static BusinessCalendar of(Set<DayOfWeek> weekend, Collection<LocalDate> holidays) {
+        return new BusinessCalendar(weekend, holidays.stream().mapToLong(LocalDate::toEpochDay).toArray());
+    }
+
+    /**
+     * 在当前日历的基础上加入节假日
+     */
+    public BusinessCalendar withHolidays(Collection<LocalDate> more) {
+        long[] all = Arrays.copyOf(holidays, holidays.length + more.size());
+        int i = holidays.length;
+        for (LocalDate d : more) {
+            all[i++] = d.toEpochDay();
+        }
+        return new BusinessCalendar(weekend(), all);
+    }
+
+    public Set<DayOfWeek> weekend() {
+        Set<DayOfWeek> set = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if ((weekendMask & (1 << (d.getValue() - 1))) != 0) {
+                set.add(d);
+            }
+        }
+        return set;
+    }
+
+    public boolean isWeekend(long epochDay) {
+        return (weekendMask & (1 << dayOfWeekIndex(epochDay))) != 0;
+    }
+
+    public boolean isHoliday(long epochDay) {
+        return Arrays.binarySearch(holidays, epochDay) >= 0;
+    }
+
+    public boolean isBusinessDay(long epochDay) {
+        return !isWeekend(epochDay) && !isHoliday(epochDay);
+    }
+
+    public long countWeekendDays(long from, long to) {
+        return countMask(weekendMask, from, to);
+    }
+
+    public long countWeekendDays(LocalDate from, LocalDate to) {
+        return countWeekendDays(from.toEpochDay(), to.toEpochDay());
+    }
+
+    public long countBusinessDays(long from, long to) {
+        return countMask(~weekendMask & 0x7f, from, to) - countHolidays(from, to);
+    }
+
+    public long countBusinessDays(LocalDate from, LocalDate to) {
+        return countBusinessDays(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * [from, to) 内的休息日，元素为 epoch-day
+     */
+    public LongStream weekendDays(long from, long to) {
+        return StreamSupport.longStream(new DaySpliterator(weekendMask, false, from, to), false);
+    }
+
+    public LongStream weekendDays(LocalDate from, LocalDate to) {
+        return weekendDays(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * [from, to) 内的工作日（不含节假日），元素为 epoch-day
+     */
+    public LongStream businessDays(long from, long to) {
+        return StreamSupport.longStream(new DaySpliterator(~weekendMask & 0x7f, true, from, to), false);
+    }
+
+    public LongStream businessDays(LocalDate from, LocalDate to) {
+        return businessDays(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * 星期几的下标，0 表示星期一
+     */
+    static int dayOfWeekIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    /**
+     * [from, to) 内星期几落在 mask 中的天数
+     */
+    static long countMask(int mask, long from, long to) {
+        if (to <= from) {
+            return 0;
+        }
+        long days = to - from;
+        long count = days / 7 * Integer.bitCount(mask);
+        int dow = dayOfWeekIndex(from);
+        for (int i = 0, rest = (int) (days % 7); i < rest; i++) {
+            if ((mask & (1 << ((dow + i) % 7))) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * [from, to) 内的节假日个数
+     */
+    long countHolidays(long from, long to) {
+        if (to <= from) {
+            return 0;
+        }
+        return lowerBound(holidays, to) - lowerBound(holidays, from);
+    }
+
+    /**
+     * 第一个 >= key 的下标
+     */
+    static int lowerBound(long[] a, long key) {
+        int i = Arrays.binarySearch(a, key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * 按星期几掩码（以及可选的节假日）筛选 [from, to) 内的日期
+     */
+    final class DaySpliterator implements Spliterator.OfLong {
+
+        private final int mask;
+        private final boolean excludeHolidays;
+        /**
+         * skip[i]：从星期 i 开始，到下一个落在 mask 中的日子要走几天
+         */
+        private final int[] skip;
+        private long from;
+        private final long to;
+        private int holiday = -1;
+
+        DaySpliterator(int mask, boolean excludeHolidays, long from, long to) {
+            this.mask = mask;
+            this.excludeHolidays = excludeHolidays;
+            this.from = from;
+            this.to = Math.max(from, to);
+            this.skip = new int[7];
+            for (int i = 0; i < 7; i++) {
+                int k = 0;
+                while (k < 7 && (mask & (1 << ((i + k) % 7))) == 0) {
+                    k++;
+                }
+                skip[i] = k;
+            }
+        }
+
+        /**
+         * 把 from 移到下一个符合条件的日子，没有时返回 false
+         */
+        private boolean seek() {
+            if (mask == 0) {
+                from = to;
+                return false;
+            }
+            if (excludeHolidays && holiday < 0) {
+                holiday = lowerBound(holidays, from);
+            }
+            while (from < to) {
+                from += skip[dayOfWeekIndex(from)];
+                if (!excludeHolidays) {
+                    break;
+                }
+                while (holiday < holidays.length && holidays[holiday] < from) {
+                    holiday++;
+                }
+                if (holiday == holidays.length || holidays[holiday] != from) {
+                    break;
+                }
+                from++;
+            }
+            return from < to;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (!seek()) {
+                return false;
+            }
+            action.accept(from++);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            while (seek()) {
+                action.accept(from++);
+            }
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long mid = from + ((to - from) >>> 1);
+            if (mid - from < 7) {
+                return null;
+            }
+            DaySpliterator prefix = new DaySpliterator(mask, excludeHolidays, from, mid);
+            from = mid;
+            holiday = -1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long n = countMask(mask, from, to);
+            return excludeHolidays ? n - countHolidays(from, to) : n;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL | DISTINCT | SORTED;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.xc.learnjava.time;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 批量日期解析
+ * StreamTest.mapStream 中每个元素都要 x.replace(" ","") 生成一个新字符串，再 DateTimeFormatter.ofPattern("yyyy-MM-dd") 新建一个格式化器。
+ * 1.yyyy-MM-dd 走快速路径：直接在 CharSequence 上逐字符解析，跳过其中任意位置的空白（如 " 2020 - 01-09 "），不产生中间字符串；
+ * 2.结果可以是 LocalDate，也可以是 epoch-day（距 1970-01-01 的天数），后者批量输出到 int[]，不创建任何对象；
+ * 3.其它格式走 DateTimeFormatter，格式化器按 pattern 缓存。
+ *
+ * 与 DateTimeFormatter 默认的 SMART 模式不同，快速路径不会把 2月30日 之类的日期修正为月末，而是直接抛出 DateTimeParseException；
+ * 0000 年两条路径都会拒绝。
+ *
+ * @author joey
+ */
+public final class DateParser {
+
+    /**
+     * 0000-01-01 到 1970-01-01 的天数，与 LocalDate 中的常量相同
+     */
+    static final int DAYS_0000_TO_1970 = (146097 * 5) - (30 * 365 + 7);
+
+    /**
+     * 数组长度超过这个值时并行解析
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+    private DateParser() {
+    }
+
+    /**
+     * 解析 yyyy-MM-dd，忽略其中的空白，返回 epoch-day
+     */
+    public static int parseEpochDay(CharSequence text) {
+        int[] fields = {0, 0, 0};
+        int[] widths = {4, 2, 2};
+        int field = 0;
+        int digits = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == widths[field]) {
+                    throw new DateTimeParseException("Too many digits at index " + i, text, i);
+                }
+                fields[field] = fields[field] * 10 + (c - '0');
+                digits++;
+            } else if (c == '-') {
+                if (field == 2 || digits != widths[field]) {
+                    throw new DateTimeParseException("Unexpected '-' at index " + i, text, i);
+                }
+                field++;
+                digits = 0;
+            } else if (!Character.isWhitespace(c)) {
+                throw new DateTimeParseException("Unexpected character '" + c + "' at index " + i, text, i);
+            }
+        }
+        if (field != 2 || digits != 2) {
+            throw new DateTimeParseException("Text is not a complete yyyy-MM-dd date", text, length);
+        }
+        return toEpochDay(text, fields[0], fields[1], fields[2]);
+    }
+
+    /**
+     * 解析 yyyy-MM-dd，忽略其中的空白
+     */
+    public static LocalDate parse(CharSequence text) {
+        return LocalDate.ofEpochDay(parseEpochDay(text));
+    }
+
+    /**
+     * 按任意 pattern 解析，pattern 中没有空白时先去掉 text 中的空白（与 mapStream 中的 replace 效果相同）
+     */
+    public static LocalDate parse(CharSequence text, String pattern) {
+        if ("yyyy-MM-dd".equals(pattern)) {
+            return parse(text);
+        }
+        DateTimeFormatter formatter = formatter(pattern);
+        if (pattern.indexOf(' ') >= 0) {
+            return formatter.parse(text, LocalDate::from);
+        }
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return formatter.parse(sb, LocalDate::from);
+    }
+
+    /**
+     * 缓存的 DateTimeFormatter，DateTimeFormatter 是不可变且线程安全的
+     */
+    public static DateTimeFormatter formatter(String pattern) {
+        return FORMATTERS.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+
+    /**
+     * 批量解析成 epoch-day，数组较大时并行
+     */
+    public static int[] parseEpochDays(CharSequence[] texts) {
+        int[] days = new int[texts.length];
+        if (texts.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSetAll(days, i -> parseEpochDay(texts[i]));
+        } else {
+            for (int i = 0; i < texts.length; i++) {
+                days[i] = parseEpochDay(texts[i]);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * 批量解析成 epoch-day，list 应支持随机访问
+     */
+    public static int[] parseEpochDays(List<? extends CharSequence> texts) {
+        int[] days = new int[texts.size()];
+        if (days.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSetAll(days, i -> parseEpochDay(texts.get(i)));
+        } else {
+            for (int i = 0; i < days.length; i++) {
+                days[i] = parseEpochDay(texts.get(i));
+            }
+        }
+        return days;
+    }
+
+    /**
+     * 批量解析成 LocalDate，数组较大时并行
+     */
+    public static LocalDate[] parseAll(CharSequence[] texts) {
+        LocalDate[] dates = new LocalDate[texts.length];
+        if (texts.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSetAll(dates, i -> parse(texts[i]));
+        } else {
+            for (int i = 0; i < texts.length; i++) {
+                dates[i] = parse(texts[i]);
+            }
+        }
+        return dates;
+    }
+
+    /**
+     * 与 LocalDate.toEpochDay 相同的算法，先校验日期是否合法；
+     * yyyy 是公元纪年（year-of-era），与 DateTimeFormatter 一样不接受 0000 年
+     */
+    static int toEpochDay(CharSequence text, int year, int month, int day) {
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(month, leap)) {
+            throw new DateTimeParseException("Invalid date " + year + "-" + month + "-" + day, text, 0);
+        }
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!leap) {
+                total--;
+            }
+        }
+        return (int) (total - DAYS_0000_TO_1970);
+    }
+
+    private static int lengthOfMonth(int month, boolean leap) {
+        switch (month) {
+            case 2:
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
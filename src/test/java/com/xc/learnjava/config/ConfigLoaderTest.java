@@ -0,0 +1,109 @@
+package com.xc.learnjava.config;
+
+import com.xc.learnjava.stream.DuplicateKeyPolicy;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ConfigLoader：行格式、重复 key 的策略，以及大文件按行边界分片后与整体解析结果一致
+ *
+ * @author joey
+ */
+public class ConfigLoaderTest {
+
+    @Test
+    public void parseSkipsCommentsAndTrimsWhitespace() {
+        Map<String, String> map = ConfigLoader.parse("# comment\r\n! other\r\n\r\n  a = 1 \r\nb:2\nc\nd=x=y\n e :\n", DuplicateKeyPolicy.FAIL);
+        Map<String, String> expected = new HashMap<>();
+        expected.put("a", "1");
+        expected.put("b", "2");
+        expected.put("c", "");
+        expected.put("d", "x=y");
+        expected.put("e", "");
+        assertEquals(expected, map);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseFailsOnDuplicateKey() {
+        ConfigLoader.parse("a=1\na=2\n", DuplicateKeyPolicy.FAIL);
+    }
+
+    @Test
+    public void parseResolvesDuplicateKeyInFileOrder() {
+        assertEquals("1", ConfigLoader.parse("a=1\na=2", DuplicateKeyPolicy.FIRST_WINS).get("a"));
+        assertEquals("2", ConfigLoader.parse("a=1\na=2", DuplicateKeyPolicy.LAST_WINS).get("a"));
+    }
+
+    @Test
+    public void loadSmallFileSkipsBom() throws IOException {
+        Path file = Files.createTempFile("config", ".properties");
+        try {
+            byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+            byte[] body = "key=值\r\n".getBytes(StandardCharsets.UTF_8);
+            byte[] all = Arrays.copyOf(bom, bom.length + body.length);
+            System.arraycopy(body, 0, all, bom.length, body.length);
+            Files.write(file, all);
+            Map<String, String> map = ConfigLoader.load(file, DuplicateKeyPolicy.FAIL);
+            assertEquals(1, map.size());
+            assertEquals("值", map.get("key"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void loadLargeFileMatchesParseAcrossChunks() throws IOException {
+        String text = largeConfig();
+        assertTrue(text.length() > 2 * ConfigLoader.MAP_THRESHOLD);
+        Path file = Files.createTempFile("config", ".properties");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            for (DuplicateKeyPolicy policy : new DuplicateKeyPolicy[]{DuplicateKeyPolicy.FIRST_WINS, DuplicateKeyPolicy.LAST_WINS}) {
+                assertEquals(ConfigLoader.parse(text, policy), ConfigLoader.load(file, policy));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void collectorsMatchParse() {
+        String text = largeConfig();
+        for (DuplicateKeyPolicy policy : new DuplicateKeyPolicy[]{DuplicateKeyPolicy.FIRST_WINS, DuplicateKeyPolicy.LAST_WINS}) {
+            Map<String, String> expected = ConfigLoader.parse(text, policy);
+            assertEquals(expected, Arrays.stream(text.split("\n")).collect(ConfigLoader.toMap(policy)));
+            assertEquals(expected, Arrays.stream(text.split("\n")).parallel().collect(ConfigLoader.toMap(policy)));
+        }
+        //并发版本不保证先后，只比较 key 集合
+        ConcurrentMap<String, String> concurrent = Arrays.stream(text.split("\n")).parallel().collect(ConfigLoader.toConcurrentMap(DuplicateKeyPolicy.LAST_WINS));
+        assertEquals(ConfigLoader.parse(text, DuplicateKeyPolicy.LAST_WINS).keySet(), concurrent.keySet());
+    }
+
+    /**
+     * 约 3MB 的配置：CRLF 换行、注释、空行，每个 key 出现两次且相隔很远，保证重复的 key 落在不同的分片中
+     */
+    private static String largeConfig() {
+        StringBuilder sb = new StringBuilder();
+        int keys = 50_000;
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < keys; i++) {
+                if (i % 1000 == 0) {
+                    sb.append("# section ").append(i).append("\r\n\r\n");
+                }
+                sb.append("key.").append(i).append(" = value-").append(round).append('-').append(i).append("-padding-padding\r\n");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,139 @@
+package com.xc.learnjava.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * FastReader：数值的边界与舍入、跨缓冲区的词和行，以及格式错误时词不被消费
+ *
+ * @author joey
+ */
+public class FastReaderTest {
+
+    @Test
+    public void readsIntsAndLongsAcrossSmallBuffers() {
+        Random random = new Random(1);
+        long[] expected = new long[5_000];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i % 100 == 0 ? (i % 200 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE) : random.nextLong() >> random.nextInt(64);
+            sb.append(i % 7 == 0 ? "\r\n" : " \t").append(expected[i] > 0 && i % 3 == 0 ? "+" : "").append(expected[i]);
+        }
+        for (int bufferSize : new int[]{1, 7, 64, 1 << 16}) {
+            FastReader reader = reader(sb.toString(), bufferSize);
+            assertArrayEquals(expected, reader.readLongs(expected.length));
+            assertFalse(reader.hasNext());
+        }
+        FastReader reader = reader("2147483647 -2147483648 0 -0 +5", 3);
+        assertArrayEquals(new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 0, 5}, reader.readAllInts());
+    }
+
+    @Test
+    public void readsDoublesLikeParseDouble() {
+        Random random = new Random(2);
+        String[] texts = new String[20_000];
+        for (int i = 0; i < texts.length; i++) {
+            switch (i % 5) {
+                case 0:
+                    texts[i] = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+                    break;
+                case 1:
+                    texts[i] = (random.nextBoolean() ? "-" : "") + random.nextInt(1_000_000) + "." + random.nextInt(1_000_000);
+                    break;
+                case 2:
+                    texts[i] = random.nextInt(1000) + "e" + (random.nextInt(700) - 350);
+                    break;
+                case 3:
+                    texts[i] = Long.toString(random.nextLong()) + random.nextInt(1000) + "." + random.nextInt(10);
+                    break;
+                default:
+                    texts[i] = new String[]{"NaN", "-Infinity", "Infinity", "0x1.8p1", ".5", "5.", "-0.0", "1E22", "1e-22", "4.9e-324"}[i / 5 % 10];
+            }
+        }
+        FastReader reader = reader(String.join(" ", texts), 13);
+        for (String text : texts) {
+            double expected = Double.parseDouble(text);
+            assertEquals(text, Double.doubleToLongBits(expected), Double.doubleToLongBits(reader.nextDouble()));
+        }
+    }
+
+    @Test
+    public void badTokenIsNotConsumed() {
+        FastReader reader = reader("12x 9223372036854775808 2147483648 1.5f 2d abc 7", 4);
+        assertMismatch(reader::nextInt);
+        assertMismatch(reader::nextLong);
+        assertEquals("12x", reader.next());
+        assertMismatch(reader::nextLong);
+        assertEquals("9223372036854775808", reader.next());
+        assertMismatch(reader::nextInt);
+        assertEquals(2147483648L, reader.nextLong());
+        assertMismatch(reader::nextDouble);
+        assertEquals("1.5f", reader.next());
+        assertMismatch(reader::nextDouble);
+        assertEquals("2d", reader.next());
+        assertMismatch(reader::nextDouble);
+        assertEquals("abc", reader.next());
+        assertEquals(" 7", reader.nextLine());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void nextLineReturnsTheRestOfTheLine() {
+        FastReader reader = reader("joey\r\n20 years\nx\n\n中文 行\r\nlast", 5);
+        assertEquals("joey", reader.next());
+        assertEquals("", reader.nextLine());
+        assertEquals(20, reader.nextInt());
+        assertEquals(" years", reader.nextLine());
+        assertMismatch(reader::nextInt);
+        assertEquals("x", reader.nextLine());
+        assertEquals("", reader.nextLine());
+        assertEquals("中文 行", reader.nextLine());
+        assertEquals("last", reader.nextLine());
+        try {
+            reader.nextLine();
+            fail("expected NoSuchElementException");
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextAtEndOfInput() {
+        FastReader reader = reader(" 1 \n ", 2);
+        assertEquals(1, reader.nextInt());
+        assertFalse(reader.hasNext());
+        reader.nextInt();
+    }
+
+    @Test
+    public void utf8TokensAcrossBufferBoundaries() {
+        FastReader reader = reader("😀😀 中文 ü", 3);
+        assertEquals("😀😀", reader.next());
+        assertEquals("中文", reader.next());
+        assertTrue(reader.hasNext());
+        assertEquals("ü", reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    private static void assertMismatch(Runnable read) {
+        try {
+            read.run();
+            fail("expected InputMismatchException");
+        } catch (InputMismatchException expected) {
+        }
+    }
+
+    private static FastReader reader(String text, int bufferSize) {
+        return new FastReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+}
@@ -0,0 +1,99 @@
+package com.xc.learnjava.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * OutputSink：整数格式与 String.format 一致（int 按 32 位、long 按 64 位），并行写出的每一行都是完整的
+ *
+ * @author joey
+ */
+public class OutputSinkTest {
+
+    private static final String[] FORMATS = {"%d", "%x", "%X", "%08x", "%8X", "%012d", "%5d|", "[%d,%x]%%"};
+
+    @Test
+    public void formatMatchesStringFormat() throws IOException {
+        Random random = new Random(4);
+        int[] ints = IntStream.concat(IntStream.of(0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 255, -255), random.ints(200)).toArray();
+        long[] longs = LongStream.concat(LongStream.of(0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, -(1L << 32)), random.longs(200)).toArray();
+        StringBuilder expected = new StringBuilder();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(bytes)) {
+            for (String format : FORMATS) {
+                String f = format.replace("%d,%x", "%d").replace("%x]", "]") + "%n";
+                for (int v : ints) {
+                    expected.append(String.format(f, v));
+                    sink.format(f, v);
+                }
+                for (long v : longs) {
+                    expected.append(String.format(f, v));
+                    sink.format(f, v);
+                }
+            }
+            for (int i = 1; i < ints.length; i++) {
+                expected.append(String.format("[%d,%x]%%%n", ints[i - 1], ints[i]));
+                sink.format("[%d,%x]%%%n", ints[i - 1], ints[i]);
+                expected.append(String.format("[%d,%x]%%%n", longs[i - 1], longs[i]));
+                sink.format("[%d,%x]%%%n", longs[i - 1], longs[i]);
+                expected.append(String.format("%x %x %x%n", ints[i - 1], ints[i], -i));
+                sink.format("%x %x %x%n", ints[i - 1], ints[i], -i);
+                expected.append(String.format("%x %x %x%n", longs[i - 1], longs[i], (long) -i));
+                sink.format("%x %x %x%n", longs[i - 1], longs[i], (long) -i);
+            }
+        }
+        assertEquals(expected.toString().replace(System.lineSeparator(), "\n"), bytes.toString("UTF-8"));
+    }
+
+    @Test
+    public void printHexIsUnsigned32Bit() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(bytes)) {
+            sink.printHex(-1, 0, false).print(" ").printHex(255, 4, true).print(" ").printHex(10, 3, false);
+        }
+        assertEquals("ffffffff 00ff   a", bytes.toString("UTF-8"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingArgumentIsRejected() {
+        new OutputSink(new ByteArrayOutputStream()).format("%d %d", 1);
+    }
+
+    @Test
+    public void printsTextAsUtf8() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(bytes)) {
+            sink.print("中文").print(-42).println(" 😀").println(Long.MIN_VALUE).println(Arrays.asList(1, 2));
+        }
+        assertEquals("中文-42 😀\n" + Long.MIN_VALUE + "\n[1, 2]\n", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parallelLinesAreComplete() throws IOException {
+        int n = 300_000;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(bytes)) {
+            IntStream.range(0, n).parallel().forEach(sink.intLines());
+            LongStream.rangeClosed(1, n).parallel().map(v -> -v).forEach(sink.longLines());
+            IntStream.range(0, n).parallel().mapToObj(i -> "s" + i).forEach(sink.lines());
+        }
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3 * n, lines.length);
+        int[] ints = Arrays.stream(lines).filter(s -> !s.startsWith("s") && !s.startsWith("-")).mapToInt(Integer::parseInt).sorted().toArray();
+        long[] negatives = Arrays.stream(lines).filter(s -> s.startsWith("-")).mapToLong(Long::parseLong).sorted().toArray();
+        int[] strings = Arrays.stream(lines).filter(s -> s.startsWith("s")).mapToInt(s -> Integer.parseInt(s.substring(1))).sorted().toArray();
+        assertArrayEquals(IntStream.range(0, n).toArray(), ints);
+        assertArrayEquals(IntStream.range(0, n).toArray(), strings);
+        assertArrayEquals(LongStream.rangeClosed(1, n).map(v -> -v).sorted().toArray(), negatives);
+    }
+}
@@ -0,0 +1,176 @@
+package com.xc.learnjava.math;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Reductions：中间结果溢出但最终结果不溢出时串行与分块并行一致，只有最终结果超出 long 时才抛出异常
+ *
+ * @author joey
+ */
+public class ReductionsTest {
+
+    private static final int LARGE = Reductions.PARALLEL_THRESHOLD * 3 + 5;
+
+    @Test
+    public void sumOnlyFailsWhenTheTotalOverflows() {
+        assertEquals(Long.MAX_VALUE, Reductions.sum(new long[]{Long.MAX_VALUE, 1, -1}));
+        assertEquals(Long.MIN_VALUE, Reductions.sum(new long[]{Long.MIN_VALUE, -1, 1}));
+        assertEquals(Long.MAX_VALUE - 2, Reductions.sum(new long[]{Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE, Long.MAX_VALUE}));
+        assertSumOverflows(new long[]{Long.MAX_VALUE, 1});
+        assertSumOverflows(new long[]{Long.MIN_VALUE, -1});
+        assertEquals(0, Reductions.sum(new long[0]));
+    }
+
+    @Test
+    public void chunkedSumMatchesBigInteger() {
+        Random random = new Random(16);
+        for (int round = 0; round < 6; round++) {
+            long[] a = new long[LARGE];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = round % 2 == 0 ? random.nextLong() : (i & 1) == 0 ? Long.MAX_VALUE : Long.MIN_VALUE + 1;
+            }
+            //每块的末尾都放一个极值，让块内与块间的中间结果都溢出
+            for (int c = Reductions.PARALLEL_THRESHOLD - 1; c < a.length; c += Reductions.PARALLEL_THRESHOLD) {
+                a[c] = round < 2 ? Long.MAX_VALUE : Long.MIN_VALUE;
+            }
+            BigInteger expected = LongStream.of(a).mapToObj(BigInteger::valueOf).reduce(BigInteger.ZERO, BigInteger::add);
+            assertEquals(expected, Reductions.sumAsBigInteger(a));
+            if (expected.bitLength() < 64) {
+                assertEquals(expected.longValue(), Reductions.sum(a));
+            } else {
+                assertSumOverflows(a);
+            }
+        }
+    }
+
+    @Test
+    public void chunkedSumThatFitsInLong() {
+        long[] a = new long[LARGE];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (i & 1) == 0 ? Long.MAX_VALUE : -Long.MAX_VALUE;
+        }
+        assertEquals(Long.MAX_VALUE, Reductions.sum(a));
+        a[1]++;
+        assertSumOverflows(a);
+    }
+
+    @Test
+    public void intSumAndExtremaMatchStreams() {
+        int[] a = new Random(1).ints(LARGE).toArray();
+        a[LARGE - 1] = Integer.MIN_VALUE;
+        a[Reductions.PARALLEL_THRESHOLD] = Integer.MAX_VALUE;
+        assertEquals(IntStream.of(a).asLongStream().sum(), Reductions.sum(a));
+        assertEquals(IntStream.of(a).min(), Reductions.min(a));
+        assertEquals(IntStream.of(a).max(), Reductions.max(a));
+        assertEquals(IntStream.of(a).average(), Reductions.mean(a));
+        long[] b = IntStream.of(a).asLongStream().map(x -> x << 31).toArray();
+        assertEquals(LongStream.of(b).min(), Reductions.min(b));
+        assertEquals(LongStream.of(b).max(), Reductions.max(b));
+        assertFalse(Reductions.min(new int[0]).isPresent());
+        assertFalse(Reductions.mean(new long[0]).isPresent());
+    }
+
+    @Test
+    public void meanFallsBackToBigInteger() {
+        long[] a = new long[10];
+        Arrays.fill(a, Long.MAX_VALUE);
+        assertEquals((double) Long.MAX_VALUE, Reductions.mean(a).getAsDouble(), 0);
+    }
+
+    @Test
+    public void doubleSumIsCompensated() {
+        double[] a = new double[LARGE];
+        BigDecimal exact = BigDecimal.ZERO;
+        Random random = new Random(2);
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (i & 1) == 0 ? 1e16 : random.nextDouble() - 1e16;
+            exact = exact.add(new BigDecimal(a[i]));
+        }
+        double naive = 0;
+        for (double x : a) {
+            naive += x;
+        }
+        double error = Math.abs(Reductions.sum(a) - exact.doubleValue());
+        assertEquals(0, error, 64);
+        assertTrue(error <= Math.abs(naive - exact.doubleValue()));
+    }
+
+    @Test
+    public void productFailsOnOverflowUnlessThereIsAZero() {
+        assertEquals(120, Reductions.product(new int[]{1, 2, 3, 4, 5}));
+        assertEquals(0, Reductions.product(new long[]{Long.MAX_VALUE, 2, 0}));
+        assertEquals(0, Reductions.product(new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0}));
+        assertEquals(Long.MIN_VALUE, Reductions.product(new long[]{1L << 62, -2}));
+        try {
+            Reductions.product(new long[]{Long.MAX_VALUE, 2, 1});
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+        }
+    }
+
+    @Test
+    public void productAsBigIntegerMatchesSequentialProduct() {
+        Random random = new Random(3);
+        long[] a = new long[LARGE];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i % 1000 == 0 ? random.nextLong() : random.nextBoolean() ? 1 : -1;
+        }
+        BigInteger expected = BigInteger.ONE;
+        for (long x : a) {
+            expected = expected.multiply(BigInteger.valueOf(x));
+        }
+        assertEquals(expected, Reductions.productAsBigInteger(a));
+        a[LARGE / 2] = 0;
+        assertEquals(BigInteger.ZERO, Reductions.productAsBigInteger(a));
+    }
+
+    @Test
+    public void rangesUseClosedForms() {
+        assertEquals(Long.MIN_VALUE, Reductions.sumRange(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(0, Reductions.sumRange(5, 4));
+        assertEquals(5050, Reductions.sumRange(1, 100));
+        assertEquals(1 + 4 + 7 + 10, Reductions.sumRange(1, 11, 3));
+        assertEquals(10 + 7 + 4 + 1, Reductions.sumRange(10, 0, -3));
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)).shiftRight(1),
+                Reductions.sumRangeAsBigInteger(1, Long.MAX_VALUE, 1));
+        try {
+            Reductions.sumRange(1, Long.MAX_VALUE);
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+        }
+        assertEquals(BigInteger.valueOf(3628800), Reductions.productRange(1, 10));
+        assertEquals(BigInteger.valueOf(-6), Reductions.productRange(-3, -1));
+        assertEquals(BigInteger.ZERO, Reductions.productRange(-3, 3));
+        assertEquals(BigInteger.ONE, Reductions.productRange(3, 2));
+        BigInteger factorial = BigInteger.ONE;
+        for (int i = 2; i <= 500; i++) {
+            factorial = factorial.multiply(BigInteger.valueOf(i));
+        }
+        assertEquals(factorial, Reductions.productRange(1, 500));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroStepIsRejected() {
+        Reductions.sumRange(1, 10, 0);
+    }
+
+    private static void assertSumOverflows(long[] a) {
+        try {
+            Reductions.sum(a);
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BatchSources：按需拉取、批大小从 INITIAL_BATCH 翻倍，预取线程在结束、出错、关闭以及流被丢弃后都会退出
+ *
+ * @author joey
+ */
+public class BatchSourcesTest {
+
+    private static final int N = 10_000;
+
+    /**
+     * 产生 0, 1, ..., limit - 1 后结束，记录每次请求的批大小
+     */
+    private static final class Counter implements BatchSupplier<Integer>, LongBatchSupplier {
+
+        final List<Integer> requests = new CopyOnWriteArrayList<>();
+        private final long limit;
+        private final AtomicLong next = new AtomicLong();
+
+        Counter(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public int fill(List<? super Integer> out, int max) {
+            requests.add(max);
+            int n = 0;
+            for (; n < max && next.get() < limit; n++) {
+                out.add((int) next.getAndIncrement());
+            }
+            return n;
+        }
+
+        @Override
+        public int fill(long[] out, int max) {
+            requests.add(max);
+            int n = 0;
+            for (; n < max && next.get() < limit; n++) {
+                out[n] = next.getAndIncrement();
+            }
+            return n;
+        }
+
+        long pulled() {
+            return next.get();
+        }
+    }
+
+    @Test
+    public void finiteSourceMatchesRange() {
+        assertEquals(IntStream.range(0, N).boxed().collect(Collectors.toList()),
+                BatchSources.stream(new Counter(N), 1000).collect(Collectors.toList()));
+        assertEquals(IntStream.range(0, N).boxed().collect(Collectors.toList()),
+                BatchSources.stream(new Counter(N), 1000).parallel().collect(Collectors.toList()));
+        assertArrayEquals(LongStream.range(0, N).toArray(), BatchSources.longs(new Counter(N), 1000).parallel().toArray());
+        assertEquals(0, BatchSources.stream(new Counter(0), 1000).count());
+    }
+
+    @Test
+    public void batchesGrowFromInitialSize() {
+        Counter counter = new Counter(Long.MAX_VALUE);
+        assertEquals(100, BatchSources.longs(counter, 50).limit(100).count());
+        assertEquals(BatchSources.INITIAL_BATCH, (int) counter.requests.get(0));
+        assertEquals(2 * BatchSources.INITIAL_BATCH, (int) counter.requests.get(1));
+        assertTrue(counter.requests.stream().allMatch(size -> size <= 50));
+        assertTrue("pulled " + counter.pulled(), counter.pulled() <= 100 + 50);
+    }
+
+    @Test
+    public void limitPullsAtMostAboutTwiceAsMany() {
+        for (int n : new int[]{1, 15, 16, 17, 100, 1000}) {
+            Counter counter = new Counter(Long.MAX_VALUE);
+            assertEquals(n, BatchSources.stream(counter, 1 << 20).limit(n).count());
+            assertTrue("pulled " + counter.pulled() + " for " + n, counter.pulled() <= 2L * n + BatchSources.INITIAL_BATCH);
+        }
+    }
+
+    @Test
+    public void prefetchDeliversEverythingAndStops() throws InterruptedException {
+        Set<Thread> before = prefetchThreads();
+        try (Stream<Integer> stream = BatchSources.prefetch(new Counter(N), 256, 2)) {
+            assertEquals(IntStream.range(0, N).boxed().collect(Collectors.toList()), stream.collect(Collectors.toList()));
+        }
+        try (LongStream stream = BatchSources.prefetchLongs(new Counter(N), 256, 1)) {
+            assertArrayEquals(LongStream.range(0, N).toArray(), stream.toArray());
+        }
+        awaitNoNewPrefetchThreads(before, false);
+    }
+
+    @Test
+    public void prefetchRethrowsSourceErrorsAfterEarlierBatches() throws InterruptedException {
+        Set<Thread> before = prefetchThreads();
+        List<Integer> seen = new ArrayList<>();
+        BatchSupplier<Integer> failing = new BatchSupplier<Integer>() {
+            private int next;
+
+            @Override
+            public int fill(List<? super Integer> out, int max) {
+                if (next >= 100) {
+                    throw new IllegalStateException("source failed");
+                }
+                for (int i = 0; i < max; i++) {
+                    out.add(next++);
+                }
+                return max;
+            }
+        };
+        try (Stream<Integer> stream = BatchSources.prefetch(failing, 64, 4)) {
+            stream.forEach(seen::add);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertEquals("source failed", expected.getMessage());
+        }
+        //16 + 32 + 64 个元素先于异常送达
+        assertEquals(IntStream.range(0, 112).boxed().collect(Collectors.toList()), seen);
+        awaitNoNewPrefetchThreads(before, false);
+    }
+
+    @Test
+    public void closeStopsAnInfinitePrefetch() throws InterruptedException {
+        Set<Thread> before = prefetchThreads();
+        try (LongStream stream = BatchSources.prefetchLongs(new Counter(Long.MAX_VALUE), 1024, 2)) {
+            assertEquals(10, stream.limit(10).count());
+        }
+        awaitNoNewPrefetchThreads(before, false);
+    }
+
+    @Test
+    public void abandonedPrefetchThreadExitsAfterGc() throws InterruptedException {
+        Set<Thread> before = prefetchThreads();
+        for (int i = 0; i < 3; i++) {
+            //没有 close 的流，流被回收后后台线程也要退出
+            assertEquals(10, BatchSources.prefetchLongs(new Counter(Long.MAX_VALUE), 1024, 2).limit(10).count());
+        }
+        awaitNoNewPrefetchThreads(before, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveBatchSizeIsRejected() {
+        BatchSources.stream(new Counter(1), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveDepthIsRejected() {
+        BatchSources.prefetch(new Counter(1), 16, 0);
+    }
+
+    private static Set<Thread> prefetchThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("batch-prefetch-") && t.isAlive())
+                .collect(Collectors.toSet());
+    }
+
+    private static void awaitNoNewPrefetchThreads(Set<Thread> before, boolean gc) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (true) {
+            if (gc) {
+                System.gc();
+            }
+            Set<Thread> now = prefetchThreads();
+            now.removeAll(before);
+            if (now.isEmpty()) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                fail("prefetch threads still running: " + now);
+            }
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Distinct：有序模式在之后调用 parallel() 时仍保留第一次出现的元素，无序模式并行去重的结果与 distinct() 相同
+ *
+ * @author joey
+ */
+public class DistinctTest {
+
+    private static final int N = 200_000;
+
+    @Test
+    public void orderedKeepsFirstOccurrenceAfterParallel() {
+        long[] keys = randomKeys(N, 5_000);
+        long[] expected = LongStream.of(keys).distinct().toArray();
+        assertArrayEquals(expected, Distinct.exact(16).apply(LongStream.of(keys).parallel()).toArray());
+        assertArrayEquals(expected, Distinct.exact(16).apply(LongStream.of(keys)).parallel().toArray());
+        assertArrayEquals(expected, Distinct.exact(16).apply(LongStream.of(keys)).parallel().map(k -> k + 1).map(k -> k - 1).toArray());
+    }
+
+    @Test
+    public void orderedObjectStreamKeepsFirstElementPerKey() {
+        long[] keys = randomKeys(N, 5_000);
+        //元素是下标，key 是 keys[下标]，第一次出现的下标即 keys 中该 key 的第一个位置
+        int[] expected = IntStream.range(0, N).filter(i -> firstIndexOf(keys, keys[i]) == i).toArray();
+        int[] actual = Distinct.exact(16).apply(IntStream.range(0, N).boxed(), i -> keys[i])
+                .parallel()
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void unorderedParallelMatchesDistinct() {
+        long[] keys = randomKeys(N, 50_000);
+        long[] expected = LongStream.of(keys).distinct().sorted().toArray();
+        long[] actual = Distinct.exact(1_000).unordered().apply(LongStream.of(keys).parallel()).toArray();
+        Arrays.sort(actual);
+        assertArrayEquals(expected, actual);
+        assertEquals(expected.length, Distinct.exact(1_000).unordered().apply(LongStream.of(keys).boxed().parallel(), Long::longValue).count());
+    }
+
+    @Test
+    public void approximateNeverKeepsDuplicates() {
+        long[] keys = randomKeys(N, 50_000);
+        long distinct = LongStream.of(keys).distinct().count();
+        long[] kept = Distinct.approximate(50_000, 0.01).apply(LongStream.of(keys)).parallel().toArray();
+        assertEquals(kept.length, LongStream.of(kept).distinct().count());
+        assertTrue(kept.length <= distinct);
+        assertTrue("too many false positives: " + kept.length, kept.length >= distinct * 0.95);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void exactFailsBeyondMaxBytes() {
+        Distinct.exact(16).maxBytes(1 << 12).apply(LongStream.range(0, N)).count();
+    }
+
+    @Test
+    public void closePropagatesToSource() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Distinct.exact(16).apply(LongStream.of(1, 2, 2).onClose(() -> closed.set(true))).close();
+        assertTrue(closed.get());
+    }
+
+    private static long[] randomKeys(int n, int domain) {
+        Random random = new Random(42);
+        return LongStream.generate(() -> random.nextInt(domain) * 0x9E3779B97F4A7C15L).limit(n).toArray();
+    }
+
+    private static int firstIndexOf(long[] keys, long key) {
+        for (int i = 0; ; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+    }
+}
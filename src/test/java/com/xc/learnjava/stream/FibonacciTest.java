@@ -0,0 +1,83 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Fibonacci：快速倍增与逐项相加的结果一致，并行切分后每个分片从正确的起点开始
+ *
+ * @author joey
+ */
+public class FibonacciTest {
+
+    private static List<BigInteger> iterate(int n) {
+        List<BigInteger> fib = new ArrayList<>(n);
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE;
+        for (int i = 0; i < n; i++) {
+            fib.add(a);
+            BigInteger c = a.add(b);
+            a = b;
+            b = c;
+        }
+        return fib;
+    }
+
+    @Test
+    public void exactValuesMatchIteration() {
+        List<BigInteger> fib = iterate(2000);
+        long[] longs = new long[Fibonacci.MAX_LONG_INDEX + 1];
+        for (int i = 0; i <= Fibonacci.MAX_LONG_INDEX; i++) {
+            assertEquals(fib.get(i).longValue(), Fibonacci.get(i));
+            longs[i] = fib.get(i).longValueExact();
+        }
+        assertArrayEquals(longs, Fibonacci.longs(0, Fibonacci.MAX_LONG_INDEX + 1).parallel().toArray());
+        assertEquals(fib, Fibonacci.bigIntegers(0, 2000).parallel().collect(Collectors.toList()));
+        assertEquals(fib.get(1999), Fibonacci.getExact(1999));
+    }
+
+    @Test
+    public void moduloValuesMatchBigInteger() {
+        long mod = Integer.MAX_VALUE;
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            long n = random.nextInt(5000);
+            assertEquals(Fibonacci.getExact(n).mod(BigInteger.valueOf(mod)).longValue(), Fibonacci.get(n, mod));
+        }
+        List<BigInteger> fib = iterate(3000);
+        long[] expected = fib.subList(1000, 3000).stream().mapToLong(f -> f.mod(BigInteger.valueOf(1_000_000_007)).longValue()).toArray();
+        assertArrayEquals(expected, Fibonacci.longs(1000, 3000, 1_000_000_007).parallel().toArray());
+        //很大的下标只需要 O(log n) 次倍增
+        assertEquals(0, Fibonacci.get(Long.MAX_VALUE - 1, 1));
+        long n = Long.MAX_VALUE - 1;
+        assertEquals(Fibonacci.get(n, 97), (Fibonacci.get(n - 1, 97) + Fibonacci.get(n - 2, 97)) % 97);
+        long[] tail = new long[5];
+        for (int i = 0; i < tail.length; i++) {
+            tail[i] = Fibonacci.get(Long.MAX_VALUE - 5 + i, 97);
+        }
+        assertArrayEquals(tail, Fibonacci.longs(Long.MAX_VALUE - 5, Long.MAX_VALUE, 97).toArray());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void longOverflowIsRejected() {
+        Fibonacci.get(Fibonacci.MAX_LONG_INDEX + 1);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void longRangeBeyondMaxIndexIsRejected() {
+        Fibonacci.longs(0, Fibonacci.MAX_LONG_INDEX + 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void modulusAboveIntRangeIsRejected() {
+        Fibonacci.get(10, Integer.MAX_VALUE + 1L);
+    }
+}
@@ -0,0 +1,129 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Flatten：空块、部分填充的块，以及任意切分、切分后再 tryAdvance 时元素既不重复也不遗漏
+ *
+ * @author joey
+ */
+public class FlattenTest {
+
+    @Test
+    public void matchesFlatMap() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int[][] chunks = randomChunks(random);
+            int[] expected = Arrays.stream(chunks).flatMapToInt(IntStream::of).toArray();
+            assertArrayEquals(expected, Flatten.ints(chunks).toArray());
+            assertArrayEquals(expected, Flatten.ints(chunks).parallel().toArray());
+            assertArrayEquals(expected, Flatten.ints(Arrays.asList(chunks)).toArray());
+            assertEquals(expected.length, Flatten.ints(chunks).spliterator().getExactSizeIfKnown());
+            long[][] longChunks = Arrays.stream(chunks).map(c -> IntStream.of(c).asLongStream().toArray()).toArray(long[][]::new);
+            assertArrayEquals(IntStream.of(expected).asLongStream().toArray(), Flatten.longs(longChunks).parallel().toArray());
+        }
+    }
+
+    @Test
+    public void lengthsLimitEachChunk() {
+        int[][] chunks = {{1, 2, 3}, {}, {4, 5}, {6, 7, 8, 9}, {10}};
+        int[] lengths = {2, 0, 0, 4, 1};
+        assertArrayEquals(new int[]{1, 2, 6, 7, 8, 9, 10}, Flatten.ints(chunks, lengths).toArray());
+        assertArrayEquals(new int[]{1, 2, 6, 7, 8, 9, 10}, Flatten.ints(chunks, lengths).parallel().toArray());
+        long[][] longChunks = {{1, 2, 3}, {}, {4, 5}};
+        assertArrayEquals(new long[]{1, 4}, Flatten.longs(longChunks, new int[]{1, 0, 1}).toArray());
+        assertEquals(0, Flatten.ints(new int[][]{{}, {}, {}}).count());
+        assertEquals(0, Flatten.ints(new int[0][]).count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthBeyondChunkIsRejected() {
+        Flatten.ints(new int[][]{{1, 2}}, new int[]{3});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthsCountMustMatchChunks() {
+        Flatten.longs(new long[][]{{1, 2}}, new int[]{1, 1});
+    }
+
+    @Test
+    public void everySplitCoversTheRangeOnce() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int[][] chunks = randomChunks(random);
+            int[] expected = Arrays.stream(chunks).flatMapToInt(IntStream::of).toArray();
+            List<Integer> actual = new ArrayList<>();
+            drain(Flatten.ints(chunks).spliterator(), random, actual);
+            assertArrayEquals(expected, actual.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    @Test
+    public void tryAdvanceAfterSplit() {
+        int[][] chunks = {{0, 1, 2, 3}, {}, {4, 5, 6, 7}};
+        Spliterator.OfInt right = Flatten.ints(chunks).spliterator();
+        Spliterator.OfInt left = right.trySplit();
+        assertEquals(4, left.estimateSize());
+        assertEquals(4, right.estimateSize());
+        int[] seen = new int[1];
+        assertTrue(right.tryAdvance((int v) -> seen[0] = v));
+        assertEquals(4, seen[0]);
+        assertEquals(3, right.estimateSize());
+        assertTrue(left.tryAdvance((int v) -> seen[0] = v));
+        assertEquals(0, seen[0]);
+        Spliterator.OfInt rest = right.trySplit();
+        int[] sum = new int[1];
+        if (rest != null) {
+            rest.forEachRemaining((int v) -> sum[0] += v);
+        }
+        right.forEachRemaining((int v) -> sum[0] += v);
+        assertEquals(5 + 6 + 7, sum[0]);
+        assertFalse(right.tryAdvance((int v) -> sum[0] += v));
+    }
+
+    /**
+     * 随机地先 tryAdvance 若干个，再切分，左边（前缀）先于右边收集
+     */
+    private static void drain(Spliterator.OfInt s, Random random, List<Integer> into) {
+        long size = s.estimateSize();
+        for (int i = random.nextInt(3); i > 0; i--) {
+            if (s.tryAdvance((int v) -> into.add(v))) {
+                size--;
+            }
+            assertEquals(size, s.estimateSize());
+        }
+        Spliterator.OfInt prefix = random.nextInt(4) == 0 ? null : s.trySplit();
+        if (prefix == null) {
+            s.forEachRemaining((int v) -> into.add(v));
+            return;
+        }
+        assertEquals(size, prefix.estimateSize() + s.estimateSize());
+        drain(prefix, random, into);
+        drain(s, random, into);
+    }
+
+    private static int[][] randomChunks(Random random) {
+        int[][] chunks = new int[random.nextInt(12)][];
+        int next = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            int length = random.nextInt(3) == 0 ? 0 : random.nextInt(random.nextBoolean() ? 4 : 200);
+            chunks[i] = new int[length];
+            for (int j = 0; j < length; j++) {
+                chunks[i][j] = next++;
+            }
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,67 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * IndexedGrouping：并行分组的结果与 Collectors.groupingBy 相同，组内保持出现顺序
+ *
+ * @author joey
+ */
+public class IndexedGroupingTest {
+
+    private static final int N = 100_000;
+
+    @Test
+    public void groupingByIndexMatchesGroupingBy() {
+        int[] values = new Random(7).ints(N, 0, 1000).toArray();
+        Map<Integer, List<Integer>> expected = IntStream.of(values).boxed().collect(Collectors.groupingBy(v -> v % 37));
+        IndexedGroups<List<Integer>> groups = IntStream.of(values).boxed().parallel().collect(IndexedGrouping.groupingByIndex(40, v -> v % 37));
+        assertEquals(40, groups.size());
+        assertEquals(expected, new HashMap<>(groups.toMap(i -> i)));
+        assertNull(groups.get(38));
+        Map<Integer, Long> counts = IntStream.of(values).boxed().collect(Collectors.groupingBy(v -> v % 37, Collectors.counting()));
+        assertEquals(counts, new HashMap<>(IntStream.of(values).boxed().parallel()
+                .collect(IndexedGrouping.groupingByIndex(37, v -> v % 37, Collectors.counting())).toMap(i -> i)));
+    }
+
+    @Test
+    public void groupingByByteAndEnum() {
+        List<Integer> values = IntStream.range(-500, 500).boxed().collect(Collectors.toList());
+        IndexedGroups<List<Integer>> bytes = values.parallelStream().collect(IndexedGrouping.groupingByByte(v -> v));
+        assertEquals(Arrays.asList(-256, 0, 256), bytes.get(0));
+        assertEquals(Arrays.asList(-257, -1, 255), bytes.get(255));
+        Map<DayOfWeek, List<Integer>> days = values.parallelStream().collect(IndexedGrouping.groupingByEnum(DayOfWeek.class, v -> DayOfWeek.of(Math.floorMod(v, 7) + 1)));
+        assertEquals(values.stream().collect(Collectors.groupingBy(v -> DayOfWeek.of(Math.floorMod(v, 7) + 1))), days);
+    }
+
+    @Test
+    public void groupingByFirstCharMatchesSubstring() {
+        Random random = new Random(8);
+        String[] prefixes = {"a", "B", "中", "😀", "~", "é"};
+        List<String> words = IntStream.range(0, N)
+                .mapToObj(i -> prefixes[random.nextInt(prefixes.length)] + i)
+                .collect(Collectors.toList());
+        Map<String, List<String>> expected = words.stream().collect(Collectors.groupingBy(s -> s.substring(0, 1)));
+        assertEquals(expected, new HashMap<>(words.parallelStream().collect(IndexedGrouping.groupingByFirstChar())));
+        Map<String, Long> counts = words.stream().collect(Collectors.groupingBy(s -> s.substring(0, 1), Collectors.counting()));
+        assertEquals(counts, new HashMap<>(words.parallelStream().collect(IndexedGrouping.groupingByFirstChar(Collectors.counting()))));
+        assertEquals(Arrays.asList(""), Arrays.asList("", "x").stream().collect(IndexedGrouping.groupingByFirstChar()).get(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexOutOfRangeIsRejected() {
+        IntStream.range(0, 10).boxed().collect(IndexedGrouping.groupingByIndex(5, v -> v));
+    }
+}
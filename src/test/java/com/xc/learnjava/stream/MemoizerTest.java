@@ -0,0 +1,145 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Memoizer：结果与原函数相同；命中、未命中、淘汰、过期的计数准确；容量不超过 maximumSize（按段向上取整）
+ *
+ * @author joey
+ */
+public class MemoizerTest {
+
+    @Test
+    public void cachesResultsIncludingNull() {
+        AtomicInteger calls = new AtomicInteger();
+        Memoizer<String, String> memo = Memoizer.of(s -> {
+            calls.incrementAndGet();
+            return s == null || s.isEmpty() ? null : s.toUpperCase();
+        }, 16);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("A", memo.apply("a"));
+            assertEquals("B", memo.apply("b"));
+            assertNull(memo.apply(""));
+            assertNull(memo.apply(null));
+        }
+        assertEquals(4, calls.get());
+        Memoizer.Stats stats = memo.stats();
+        assertEquals(8, stats.hits);
+        assertEquals(4, stats.misses);
+        assertEquals(4, stats.size);
+        assertEquals(8 / 12.0, stats.hitRate(), 1e-9);
+        assertTrue(stats.toString(), stats.toString().contains("hits=8"));
+
+        memo.invalidateAll();
+        assertEquals(0, memo.stats().size);
+        assertEquals("A", memo.apply("a"));
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        //maximumSize 小于 32 时只有一段，是严格的 LRU
+        AtomicInteger calls = new AtomicInteger();
+        Memoizer<Integer, Integer> memo = Memoizer.of(i -> {
+            calls.incrementAndGet();
+            return i * 10;
+        }, 3);
+        memo.apply(1);
+        memo.apply(2);
+        memo.apply(3);
+        memo.apply(1);
+        memo.apply(4);
+        assertEquals(1, memo.stats().evictions);
+        assertEquals(3, memo.stats().size);
+        calls.set(0);
+        assertEquals(10, (int) memo.apply(1));
+        assertEquals(30, (int) memo.apply(3));
+        assertEquals(40, (int) memo.apply(4));
+        assertEquals(0, calls.get());
+        assertEquals(20, (int) memo.apply(2));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        int maximumSize = 1000;
+        Memoizer<Integer, Integer> memo = Memoizer.of(i -> -i, maximumSize);
+        IntStream.range(0, 10_000).boxed().parallel().forEach(memo::apply);
+        Memoizer.Stats stats = memo.stats();
+        assertEquals(10_000, stats.misses);
+        assertEquals(10_000, stats.evictions + stats.size);
+        //每段容量向上取整，段数不超过 maximumSize / 16
+        assertTrue(stats.toString(), stats.size <= maximumSize + maximumSize / 16);
+        assertTrue(stats.toString(), stats.size >= maximumSize / 2);
+    }
+
+    @Test
+    public void expiresAfterTtl() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        Memoizer<String, Integer> shortLived = Memoizer.of(s -> calls.incrementAndGet(), 10, 1, TimeUnit.MILLISECONDS);
+        assertEquals(1, (int) shortLived.apply("k"));
+        Thread.sleep(20);
+        assertEquals(2, (int) shortLived.apply("k"));
+        assertEquals(1, shortLived.stats().expirations);
+        assertEquals(2, shortLived.stats().misses);
+
+        Memoizer<String, Integer> longLived = Memoizer.of(s -> calls.incrementAndGet(), 10, 1, TimeUnit.HOURS);
+        int first = longLived.apply("k");
+        Thread.sleep(20);
+        assertEquals(first, (int) longLived.apply("k"));
+        assertEquals(0, longLived.stats().expirations);
+        assertEquals(1, longLived.stats().hits);
+    }
+
+    @Test
+    public void parallelMatchesDirect() {
+        List<Integer> keys = IntStream.range(0, 100_000).map(i -> i % 997).boxed().collect(Collectors.toList());
+        Memoizer<Integer, String> memo = Memoizer.of(i -> "v" + i * 31, 4096);
+        List<String> expected = keys.stream().map(i -> "v" + i * 31).collect(Collectors.toList());
+        assertEquals(expected, keys.parallelStream().map(memo).collect(Collectors.toList()));
+        Memoizer.Stats stats = memo.stats();
+        assertEquals(100_000, stats.hits + stats.misses);
+        assertEquals(997, stats.size);
+        assertEquals(0, stats.evictions);
+    }
+
+    @Test
+    public void primitiveVariants() {
+        AtomicInteger calls = new AtomicInteger();
+        Memoizer.ToInt<String> length = Memoizer.ofInt(s -> {
+            calls.incrementAndGet();
+            return s.length();
+        }, 100);
+        Memoizer.ToLong<String> parsed = Memoizer.ofLong(Long::parseLong, 100, 1, TimeUnit.MINUTES);
+        List<String> words = IntStream.range(0, 10_000).mapToObj(i -> Long.toString(Long.MAX_VALUE - i % 50)).collect(Collectors.toList());
+        assertEquals(words.stream().mapToInt(String::length).sum(), words.parallelStream().mapToInt(length).sum());
+        assertEquals(words.stream().mapToLong(Long::parseLong).sum(), words.parallelStream().mapToLong(parsed).sum());
+        assertTrue(calls.get() >= 50);
+        assertEquals(50, length.stats().size);
+        assertEquals(10_000, parsed.stats().hits + parsed.stats().misses);
+        length.invalidateAll();
+        parsed.invalidateAll();
+        assertEquals(0, length.stats().size);
+        assertEquals(0, parsed.stats().size);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maximumSizeMustBePositive() {
+        Memoizer.of(s -> s, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ttlMustNotBeNegative() {
+        Memoizer.ofInt(s -> 1, 10, -1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,111 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pages：与 skip/limit 的结果一致，skip、limit、pageIndex 取极大值时不会溢出
+ *
+ * @author joey
+ */
+public class PagesTest {
+
+    private static final long[] COUNTS = {0, 1, 3, 7, 10, 11, Integer.MAX_VALUE, Long.MAX_VALUE};
+
+    @Test
+    public void sliceMatchesSkipLimit() {
+        int[] ints = IntStream.range(0, 10).toArray();
+        long[] longs = LongStream.range(0, 10).toArray();
+        Integer[] boxed = IntStream.range(0, 10).boxed().toArray(Integer[]::new);
+        List<Integer> arrayList = new ArrayList<>(Arrays.asList(boxed));
+        List<Integer> linkedList = new LinkedList<>(arrayList);
+        for (long skip : COUNTS) {
+            for (long limit : COUNTS) {
+                int[] expected = IntStream.of(ints).skip(skip).limit(limit).toArray();
+                String message = "skip " + skip + " limit " + limit;
+                assertArrayEquals(message, expected, Pages.slice(ints, skip, limit).toArray());
+                assertArrayEquals(message, expected, Pages.slice(ints, skip, limit).parallel().toArray());
+                assertArrayEquals(message, LongStream.of(longs).skip(skip).limit(limit).toArray(), Pages.slice(longs, skip, limit).toArray());
+                assertArrayEquals(message, Arrays.stream(boxed).skip(skip).limit(limit).toArray(), Pages.slice(boxed, skip, limit).toArray());
+                assertEquals(message, arrayList.stream().skip(skip).limit(limit).collect(Collectors.toList()),
+                        Pages.slice(arrayList, skip, limit).collect(Collectors.toList()));
+                assertEquals(message, linkedList.stream().skip(skip).limit(limit).collect(Collectors.toList()),
+                        Pages.slice(linkedList, skip, limit).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void pageIsSized() {
+        int[] ints = IntStream.range(0, 100).toArray();
+        Spliterator.OfInt spliterator = Pages.page(ints, 3, 7).spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(7, spliterator.getExactSizeIfKnown());
+        assertArrayEquals(new int[]{21, 22, 23, 24, 25, 26, 27}, Pages.page(ints, 3, 7).toArray());
+        assertEquals(0, Pages.page(ints, Long.MAX_VALUE, Integer.MAX_VALUE).count());
+        List<Integer> list = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        assertEquals(Arrays.asList(98, 99), Pages.page(list, 7, 14).collect(Collectors.toList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSkipIsRejected() {
+        Pages.slice(new int[3], -1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePageIndexIsRejected() {
+        Pages.page(new int[3], -1, 2);
+    }
+
+    @Test
+    public void rangeAtLongBounds() {
+        assertArrayEquals(new long[]{Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MIN_VALUE + 2}, Pages.range(Long.MIN_VALUE, Long.MAX_VALUE, 0, 3).toArray());
+        assertArrayEquals(new long[]{Long.MAX_VALUE - 1}, Pages.range(Long.MAX_VALUE - 5, Long.MAX_VALUE, 1, 4).toArray());
+        assertEquals(0, Pages.range(Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 10).count());
+        assertEquals(0, Pages.range(5, 5, 0, 10).count());
+        assertEquals(0, Pages.range(5, -5, 0, 10).count());
+        assertArrayEquals(new long[]{7, 8, 9}, Pages.naturals(2, 3).toArray());
+        assertEquals(0, Pages.naturals(Long.MAX_VALUE, Integer.MAX_VALUE).count());
+        //最后一页不满：1 到 Long.MAX_VALUE - 1 共 Long.MAX_VALUE - 1 个数
+        long last = Long.MAX_VALUE / 1000;
+        assertEquals(Long.MAX_VALUE - 1 - last * 1000, Pages.naturals(last, 1000).count());
+        assertEquals(Long.MAX_VALUE - 1, Pages.naturals(last, 1000).max().getAsLong());
+    }
+
+    @Test
+    public void fibonacciPageMatchesIteration() {
+        long mod = 1_000_000_007L;
+        long[] fib = new long[300];
+        fib[1] = 1;
+        for (int i = 2; i < fib.length; i++) {
+            fib[i] = (fib[i - 1] + fib[i - 2]) % mod;
+        }
+        for (int page = 0; page < 30; page++) {
+            assertArrayEquals(Arrays.copyOfRange(fib, page * 10, page * 10 + 10), Pages.fibonacci(page, 10, mod).toArray());
+        }
+        assertEquals(10, Pages.fibonacci(Long.MAX_VALUE / 20, 10, mod).count());
+    }
+
+    @Test
+    public void datesStopAtLocalDateMax() {
+        LocalDate start = LocalDate.of(2020, 1, 30);
+        assertEquals(Arrays.asList(LocalDate.of(2020, 2, 3), LocalDate.of(2020, 2, 4)), Pages.dates(start, 2, 2).collect(Collectors.toList()));
+        LocalDate nearMax = LocalDate.MAX.minusDays(2);
+        assertEquals(Arrays.asList(nearMax, nearMax.plusDays(1), LocalDate.MAX), Pages.dates(nearMax, 0, 10).collect(Collectors.toList()));
+        assertEquals(0, Pages.dates(nearMax, 1, 10).count());
+        assertEquals(0, Pages.dates(LocalDate.MIN, Long.MAX_VALUE, Integer.MAX_VALUE).count());
+    }
+}
@@ -0,0 +1,141 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * ParallelCollectors：parallel() 下的结果与串行一致，重复 key 按出现顺序处理，溢出与 0 的处理与分片方式无关
+ *
+ * @author joey
+ */
+public class ParallelCollectorsTest {
+
+    private static final int N = 100_000;
+
+    /**
+     * 第 i 个元素是 {key, i}，key 在 [0, 1000) 中重复出现
+     */
+    private static List<int[]> pairs() {
+        Random random = new Random(17);
+        List<int[]> pairs = new ArrayList<>(N);
+        for (int i = 0; i < N; i++) {
+            pairs.add(new int[]{random.nextInt(1000), i});
+        }
+        return pairs;
+    }
+
+    @Test
+    public void toMapKeepsEncounterOrderForDuplicates() {
+        List<int[]> pairs = pairs();
+        Map<Integer, Integer> first = new HashMap<>();
+        Map<Integer, Integer> last = new HashMap<>();
+        for (int[] p : pairs) {
+            first.putIfAbsent(p[0], p[1]);
+            last.put(p[0], p[1]);
+        }
+        for (int round = 0; round < 5; round++) {
+            assertEquals(first, pairs.parallelStream().collect(ParallelCollectors.toMap(p -> p[0], p -> p[1], DuplicateKeyPolicy.FIRST_WINS)));
+            assertEquals(last, pairs.parallelStream().collect(ParallelCollectors.toMap(p -> p[0], p -> p[1], DuplicateKeyPolicy.LAST_WINS)));
+        }
+        assertEquals(first, pairs.stream().collect(ParallelCollectors.toMap(p -> p[0], p -> p[1], DuplicateKeyPolicy.FIRST_WINS)));
+        Map<Integer, Integer> concurrent = pairs.parallelStream().collect(ParallelCollectors.intoConcurrentMap(
+                (m, p) -> DuplicateKeyPolicy.LAST_WINS.put(m, p[0], p[1]), DuplicateKeyPolicy.LAST_WINS));
+        assertEquals(last.keySet(), concurrent.keySet());
+    }
+
+    @Test
+    public void toMapFailsOnDuplicatesInParallel() {
+        try {
+            pairs().parallelStream().collect(ParallelCollectors.toMap(p -> p[0], p -> p[1], DuplicateKeyPolicy.FAIL));
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+        //key 互不相同时不会失败，即使在合并时较小的一侧在前
+        Map<Integer, Integer> unique = IntStream.range(0, N).boxed().parallel()
+                .collect(ParallelCollectors.toMap(i -> i, i -> -i, DuplicateKeyPolicy.FAIL));
+        assertEquals(N, unique.size());
+        assertEquals(Integer.valueOf(-5), unique.get(5));
+    }
+
+    @Test
+    public void mergingMapsReplacesSharedIdentityReduce() {
+        List<Map<Integer, Integer>> maps = pairs().stream().map(p -> Collections.singletonMap(p[0], p[1])).collect(Collectors.toList());
+        Map<Integer, Integer> expected = new HashMap<>();
+        maps.forEach(expected::putAll);
+        assertEquals(expected, maps.parallelStream().collect(ParallelCollectors.mergingMaps(DuplicateKeyPolicy.LAST_WINS)));
+        assertEquals(expected, ParallelCollectors.<Map<Integer, Integer>>reduce(maps.parallelStream(), HashMap::new, (m, kv) -> {
+            m.putAll(kv);
+            return m;
+        }));
+    }
+
+    @Test
+    public void countingToSetAndJoiningMatchSerial() {
+        List<int[]> pairs = pairs();
+        Map<Integer, Long> counts = pairs.stream().collect(Collectors.groupingBy(p -> p[0], Collectors.counting()));
+        assertEquals(counts, pairs.parallelStream().collect(ParallelCollectors.counting(p -> p[0])));
+        assertEquals(new HashSet<>(counts.keySet()), pairs.parallelStream().map(p -> p[0]).collect(ParallelCollectors.toSet()));
+        List<String> words = pairs.stream().map(p -> Integer.toString(p[1], 36)).collect(Collectors.toList());
+        assertEquals(String.join(", ", words), words.parallelStream().collect(ParallelCollectors.joining(", ")));
+        assertEquals("", Stream.<String>empty().collect(ParallelCollectors.joining(", ")));
+        assertEquals("a", Stream.of("a").collect(ParallelCollectors.joining(", ")));
+    }
+
+    @Test
+    public void summingExactFailsOnOverflow() {
+        assertEquals(Long.valueOf((long) N * (N - 1) / 2), IntStream.range(0, N).boxed().parallel().collect(ParallelCollectors.summingExact(i -> i)));
+        try {
+            IntStream.range(0, N).boxed().parallel().collect(ParallelCollectors.summingExact(i -> Long.MAX_VALUE / N * 2));
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+        }
+    }
+
+    @Test
+    public void multiplyingExactHandlesZeroAfterOverflow() {
+        Function<Stream<Long>, Long> product = s -> s.collect(ParallelCollectors.multiplyingExact(Long::longValue));
+        assertEquals(Long.valueOf(0), product.apply(Stream.of(Long.MAX_VALUE, 2L, 0L)));
+        assertEquals(Long.valueOf(0), product.apply(Stream.of(0L, Long.MAX_VALUE, 2L)));
+        assertEquals(Long.valueOf(1), product.apply(Stream.empty()));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), product.apply(Stream.of(1L << 62, -2L)));
+        //每个位置放 0 都应得到 0，不论 0 与溢出落在哪个分片
+        List<Long> values = new ArrayList<>(Collections.nCopies(N, 3L));
+        for (int zero : new int[]{0, 1, N / 3, N / 2, N - 1}) {
+            List<Long> copy = new ArrayList<>(values);
+            copy.set(zero, 0L);
+            assertEquals(Long.valueOf(0), product.apply(copy.parallelStream()));
+            assertEquals(Long.valueOf(0), product.apply(copy.stream()));
+        }
+        try {
+            product.apply(values.parallelStream());
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+        }
+        List<Long> signs = IntStream.range(0, N).mapToObj(i -> i % 7 == 0 ? -1L : i % 50_000 == 1 ? 2L : 1L).collect(Collectors.toList());
+        assertEquals(product.apply(signs.stream()), product.apply(signs.parallelStream()));
+    }
+
+    @Test
+    public void reduceGivesEachSplitItsOwnIdentity() {
+        List<String> words = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h");
+        for (int round = 0; round < 100; round++) {
+            StringBuilder joined = ParallelCollectors.reduce(words.parallelStream().map(StringBuilder::new), StringBuilder::new, StringBuilder::append);
+            assertEquals("abcdefgh", joined.toString());
+        }
+    }
+}
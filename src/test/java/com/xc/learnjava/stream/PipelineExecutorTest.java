@@ -0,0 +1,218 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * PipelineExecutor：parallel() 在自己的池中执行；排队上限、取消、超时、失败都反映在结果与 metrics() 中
+ *
+ * @author joey
+ */
+public class PipelineExecutorTest {
+
+    @Test
+    public void parallelStreamRunsInOwnPool() {
+        try (PipelineExecutor executor = PipelineExecutor.create("own", 3)) {
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            long sum = executor.submit(() -> LongStream.rangeClosed(1, 1_000_000).parallel()
+                    .peek(i -> threads.add(Thread.currentThread().getName()))
+                    .sum()).join();
+            assertEquals(500_000_500_000L, sum);
+            assertFalse(threads.isEmpty());
+            for (String thread : threads) {
+                assertTrue(thread, thread.startsWith("own-worker-"));
+            }
+            assertEquals(3, executor.parallelism());
+            PipelineExecutor.Metrics metrics = executor.metrics();
+            assertEquals(1, metrics.submitted);
+            assertEquals(1, metrics.completed);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void rejectsBeyondMaxPending() throws InterruptedException {
+        try (PipelineExecutor executor = PipelineExecutor.create("bounded", 1, 1)) {
+            CountDownLatch release = new CountDownLatch(1);
+            PipelineExecutor.Task<Integer> first = executor.submit(() -> {
+                await(release);
+                return 1;
+            });
+            try {
+                executor.submit(() -> 2);
+                fail();
+            } catch (RejectedExecutionException expected) {
+                assertEquals(1, executor.metrics().rejected);
+            }
+            release.countDown();
+            assertEquals(1, (int) first.join());
+            //结束后名额归还
+            assertEquals(3, (int) executor.submit(() -> 3).join());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void cancelRunningPipeline() {
+        try (PipelineExecutor executor = PipelineExecutor.create("cancel", 2, 1)) {
+            CountDownLatch started = new CountDownLatch(1);
+            PipelineExecutor.Task<Long> task = executor.submit(c -> c.guard(LongStream.range(0, Long.MAX_VALUE).boxed()).parallel()
+                    .peek(i -> started.countDown())
+                    .mapToLong(Long::longValue)
+                    .sum());
+            await(started);
+            assertTrue(task.cancel());
+            assertTrue(task.isCancelled());
+            try {
+                task.join();
+                fail();
+            } catch (CancellationException expected) {
+                assertTrue(task.isDone());
+            }
+            assertFalse(task.cancel());
+            assertEquals(1, executor.metrics().cancelled);
+            assertEquals(0, executor.metrics().completed);
+            //正在执行的流水线结束后才归还名额
+            assertEquals(4, (int) executor.submit(() -> 4).join());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void cancelBeforeStart() {
+        try (PipelineExecutor executor = PipelineExecutor.create("queued", 1, 2)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            PipelineExecutor.Task<Integer> first = executor.submit(() -> {
+                started.countDown();
+                await(release);
+                return 1;
+            });
+            await(started);
+            PipelineExecutor.Task<Integer> second = executor.submit(() -> 2);
+            assertTrue(second.cancel());
+            //还没开始就取消的流水线立即归还名额
+            PipelineExecutor.Task<Integer> third = executor.submit(() -> 3);
+            release.countDown();
+            assertEquals(1, (int) first.join());
+            assertEquals(3, (int) third.join());
+            try {
+                second.join();
+                fail();
+            } catch (CancellationException expected) {
+                assertEquals(1, executor.metrics().cancelled);
+                assertEquals(2, executor.metrics().completed);
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void timeoutCancelsPipeline() throws InterruptedException {
+        try (PipelineExecutor executor = PipelineExecutor.create("timeout", 2, 1)) {
+            try {
+                executor.invoke(c -> c.guard(LongStream.range(0, Long.MAX_VALUE).boxed()).parallel().filter(i -> i >= 0).count(), 50, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException expected) {
+                assertEquals(1, executor.metrics().timedOut);
+            }
+            //被取消的流水线结束后，名额可以再次使用
+            while (true) {
+                try {
+                    assertEquals(5, (int) executor.submit(() -> 5).join());
+                    break;
+                } catch (RejectedExecutionException e) {
+                    Thread.sleep(10);
+                }
+            }
+            assertEquals(1, executor.metrics().cancelled);
+        }
+    }
+
+    @Test
+    public void failurePropagates() throws InterruptedException, TimeoutException {
+        try (PipelineExecutor executor = PipelineExecutor.create("fail", 2)) {
+            try {
+                executor.submit(() -> IntStream.range(0, 1000).parallel().map(i -> 10 / (i - 500)).sum()).join();
+                fail();
+            } catch (ArithmeticException expected) {
+                assertEquals(1, executor.metrics().failed);
+            }
+            try {
+                executor.invoke(c -> {
+                    throw new IllegalStateException("boom");
+                }, 1, TimeUnit.SECONDS);
+                fail();
+            } catch (IllegalStateException expected) {
+                assertEquals(2, executor.metrics().failed);
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void blockingKeepsParallelism() {
+        assertEquals("direct", PipelineExecutor.blocking(() -> "direct"));
+        try (PipelineExecutor executor = PipelineExecutor.create("blocking", 1)) {
+            //并行度为 1，两个互相等待的阻塞调用只有在池补充线程后才能都完成
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            int sum = executor.submit(() -> IntStream.range(0, 2).parallel()
+                    .map(i -> PipelineExecutor.blocking(() -> {
+                        try {
+                            barrier.await(5, TimeUnit.SECONDS);
+                            return i + 1;
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }))
+                    .sum()).join();
+            assertEquals(3, sum);
+        }
+    }
+
+    @Test
+    public void closedExecutorRejects() {
+        PipelineExecutor executor = PipelineExecutor.create("closed", 1, 1);
+        executor.close();
+        try {
+            executor.submit(() -> 1);
+            fail();
+        } catch (RejectedExecutionException expected) {
+            assertEquals(1, executor.metrics().rejected);
+            assertEquals(0, executor.metrics().submitted);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelismMustBePositive() {
+        PipelineExecutor.create("x", 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxPendingMustBePositive() {
+        PipelineExecutor.create("x", 1, 0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nameRequired() {
+        PipelineExecutor.create(null, 1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PipelineProfile：parallel() 下各步骤的计数准确；直方图的相对误差不超过 12.5%；默认不统计分配
+ *
+ * @author joey
+ */
+public class PipelineProfileTest {
+
+    @Test
+    public void countsUnderParallel() {
+        PipelineProfile profile = PipelineProfile.create("counts");
+        List<Integer> result = profile.time("total", () -> IntStream.range(0, 100_000).boxed().parallel()
+                .peek(profile.peek("source"))
+                .map(profile.map("square", i -> i * 3))
+                .filter(profile.filter("even", i -> i % 2 == 0))
+                .sorted(profile.comparator("sort", Comparator.<Integer>naturalOrder()))
+                .collect(Collectors.toList()));
+        assertEquals(50_000, result.size());
+
+        List<PipelineProfile.Stage> stages = profile.stages();
+        assertEquals("total,source,square,even,sort", stages.stream().map(PipelineProfile.Stage::name).collect(Collectors.joining(",")));
+        assertEquals(1, profile.stage("total").snapshot().in());
+        assertEquals(100_000, profile.stage("source").snapshot().in());
+        assertEquals(100_000, profile.stage("source").snapshot().out());
+        assertEquals(100_000, profile.stage("square").snapshot().out());
+        PipelineProfile.Snapshot even = profile.stage("even").snapshot();
+        assertEquals(100_000, even.in());
+        assertEquals(50_000, even.out());
+        assertEquals(0.5, even.selectivity(), 0);
+        assertTrue(profile.stage("sort").snapshot().in() >= 50_000 - 1);
+        //peek 不计时
+        assertEquals(0, profile.stage("source").snapshot().percentile(0.5));
+    }
+
+    @Test
+    public void bucketsBoundRelativeError() {
+        Random random = new Random(19);
+        long[] values = new long[20_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i < 5000 ? i : random.nextLong() >>> (1 + random.nextInt(63));
+        }
+        values[0] = Long.MAX_VALUE;
+        for (long v : values) {
+            int b = PipelineProfile.bucket(v);
+            assertTrue(b >= 0 && b < PipelineProfile.BUCKETS);
+            long upper = PipelineProfile.bucketUpperBound(b);
+            assertTrue(v + " <= " + upper, v <= upper);
+            assertTrue(v + " vs " + upper, upper - v <= v / PipelineProfile.SUB_COUNT);
+            assertEquals(b, PipelineProfile.bucket(upper));
+        }
+        //桶之间首尾相接；最高位为 63 的桶只有负数才会用到，不参与比较
+        for (int b = 1; b <= PipelineProfile.bucket(Long.MAX_VALUE); b++) {
+            assertEquals(b, PipelineProfile.bucket(PipelineProfile.bucketUpperBound(b - 1) + 1));
+        }
+        assertEquals(0, PipelineProfile.bucket(-5));
+    }
+
+    @Test
+    public void percentilesFromRecordedTimes() {
+        PipelineProfile.Stage stage = PipelineProfile.create("percentiles").stage("s");
+        PipelineProfile.Recorder recorder = stage.recorder();
+        for (int v = 1; v <= 1000; v++) {
+            recorder.record(v, v % 4 == 0, 0);
+        }
+        PipelineProfile.Snapshot s = stage.snapshot();
+        assertEquals(1000, s.in());
+        assertEquals(250, s.out());
+        assertEquals(500_500, s.totalNanos());
+        assertEquals(500.5, s.mean(), 1e-9);
+        assertEquals(1000, s.maxNanos());
+        assertEquals(1000, s.percentile(1));
+        assertEquals(1, s.percentile(0));
+        assertInBucket(500, s.percentile(0.5));
+        assertInBucket(900, s.percentile(0.9));
+        assertInBucket(990, s.percentile(0.99));
+        assertEquals(0, new PipelineProfile.Snapshot().percentile(0.5));
+        assertEquals(1, new PipelineProfile.Snapshot().selectivity(), 0);
+    }
+
+    @Test
+    public void allocationTrackingIsOptIn() {
+        PipelineProfile plain = PipelineProfile.create("plain");
+        plain.map("alloc", (Integer i) -> new long[i]).apply(1000);
+        assertEquals(0, plain.stage("alloc").snapshot().allocatedBytes());
+        assertFalse(plain.report().contains("alloc(bytes)"));
+        assertFalse(plain.toJson().contains("allocatedBytes"));
+
+        PipelineProfile tracked = PipelineProfile.create("tracked", true);
+        tracked.map("alloc", (Integer i) -> new long[i]).apply(1000);
+        if (tracked.toJson().contains("allocatedBytes")) {
+            assertTrue(tracked.stage("alloc").snapshot().allocatedBytes() >= 8000);
+            assertTrue(tracked.report().contains("alloc(bytes)"));
+        }
+    }
+
+    @Test
+    public void reportAndJson() {
+        PipelineProfile profile = PipelineProfile.create("say \"hi\"\n");
+        IntStream.range(0, 10).boxed().filter(profile.filter("odd", i -> i % 2 == 1)).count();
+        String json = profile.toJson();
+        assertTrue(json, json.startsWith("{\"pipeline\":\"say \\\"hi\\\"\\u000a\",\"stages\":[{\"name\":\"odd\",\"in\":10,\"out\":5,\"selectivity\":0.5,"));
+        assertTrue(json, json.endsWith("}]}"));
+        String report = profile.report();
+        assertTrue(report, report.contains("odd"));
+        assertTrue(report, report.contains("50.0%"));
+        assertEquals(report, profile.toString());
+    }
+
+    private static void assertInBucket(long exact, long percentile) {
+        assertTrue(exact + " vs " + percentile, percentile >= exact && percentile - exact <= exact / PipelineProfile.SUB_COUNT);
+    }
+}
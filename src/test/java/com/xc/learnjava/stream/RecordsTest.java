@@ -0,0 +1,97 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records：拆分结果与 indexOf + substring 相同；收集结果与 Collectors.toMap 相同；按行拆分的流在 parallel() 时与顺序结果一致
+ *
+ * @author joey
+ */
+public class RecordsTest {
+
+    @Test
+    public void splitAtFirstDelimiter() {
+        Records.Record r = Records.split("a:b:c", ':');
+        assertEquals("a", r.keyString());
+        assertEquals("b:c", r.valueString());
+        assertEquals("a:b:c", r.toString());
+        assertEquals("", Records.split(":", ':').keyString());
+        assertEquals("", Records.split(":", ':').valueString());
+        StringBuilder builder = new StringBuilder("key=value");
+        assertEquals("key", Records.split(builder, '=').keyString());
+        assertEquals("value", Records.split(builder, '=').value().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingDelimiter() {
+        Records.split("abc", ':');
+    }
+
+    @Test
+    public void viewsHashLikeStrings() {
+        Records.Record r = Records.split("hello:世界", ':');
+        assertEquals("hello".hashCode(), r.key().hashCode());
+        assertEquals("世界".hashCode(), r.value().hashCode());
+        assertTrue(r.key().contentEquals("hello"));
+        assertEquals(new CharView("hello", 0, 5), r.key());
+    }
+
+    @Test
+    public void collectorsMatchToMap() {
+        List<String> records = records(20_000);
+        Map<String, String> first = records.stream().collect(Collectors.toMap(s -> s.substring(0, s.indexOf(':')), s -> s.substring(s.indexOf(':') + 1), (a, b) -> a));
+        Map<String, String> last = records.stream().collect(Collectors.toMap(s -> s.substring(0, s.indexOf(':')), s -> s.substring(s.indexOf(':') + 1), (a, b) -> b));
+        assertEquals(first, records.parallelStream().collect(Records.toMap(':', DuplicateKeyPolicy.FIRST_WINS)));
+        assertEquals(last, records.parallelStream().collect(Records.toMap(':', DuplicateKeyPolicy.LAST_WINS)));
+        assertEquals(first.keySet(), records.parallelStream().collect(Records.toConcurrentMap(':', DuplicateKeyPolicy.FIRST_WINS)).keySet());
+
+        Map<CharView, CharView> views = records.parallelStream().collect(Records.toViewMap(':', DuplicateKeyPolicy.LAST_WINS));
+        Map<String, String> copied = views.entrySet().stream().collect(Collectors.toMap(e -> e.getKey().toString(), e -> e.getValue().toString()));
+        assertEquals(last, copied);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failOnDuplicateKey() {
+        records(1000).parallelStream().collect(Records.toMap(':', DuplicateKeyPolicy.FAIL));
+    }
+
+    @Test
+    public void streamSkipsBlankLinesAndCarriageReturns() {
+        String buffer = "a:1\r\n\nb:2\n\r\nc:3";
+        List<String> lines = Records.stream(buffer, '\n', ':').map(r -> r.keyString() + "=" + r.valueString()).collect(Collectors.toList());
+        assertEquals(Arrays.asList("a=1", "b=2", "c=3"), lines);
+        assertEquals(0, Records.stream("", '\n', ':').count());
+        assertEquals(0, Records.stream("\n\n\r\n", '\n', ':').count());
+    }
+
+    @Test
+    public void parallelStreamMatchesSerial() {
+        String buffer = String.join("\r\n", records(50_000)) + "\n";
+        Function<Records.Record, String> text = Records.Record::toString;
+        List<String> serial = Records.stream(buffer, '\n', ':').map(text).collect(Collectors.toList());
+        assertEquals(records(50_000), serial);
+        assertEquals(serial, Records.stream(buffer, '\n', ':').parallel().map(text).collect(Collectors.toList()));
+        Map<String, String> expected = Records.stream(buffer, '\n', ':').collect(Collectors.toMap(Records.Record::keyString, Records.Record::valueString, (a, b) -> b));
+        Map<String, String> actual = Records.stream(buffer, '\n', ':').parallel().map(text).collect(Records.toMap(':', DuplicateKeyPolicy.LAST_WINS));
+        assertEquals(expected, actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void streamRejectsLineWithoutDelimiter() {
+        Records.stream("a:1\nbad\nc:3", '\n', ':').parallel().count();
+    }
+
+    private static List<String> records(int n) {
+        return IntStream.range(0, n).mapToObj(i -> "k" + (i % 997) + ":v" + i).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,48 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.Spliterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sequences：区间是 SIZED|SUBSIZED 的，"无限"自然数序列上的 limit 与并行求和都是精确的
+ *
+ * @author joey
+ */
+public class SequencesTest {
+
+    @Test
+    public void naturalsAreSizedRanges() {
+        Spliterator.OfLong longs = Sequences.naturalLongs().spliterator();
+        assertTrue(longs.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(Long.MAX_VALUE - 1, longs.getExactSizeIfKnown());
+        assertEquals(Integer.MAX_VALUE, Sequences.naturalInts().spliterator().getExactSizeIfKnown());
+        assertArrayEquals(new int[]{1, 2, 3}, Sequences.naturalInts().limit(3).toArray());
+        assertArrayEquals(new int[]{1, 2, 3}, Sequences.naturalInts(3).toArray());
+        assertEquals(0, Sequences.naturalLongs(0).count());
+    }
+
+    @Test
+    public void parallelSumsMatchClosedForm() {
+        long n = 2_000_000;
+        assertEquals(n * (n + 1) / 2, Sequences.naturalLongs().parallel().limit(n).sum());
+        assertEquals(n * (n + 1) / 2, Sequences.naturalLongs(n).parallel().sum());
+        assertEquals(n * (n - 1) / 2, Sequences.ints(0, (int) n).parallel().asLongStream().sum());
+        assertEquals(3, Sequences.longs(Long.MAX_VALUE - 3, Long.MAX_VALUE).count());
+        assertEquals(0, Sequences.ints(5, 5).count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCountIsRejected() {
+        Sequences.naturalInts(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void longCountBeyondTheSequenceIsRejected() {
+        Sequences.naturalLongs(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,149 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TopK：并行合并堆的结果与 sorted().limit(k) 相同；部分排序的前 k 个与整体排序相同，数组仍是原来元素的排列
+ *
+ * @author joey
+ */
+public class TopKTest {
+
+    private static final int N = 50_000;
+    private static final int[] KS = {0, 1, 2, 15, 16, 17, 100, 1000, N - 1, N, N + 5};
+
+    @Test
+    public void collectorsMatchSortedLimit() {
+        List<Integer> values = new Random(22).ints(N, -1000, 1000).boxed().collect(Collectors.toList());
+        for (int k : KS) {
+            List<Integer> smallest = values.stream().sorted().limit(k).collect(Collectors.toList());
+            List<Integer> largest = values.stream().sorted(Comparator.reverseOrder()).limit(k).collect(Collectors.toList());
+            assertEquals("k=" + k, smallest, values.parallelStream().collect(TopK.smallest(k)));
+            assertEquals("k=" + k, largest, values.parallelStream().collect(TopK.largest(k)));
+            assertEquals("k=" + k, largest, values.stream().collect(TopK.largest(k)));
+        }
+        //只比较排序用的 key，相等元素之间的先后不保证
+        Comparator<String> byLength = Comparator.comparingInt(String::length);
+        List<String> words = values.stream().map(v -> Integer.toString(v * v)).collect(Collectors.toList());
+        List<Integer> expected = words.stream().sorted(byLength.reversed()).limit(30).map(String::length).collect(Collectors.toList());
+        assertEquals(expected, words.parallelStream().collect(TopK.largest(30, byLength)).stream().map(String::length).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void primitiveHeapsMatchSortedLimit() {
+        Random random = new Random(23);
+        int[] ints = random.ints(N).map(v -> v % 5000).toArray();
+        long[] longs = random.longs(N).toArray();
+        double[] doubles = randomDoubles(random);
+        for (int k : KS) {
+            String message = "k=" + k;
+            assertArrayEquals(message, IntStream.of(ints).sorted().limit(k).toArray(), TopK.smallest(IntStream.of(ints).parallel(), k));
+            assertArrayEquals(message, IntStream.of(ints).map(v -> -v).sorted().map(v -> -v).limit(k).toArray(), TopK.largest(IntStream.of(ints).parallel(), k));
+            assertArrayEquals(message, LongStream.of(longs).sorted().limit(k).toArray(), TopK.smallest(LongStream.of(longs).parallel(), k));
+            long[] sortedLongs = LongStream.of(longs).sorted().toArray();
+            long[] largestLongs = new long[Math.min(k, N)];
+            for (int i = 0; i < largestLongs.length; i++) {
+                largestLongs[i] = sortedLongs[N - 1 - i];
+            }
+            assertArrayEquals(message, largestLongs, TopK.largest(LongStream.of(longs).parallel(), k));
+            assertBitsEqual(DoubleStream.of(doubles).sorted().limit(k).toArray(), TopK.smallest(DoubleStream.of(doubles).parallel(), k));
+            double[] sortedDoubles = DoubleStream.of(doubles).sorted().toArray();
+            double[] largestDoubles = new double[Math.min(k, N)];
+            for (int i = 0; i < largestDoubles.length; i++) {
+                largestDoubles[i] = sortedDoubles[N - 1 - i];
+            }
+            assertBitsEqual(largestDoubles, TopK.largest(DoubleStream.of(doubles).parallel(), k));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeKIsRejected() {
+        TopK.largest(IntStream.of(1, 2), -1);
+    }
+
+    @Test
+    public void partialSortMatchesFullSort() {
+        Random random = new Random(24);
+        for (int k : KS) {
+            if (k > N) {
+                continue;
+            }
+            int[] ints = random.ints(N, 0, 100).toArray();
+            int[] sortedInts = ints.clone();
+            Arrays.sort(sortedInts);
+            TopK.partialSort(ints, k);
+            assertArrayEquals(Arrays.copyOf(sortedInts, k), Arrays.copyOf(ints, k));
+            Arrays.sort(ints);
+            assertArrayEquals(sortedInts, ints);
+
+            long[] longs = random.longs(N).toArray();
+            long[] sortedLongs = longs.clone();
+            Arrays.sort(sortedLongs);
+            TopK.partialSort(longs, k);
+            assertArrayEquals(Arrays.copyOf(sortedLongs, k), Arrays.copyOf(longs, k));
+
+            double[] doubles = randomDoubles(random);
+            double[] sortedDoubles = doubles.clone();
+            Arrays.sort(sortedDoubles);
+            TopK.partialSort(doubles, k);
+            assertBitsEqual(Arrays.copyOf(sortedDoubles, k), Arrays.copyOf(doubles, k));
+            Arrays.sort(doubles);
+            assertBitsEqual(sortedDoubles, doubles);
+
+            Integer[] boxed = random.ints(N, 0, 1000).boxed().toArray(Integer[]::new);
+            Integer[] sortedBoxed = boxed.clone();
+            Arrays.sort(sortedBoxed, Comparator.reverseOrder());
+            TopK.partialSort(boxed, k, Comparator.reverseOrder());
+            assertArrayEquals(Arrays.copyOf(sortedBoxed, k), Arrays.copyOf(boxed, k));
+        }
+    }
+
+    @Test
+    public void partialSortOfSortedAndConstantArrays() {
+        int[] ascending = IntStream.range(0, N).toArray();
+        TopK.partialSort(ascending, 10);
+        assertArrayEquals(IntStream.range(0, 10).toArray(), Arrays.copyOf(ascending, 10));
+        int[] descending = IntStream.range(0, N).map(i -> N - i).toArray();
+        TopK.partialSort(descending, 10);
+        assertArrayEquals(IntStream.rangeClosed(1, 10).toArray(), Arrays.copyOf(descending, 10));
+        int[] constant = new int[N];
+        TopK.partialSort(constant, N / 2);
+        assertArrayEquals(new int[N], constant);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void partialSortRejectsKBeyondLength() {
+        TopK.partialSort(new int[3], 4);
+    }
+
+    /**
+     * 含有 NaN、±0.0、±Infinity 和大量重复值
+     */
+    private static double[] randomDoubles(Random random) {
+        double[] specials = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE};
+        double[] a = new double[N];
+        for (int i = 0; i < N; i++) {
+            a[i] = random.nextInt(10) == 0 ? specials[random.nextInt(specials.length)] : random.nextInt(2000) / 8.0 - 125;
+        }
+        return a;
+    }
+
+    private static void assertBitsEqual(double[] expected, double[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("index " + i, Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(actual[i]));
+        }
+    }
+}
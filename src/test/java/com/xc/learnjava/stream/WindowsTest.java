@@ -0,0 +1,160 @@
+package com.xc.learnjava.stream;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Windows：增量聚合的结果与逐个窗口重新计算的结果一致；日期之间有很大的间隔时直接跳过空窗口
+ *
+ * @author joey
+ */
+public class WindowsTest {
+
+    @Test
+    public void countWindowsMatchRecomputation() {
+        Random random = new Random(23);
+        for (int round = 0; round < 2000; round++) {
+            int size = 1 + random.nextInt(6);
+            int step = 1 + random.nextInt(8);
+            long[] values = random.longs(random.nextInt(30), -100, 100).toArray();
+            long[] positions = LongStream.range(0, values.length).toArray();
+            List<String> expected = recompute(positions, values, size, step, null, true);
+            assertEquals("size " + size + " step " + step, expected, strings(Windows.sliding(LongStream.of(values), size, step)));
+            assertEquals(expected, strings(Windows.sliding(Arrays.stream(values).boxed(), size, step, Long::longValue)));
+        }
+        assertEquals(Arrays.asList("Window[0, 3){count=3, sum=6, min=1, max=3}", "Window[3, 6){count=2, sum=9, min=4, max=5}"),
+                strings(Windows.tumbling(LongStream.rangeClosed(1, 5), 3)));
+    }
+
+    @Test
+    public void dateWindowsMatchRecomputation() {
+        Random random = new Random(24);
+        LocalDate base = LocalDate.of(2020, 2, 27);
+        for (int round = 0; round < 2000; round++) {
+            int days = 1 + random.nextInt(6);
+            int step = 1 + random.nextInt(8);
+            long[] values = random.longs(random.nextInt(30), -100, 100).toArray();
+            long[] positions = new long[values.length];
+            long day = base.toEpochDay();
+            for (int i = 0; i < positions.length; i++) {
+                day += random.nextInt(4) == 0 ? random.nextInt(40) : random.nextInt(2);
+                positions[i] = day;
+            }
+            List<long[]> rows = new ArrayList<>();
+            for (int i = 0; i < values.length; i++) {
+                rows.add(new long[]{positions[i], values[i]});
+            }
+            String message = "days " + days + " step " + step;
+            assertEquals(message, recompute(positions, values, days, step, null, false),
+                    strings(Windows.slidingByDate(rows.stream(), days, step, r -> LocalDate.ofEpochDay(r[0]), r -> r[1])));
+            long origin = base.toEpochDay() + random.nextInt(40) - 20;
+            assertEquals(message + " origin " + origin, recompute(positions, values, days, step, origin, false),
+                    strings(Windows.slidingByDate(rows.stream(), days, step, LocalDate.ofEpochDay(origin), r -> LocalDate.ofEpochDay(r[0]), r -> r[1])));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void largeDateGapIsSkippedInOneStep() {
+        List<LocalDate> dates = Arrays.asList(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 2), LocalDate.of(100_000_000, 1, 1), LocalDate.of(100_000_000, 1, 3));
+        List<Windows.Window> windows = Windows.slidingByDate(dates.stream(), 2, 1, d -> d, d -> 1).collect(Collectors.toList());
+        assertEquals(5, windows.size());
+        assertEquals(LocalDate.of(2000, 1, 1), windows.get(0).startDate());
+        assertEquals(LocalDate.of(2000, 1, 2), windows.get(1).startDate());
+        assertEquals(LocalDate.of(100_000_000, 1, 1), windows.get(2).lastDate());
+        assertEquals(LocalDate.of(100_000_000, 1, 3), windows.get(4).lastDate());
+    }
+
+    @Test
+    public void sumIsExactWhenOnlyIntermediatesOverflow() {
+        List<String> windows = strings(Windows.sliding(LongStream.of(Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE, 1), 2, 1));
+        assertEquals("Window[1, 3){count=2, sum=-1, min=" + Long.MIN_VALUE + ", max=" + Long.MAX_VALUE + "}", windows.get(1));
+        assertEquals("Window[3, 5){count=2, sum=" + (Long.MIN_VALUE + 1) + ", min=" + Long.MIN_VALUE + ", max=1}", windows.get(3));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void decreasingDatesAreRejected() {
+        Windows.tumblingByDate(Stream.of(LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 1)), 7, d -> d, d -> 1).count();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroSizeIsRejected() {
+        Windows.tumbling(LongStream.of(1), 0);
+    }
+
+    @Test
+    public void closePropagatesToSource() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Windows.tumbling(LongStream.of(1, 2, 3).onClose(() -> closed.set(true)), 2).close();
+        assertTrue(closed.get());
+    }
+
+    /**
+     * 逐个窗口重新计算：窗口起点为 origin + k * step，从包含第一个元素的窗口开始，没有 origin 时从第一个元素开始；
+     * 按个数分时凑满即输出，按日期分时出现窗口结束之后的位置才输出，空窗口不输出；最后输出还有未输出元素的那个不完整窗口
+     */
+    private static List<String> recompute(long[] positions, long[] values, long size, long step, Long origin, boolean dense) {
+        List<String> windows = new ArrayList<>();
+        if (positions.length == 0) {
+            return windows;
+        }
+        long last = positions[positions.length - 1];
+        long closedBefore = dense ? last + 1 : last;
+        //origin 可以在第一个元素之后，窗口起点向两个方向对齐
+        long start = origin == null ? positions[0] : origin;
+        while (origin != null && start - step + size > positions[0]) {
+            start -= step;
+        }
+        while (start + size <= positions[0]) {
+            start += step;
+        }
+        long emittedEnd = Long.MIN_VALUE;
+        for (; ; start += step) {
+            boolean closed = start + size <= closedBefore;
+            if (!closed && last < emittedEnd) {
+                break;
+            }
+            String window = window(positions, values, start, start + size);
+            if (window != null) {
+                windows.add(window);
+                emittedEnd = start + size;
+            }
+            if (!closed) {
+                break;
+            }
+        }
+        return windows;
+    }
+
+    private static String window(long[] positions, long[] values, long start, long end) {
+        long count = 0;
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] >= start && positions[i] < end) {
+                count++;
+                sum += values[i];
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+        }
+        return count == 0 ? null : new Windows.Window(start, end, count, sum, min, max, false).toString();
+    }
+
+    private static List<String> strings(Stream<Windows.Window> windows) {
+        return windows.map(w -> new Windows.Window(w.start(), w.end(), w.count(), w.sum(), w.min(), w.max(), false).toString())
+                .collect(Collectors.toList());
+    }
+}
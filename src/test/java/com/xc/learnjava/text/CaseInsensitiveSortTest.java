@@ -0,0 +1,103 @@
+package com.xc.learnjava.text;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * CaseInsensitiveSort：三种模式的结果与 Arrays.sort(array, String::compareToIgnoreCase) 完全相同，包括相等元素的先后顺序
+ *
+ * @author joey
+ */
+public class CaseInsensitiveSortTest {
+
+    private static final String ALPHABET = "aAbBzZ09_ éÉßſıİÿŸαΑσΣςµ中";
+
+    @Test
+    public void modesMatchCompareToIgnoreCase() {
+        Random random = new Random(9);
+        int[] sizes = {0, 1, 2, CaseInsensitiveSort.INSERTION_CUTOFF - 1, CaseInsensitiveSort.INSERTION_CUTOFF, 1000, CaseInsensitiveSort.PARALLEL_THRESHOLD + 7};
+        for (int size : sizes) {
+            String[] input = randomStrings(random, size, 6);
+            String[] expected = input.clone();
+            Arrays.sort(expected, String::compareToIgnoreCase);
+            for (CaseInsensitiveSort.Mode mode : CaseInsensitiveSort.Mode.values()) {
+                String[] actual = input.clone();
+                CaseInsensitiveSort.sort(actual, mode);
+                assertArrayEquals(mode + " size=" + size, expected, actual);
+            }
+            String[] auto = input.clone();
+            CaseInsensitiveSort.sortIgnoreCase(auto);
+            assertArrayEquals("size=" + size, expected, auto);
+        }
+    }
+
+    @Test
+    public void radixHandlesLongCommonPrefixes() {
+        //公共前缀超过 MAX_RADIX_DEPTH 个字节，余下部分由 Arrays.sort 处理
+        char[] prefix = new char[CaseInsensitiveSort.MAX_RADIX_DEPTH];
+        Arrays.fill(prefix, 'x');
+        Random random = new Random(10);
+        String[] input = randomStrings(random, 5000, 3);
+        for (int i = 0; i < input.length; i++) {
+            String p = new String(prefix);
+            input[i] = (i % 2 == 0 ? p : p.toUpperCase()) + input[i];
+        }
+        String[] expected = input.clone();
+        Arrays.sort(expected, String::compareToIgnoreCase);
+        CaseInsensitiveSort.sort(input, CaseInsensitiveSort.Mode.RADIX);
+        assertArrayEquals(expected, input);
+    }
+
+    @Test
+    public void surrogatesFallBackToComparator() {
+        String[] input = {"b", "𐐀x", "A", "𐐨y", "a"};
+        String[] expected = input.clone();
+        Arrays.sort(expected, String::compareToIgnoreCase);
+        for (CaseInsensitiveSort.Mode mode : CaseInsensitiveSort.Mode.values()) {
+            String[] actual = input.clone();
+            CaseInsensitiveSort.sort(actual, mode);
+            assertArrayEquals(mode.toString(), expected, actual);
+        }
+    }
+
+    @Test
+    public void foldKey() {
+        String folded = "already folded";
+        assertSame(folded, CaseInsensitiveSort.foldKey(folded));
+        assertEquals("hello world", CaseInsensitiveSort.foldKey("Hello World"));
+        assertEquals("σσσ", CaseInsensitiveSort.foldKey("Σσς"));
+        assertNull(CaseInsensitiveSort.foldKey("a😀"));
+        for (char c = 0; c < Character.MIN_SURROGATE; c++) {
+            assertEquals(0, CaseInsensitiveSort.foldKey(String.valueOf(c)).compareToIgnoreCase(String.valueOf(c)));
+        }
+    }
+
+    @Test
+    public void toSortedListMatchesSorted() {
+        List<String> words = Arrays.asList(randomStrings(new Random(11), 20_000, 5));
+        List<String> expected = words.stream().sorted(String::compareToIgnoreCase).collect(Collectors.toList());
+        assertEquals(expected, words.parallelStream().collect(CaseInsensitiveSort.toSortedList()));
+        assertEquals(expected, words.stream().collect(CaseInsensitiveSort.toSortedList()));
+    }
+
+    private static String[] randomStrings(Random random, int n, int maxLength) {
+        String[] strings = new String[n];
+        for (int i = 0; i < n; i++) {
+            char[] chars = new char[random.nextInt(maxLength + 1)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            }
+            strings[i] = new String(chars);
+        }
+        return strings;
+    }
+}
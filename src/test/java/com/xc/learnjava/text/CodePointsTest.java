@@ -0,0 +1,141 @@
+package com.xc.learnjava.text;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * CodePoints：分块并行转换的结果与 new String(int[], int, int)、String.getBytes(UTF_8) 一致，补充字符与单独的代理字符落在块边界上也是如此
+ *
+ * @author joey
+ */
+public class CodePointsTest {
+
+    private static final int LARGE = CodePoints.PARALLEL_THRESHOLD * 3 + 11;
+
+    @Test
+    public void largeArraysMatchString() {
+        int[] codePoints = randomCodePoints(new Random(20), LARGE);
+        int[][] ranges = {{0, LARGE}, {1, LARGE - 1}, {CodePoints.PARALLEL_THRESHOLD - 1, LARGE}, {7, 7 + CodePoints.PARALLEL_THRESHOLD}, {5, 5}};
+        for (int[] r : ranges) {
+            String expected = new String(codePoints, r[0], r[1] - r[0]);
+            assertEquals(expected, CodePoints.toString(codePoints, r[0], r[1]));
+            assertArrayEquals(expected.toCharArray(), CodePoints.toChars(codePoints, r[0], r[1]));
+            assertEquals(expected.length(), CodePoints.charLength(codePoints, r[0], r[1]));
+            byte[] utf8 = expected.getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(utf8, CodePoints.toUtf8(codePoints, r[0], r[1]));
+            assertEquals(utf8.length, CodePoints.utf8Length(codePoints, r[0], r[1]));
+        }
+        assertEquals(new String(codePoints, 0, LARGE), CodePoints.toString(IntStream.of(codePoints).parallel()));
+    }
+
+    @Test
+    public void supplementaryCharactersAtChunkBoundaries() {
+        int[] codePoints = new int[LARGE];
+        Arrays.fill(codePoints, 'a');
+        for (int c = CodePoints.PARALLEL_THRESHOLD; c < LARGE; c += CodePoints.PARALLEL_THRESHOLD) {
+            codePoints[c - 1] = 0x1F600;
+            codePoints[c] = 0x10FFFF;
+        }
+        String expected = new String(codePoints, 0, LARGE);
+        assertEquals(expected, CodePoints.toString(codePoints));
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), CodePoints.toUtf8(codePoints));
+    }
+
+    @Test
+    public void loneSurrogatesAreKeptAsCharsAndEncodedAsQuestionMarks() {
+        int[] codePoints = {'x', 0xD800, 'y', 0xDFFF};
+        assertEquals("x\uD800y\uDFFF", CodePoints.toString(codePoints));
+        assertArrayEquals("x?y?".getBytes(StandardCharsets.UTF_8), CodePoints.toUtf8(codePoints));
+    }
+
+    @Test
+    public void invalidCodePointsAreRejected() {
+        for (int invalid : new int[]{-1, 0x110000, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            int[] codePoints = {'a', invalid};
+            try {
+                CodePoints.toString(codePoints);
+                fail("accepted " + invalid);
+            } catch (IllegalArgumentException expected) {
+            }
+            try {
+                CodePoints.toUtf8(codePoints);
+                fail("accepted " + invalid);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void toCharsIntoArray() {
+        int[] codePoints = {'a', 0x1F600, 'b'};
+        char[] dst = new char[6];
+        assertEquals(4, CodePoints.toChars(codePoints, 0, 3, dst, 2));
+        assertEquals("\0\0a😀b", new String(dst));
+        try {
+            CodePoints.toChars(codePoints, 0, 3, dst, 3);
+            fail("expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void encodeUtf8StopsOnWholeCodePoints() {
+        int[] codePoints = randomCodePoints(new Random(21), 10_000);
+        byte[] expected = CodePoints.toUtf8(codePoints);
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(7), ByteBuffer.allocateDirect(5), ByteBuffer.wrap(new byte[20], 3, 9).slice()}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int i = 0;
+            while (i < codePoints.length) {
+                int next = CodePoints.encodeUtf8(codePoints, i, codePoints.length, buffer);
+                ((Buffer) buffer).flip();
+                byte[] chunk = new byte[buffer.remaining()];
+                buffer.get(chunk);
+                out.write(chunk, 0, chunk.length);
+                ((Buffer) buffer).clear();
+                i = next;
+            }
+            assertArrayEquals(expected, out.toByteArray());
+        }
+    }
+
+    /**
+     * ASCII、BMP、补充字符与单独的高代理字符；高代理字符后面总是跟着 ASCII，不会与下一个码点组成代理对
+     */
+    private static int[] randomCodePoints(Random random, int n) {
+        int[] codePoints = new int[n];
+        for (int i = 0; i < n; i++) {
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    codePoints[i] = random.nextInt(0x80);
+                    break;
+                case 2:
+                    codePoints[i] = 0x80 + random.nextInt(0x800 - 0x80);
+                    break;
+                case 3:
+                    codePoints[i] = 0x4E00 + random.nextInt(0x5000);
+                    break;
+                case 4:
+                    codePoints[i] = 0x10000 + random.nextInt(0x100000);
+                    break;
+                default:
+                    if (i + 1 < n) {
+                        codePoints[i++] = 0xD800 + random.nextInt(0x400);
+                    }
+                    codePoints[i] = 'z';
+            }
+        }
+        return codePoints;
+    }
+}
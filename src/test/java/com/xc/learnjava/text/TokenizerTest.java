@@ -0,0 +1,139 @@
+package com.xc.learnjava.text;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tokenizer：与按正则切分（去掉空串）的结果一致，并行切分不会切断词，limit() 之后不再扫描剩下的文本
+ *
+ * @author joey
+ */
+public class TokenizerTest {
+
+    private static final String[] WORDS = {"a", "bb", "ccc", "中文", "😀x", "долго", "w0rd"};
+
+    @Test
+    public void stringMatchesRegexSplit() {
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            String text = randomText(random, 2_000, " \t\r\n\u0001");
+            List<String> expected = regexTokens(text, "[\\x00- ]+");
+            assertEquals(expected, Tokenizer.whitespace().tokens(text).collect(Collectors.toList()));
+            assertEquals(expected, Tokenizer.whitespace().tokens(text).parallel().collect(Collectors.toList()));
+        }
+        assertEquals(0, Tokenizer.whitespace().tokens("").count());
+        assertEquals(0, Tokenizer.whitespace().tokens(" \n\t ").count());
+    }
+
+    @Test
+    public void customDelimiters() {
+        Tokenizer csv = Tokenizer.of(",;");
+        assertEquals(Arrays.asList("a b", "c", "d"), csv.tokens(",a b;;c,d,").collect(Collectors.toList()));
+        Random random = new Random(5);
+        String text = randomText(random, 50_000, ",;");
+        assertEquals(regexTokens(text, "[,;]+"), csv.tokens(text).parallel().collect(Collectors.toList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonAsciiDelimiterIsRejected() {
+        Tokenizer.of(",，");
+    }
+
+    @Test
+    public void limitDoesNotScanTheWholeText() {
+        //长度为 Integer.MAX_VALUE 的虚拟文本，扫描全部需要很久；读到 1MB 之后就失败
+        CharSequence huge = new CharSequence() {
+            @Override
+            public int length() {
+                return Integer.MAX_VALUE;
+            }
+
+            @Override
+            public char charAt(int index) {
+                if (index > 1 << 20) {
+                    throw new AssertionError("scanned up to " + index);
+                }
+                return index % 3 == 2 ? ' ' : 'x';
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                StringBuilder sb = new StringBuilder(end - start);
+                for (int i = start; i < end; i++) {
+                    sb.append(charAt(i));
+                }
+                return sb;
+            }
+        };
+        assertEquals(Arrays.asList("xx", "xx", "xx"), Tokenizer.whitespace().tokens(huge).limit(3).collect(Collectors.toList()));
+        assertEquals("xx", Tokenizer.whitespace().tokens(huge).findFirst().get());
+    }
+
+    @Test
+    public void fileMatchesString() throws IOException {
+        Random random = new Random(9);
+        String text = randomText(random, 300_000, " \t\r\n");
+        Path file = Files.createTempFile("tokens", ".txt");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            List<String> expected = Tokenizer.whitespace().tokens(text).collect(Collectors.toList());
+            try (Stream<String> tokens = Tokenizer.whitespace().tokens(file)) {
+                assertEquals(expected, tokens.collect(Collectors.toList()));
+            }
+            try (Stream<String> tokens = Tokenizer.whitespace().tokens(file)) {
+                assertEquals(expected, tokens.parallel().collect(Collectors.toList()));
+            }
+            Map<String, Long> counts = expected.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            try (Stream<String> tokens = Tokenizer.whitespace().tokens(file)) {
+                assertEquals(counts, tokens.parallel().collect(Tokenizer.wordCount()));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        Path file = Files.createTempFile("tokens", ".txt");
+        try (Stream<String> tokens = Tokenizer.whitespace().tokens(file)) {
+            assertEquals(0, tokens.count());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<String> regexTokens(String text, String regex) {
+        return Pattern.compile(regex).splitAsStream(text).filter(s -> !s.isEmpty()).collect(Collectors.toList());
+    }
+
+    /**
+     * 随机的词与随机长度的分隔符串，首尾可能是分隔符
+     */
+    private static String randomText(Random random, int words, String delimiters) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            for (int d = random.nextInt(3); d > 0; d--) {
+                sb.append(delimiters.charAt(random.nextInt(delimiters.length())));
+            }
+            if (i > 0 && sb.length() > 0 && delimiters.indexOf(sb.charAt(sb.length() - 1)) < 0) {
+                sb.append(delimiters.charAt(0));
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
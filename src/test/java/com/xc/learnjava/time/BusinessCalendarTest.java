@@ -0,0 +1,82 @@
+package com.xc.learnjava.time;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * BusinessCalendar：计数与枚举的结果与逐天按 LocalDate.getDayOfWeek() 判断的结果一致，并行切分后仍然一致
+ *
+ * @author joey
+ */
+public class BusinessCalendarTest {
+
+    @Test
+    public void matchesDayByDayCheck() {
+        Random random = new Random(6);
+        for (int round = 0; round < 300; round++) {
+            Set<DayOfWeek> weekend = EnumSet.noneOf(DayOfWeek.class);
+            for (DayOfWeek d : DayOfWeek.values()) {
+                if (random.nextInt(3) == 0) {
+                    weekend.add(d);
+                }
+            }
+            long base = random.nextInt(40_000) - 20_000;
+            List<LocalDate> holidays = new ArrayList<>();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                holidays.add(LocalDate.ofEpochDay(base + random.nextInt(400)));
+            }
+            BusinessCalendar calendar = BusinessCalendar.of(weekend, holidays);
+            long from = base + random.nextInt(200) - 100;
+            long to = from + random.nextInt(500) - 20;
+
+            long[] weekendDays = LongStream.range(from, to).filter(d -> weekend.contains(LocalDate.ofEpochDay(d).getDayOfWeek())).toArray();
+            long[] businessDays = LongStream.range(from, to)
+                    .filter(d -> !weekend.contains(LocalDate.ofEpochDay(d).getDayOfWeek()) && !holidays.contains(LocalDate.ofEpochDay(d)))
+                    .toArray();
+            String message = weekend + " " + from + ".." + to;
+            assertEquals(message, weekendDays.length, calendar.countWeekendDays(from, to));
+            assertEquals(message, businessDays.length, calendar.countBusinessDays(from, to));
+            assertArrayEquals(message, weekendDays, calendar.weekendDays(from, to).toArray());
+            assertArrayEquals(message, businessDays, calendar.businessDays(from, to).toArray());
+            assertArrayEquals(message, businessDays, calendar.businessDays(from, to).parallel().toArray());
+            assertEquals(message, businessDays.length, calendar.businessDays(from, to).spliterator().getExactSizeIfKnown());
+        }
+    }
+
+    @Test
+    public void standardCalendar() {
+        BusinessCalendar calendar = BusinessCalendar.standard();
+        LocalDate monday = LocalDate.of(2024, 1, 1);
+        assertEquals(5, calendar.countBusinessDays(monday, monday.plusWeeks(1)));
+        assertEquals(2, calendar.countWeekendDays(monday, monday.plusWeeks(1)));
+        assertEquals(0, calendar.countBusinessDays(monday, monday));
+        assertEquals(0, calendar.countBusinessDays(monday.plusDays(3), monday));
+        assertEquals(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), calendar.weekend());
+        BusinessCalendar withNewYear = calendar.withHolidays(Collections.singletonList(monday));
+        assertEquals(4, withNewYear.countBusinessDays(monday, monday.plusWeeks(1)));
+        assertEquals(monday.plusDays(1).toEpochDay(), withNewYear.businessDays(monday, monday.plusWeeks(1)).findFirst().getAsLong());
+    }
+
+    @Test
+    public void wholeDateRangeIsCountedArithmetically() {
+        long from = LocalDate.MIN.toEpochDay();
+        long to = LocalDate.MAX.toEpochDay() + 1;
+        BusinessCalendar calendar = BusinessCalendar.standard();
+        assertEquals(to - from, calendar.countBusinessDays(from, to) + calendar.countWeekendDays(from, to));
+        assertEquals(calendar.countWeekendDays(from, to), calendar.weekendDays(from, to).spliterator().getExactSizeIfKnown());
+        assertEquals(LocalDate.MAX.getDayOfWeek() == DayOfWeek.SATURDAY || LocalDate.MAX.getDayOfWeek() == DayOfWeek.SUNDAY,
+                calendar.isWeekend(LocalDate.MAX.toEpochDay()));
+    }
+}
@@ -0,0 +1,76 @@
+package com.xc.learnjava.time;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * DateParser：快速路径与 LocalDate/DateTimeFormatter 的结果一致，非法日期（包括 0000 年）被拒绝
+ *
+ * @author joey
+ */
+public class DateParserTest {
+
+    @Test
+    public void fastPathMatchesLocalDate() {
+        DateTimeFormatter iso = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        for (LocalDate d = LocalDate.of(1, 1, 1); d.getYear() < 10000; d = d.plusDays(d.getYear() < 1590 || d.getYear() > 2410 ? 97 : 1)) {
+            String text = d.format(iso);
+            assertEquals(text, d.toEpochDay(), DateParser.parseEpochDay(text));
+            assertEquals(d, DateParser.parse(text));
+        }
+        assertEquals(LocalDate.of(9999, 12, 31), DateParser.parse("9999-12-31"));
+        assertEquals(LocalDate.of(1, 1, 1), DateParser.parse("0001-01-01"));
+    }
+
+    @Test
+    public void fastPathIgnoresWhitespace() {
+        assertEquals(LocalDate.of(2020, 1, 9), DateParser.parse(" 2020 - 01-09 "));
+        assertEquals(LocalDate.of(2020, 1, 9), DateParser.parse("2 0 2 0-0\t1-0 9\n"));
+    }
+
+    @Test
+    public void fastPathRejectsInvalidDates() {
+        String[] invalid = {"0000-01-01", "2021-02-29", "2020-02-30", "2020-04-31", "2020-13-01", "2020-00-10", "2020-01-00",
+                "20200-01-01", "2020-1-01", "2020-01-001", "2020-01", "2020-01-01-", "2020/01/01", "", "   "};
+        for (String text : invalid) {
+            try {
+                DateParser.parseEpochDay(text);
+                fail("accepted " + text);
+            } catch (DateTimeParseException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void otherPatternsUseFormatter() {
+        assertEquals(LocalDate.of(2020, 1, 9), DateParser.parse(" 09 / 01 / 2020", "dd/MM/yyyy"));
+        assertEquals(LocalDate.of(2020, 1, 9), DateParser.parse("2020-01-09", "yyyy-MM-dd"));
+        assertEquals(DateParser.formatter("dd/MM/yyyy"), DateParser.formatter("dd/MM/yyyy"));
+    }
+
+    @Test
+    public void batchParallelMatchesSerial() {
+        String[] texts = new String[DateParser.PARALLEL_THRESHOLD * 3 + 7];
+        int[] expected = new int[texts.length];
+        LocalDate start = LocalDate.of(1999, 12, 1);
+        for (int i = 0; i < texts.length; i++) {
+            LocalDate d = start.plusDays(i);
+            texts[i] = " " + d + " ";
+            expected[i] = (int) d.toEpochDay();
+        }
+        assertArrayEquals(expected, DateParser.parseEpochDays(texts));
+        assertArrayEquals(expected, DateParser.parseEpochDays(Arrays.asList(texts)));
+        LocalDate[] dates = DateParser.parseAll(texts);
+        for (int i = 0; i < dates.length; i++) {
+            assertEquals(expected[i], dates[i].toEpochDay());
+        }
+    }
+}